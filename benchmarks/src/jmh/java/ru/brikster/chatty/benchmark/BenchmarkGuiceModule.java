@@ -0,0 +1,69 @@
+package ru.brikster.chatty.benchmark;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Module;
+import com.google.inject.Provides;
+import com.google.inject.util.Modules;
+import ru.brikster.chatty.benchmark.fake.FakeBukkit;
+import ru.brikster.chatty.benchmark.fake.FakeRelationalPlaceholdersComponentTransformer;
+import ru.brikster.chatty.benchmark.fake.InMemoryPlayerDataRepository;
+import ru.brikster.chatty.benchmark.fake.NoopBukkitAudiences;
+import ru.brikster.chatty.chat.component.impl.RelationalPlaceholdersComponentTransformer;
+import ru.brikster.chatty.chat.component.impl.dummy.DummyRelationalPlaceholdersComponentTransformer;
+import ru.brikster.chatty.convert.component.ComponentStringConverter;
+import ru.brikster.chatty.guice.GeneralGuiceModule;
+import ru.brikster.chatty.repository.player.PlayerDataRepository;
+import ru.brikster.chatty.repository.swear.SwearRepository;
+
+import javax.inject.Singleton;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Overrides bindings of the plugin module, that need running server, database or plugins
+ */
+final class BenchmarkGuiceModule extends AbstractModule {
+
+    private static final List<String> SWEARS = List.of("fuck", "shit", "bitch", "bastard", "asshole");
+
+    private final boolean relational;
+
+    private BenchmarkGuiceModule(boolean relational) {
+        this.relational = relational;
+    }
+
+    /**
+     * @param dataFolderPath folder with configs of the plugin module
+     */
+    static Module create(Path dataFolderPath, boolean relational) {
+        return Modules.override(new GeneralGuiceModule(FakeBukkit.createPlugin("Chatty", dataFolderPath.toFile()),
+                        new NoopBukkitAudiences(), dataFolderPath))
+                .with(new BenchmarkGuiceModule(relational));
+    }
+
+    @Override
+    protected void configure() {
+        bind(PlayerDataRepository.class).toInstance(new InMemoryPlayerDataRepository());
+        bind(SwearRepository.class).toInstance(new SwearRepository() {
+            @Override
+            public List<String> getSwears() {
+                return SWEARS;
+            }
+
+            @Override
+            public List<String> getWhitelist() {
+                return Collections.emptyList();
+            }
+        });
+    }
+
+    @Provides
+    @Singleton
+    public RelationalPlaceholdersComponentTransformer relationalPlaceholdersComponentTransformer(ComponentStringConverter componentStringConverter) {
+        return relational
+                ? new FakeRelationalPlaceholdersComponentTransformer(componentStringConverter)
+                : new DummyRelationalPlaceholdersComponentTransformer();
+    }
+
+}
@@ -0,0 +1,136 @@
+package ru.brikster.chatty.benchmark;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.brikster.chatty.api.chat.Chat;
+import ru.brikster.chatty.api.chat.ChatStyle;
+import ru.brikster.chatty.api.chat.range.Ranges;
+import ru.brikster.chatty.benchmark.fake.FakeBukkit;
+import ru.brikster.chatty.chat.ChatImpl;
+import ru.brikster.chatty.chat.executor.LegacyEventExecutor;
+import ru.brikster.chatty.chat.range.PlayerPositionGrid;
+import ru.brikster.chatty.chat.registry.ChatRegistry;
+import ru.brikster.chatty.convert.component.ComponentStringConverter;
+import ru.brikster.chatty.permission.PermissionSnapshotService;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Measures full chat pipeline for one message: early stage, middle, late stage
+ * per style group and post stage with delivery to every recipient.
+ * <p>
+ * Run with {@code ./gradlew :benchmarks:jmh}
+ */
+@State(Scope.Benchmark)
+public class ChatPipelineBenchmark {
+
+    private static final String CHAT_ID = "global";
+
+    @Param({"10", "100", "1000"})
+    private int recipients;
+
+    @Param({"0", "3"})
+    private int styles;
+
+    @Param({"false", "true"})
+    private boolean mentions;
+
+    @Param({"false", "true"})
+    private boolean moderation;
+
+    @Param({"false", "true"})
+    private boolean relational;
+
+    private Path dataFolderPath;
+    private LegacyEventExecutor executor;
+    private Player sender;
+    private Set<Player> players;
+    private String message;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        FakeBukkit.installServer();
+
+        World world = FakeBukkit.createWorld("world");
+        List<Player> playerList = new ArrayList<>(recipients);
+        for (int i = 0; i < recipients; i++) {
+            Set<String> permissions = new HashSet<>();
+            permissions.add("chatty.chat." + CHAT_ID);
+            permissions.add("chatty.mentions");
+            int styleIndex = i % (styles + 1);
+            if (styleIndex != 0) {
+                permissions.add("chatty.style.style" + styleIndex);
+            }
+            playerList.add(FakeBukkit.createPlayer("Player" + i, world, i, i, permissions));
+        }
+        FakeBukkit.setOnlinePlayers(playerList);
+
+        this.sender = playerList.get(0);
+        this.players = new HashSet<>(playerList);
+        this.message = mentions
+                ? "Hello @Player5, check https://example.com please"
+                : "Hello everyone, check https://example.com please";
+
+        this.dataFolderPath = Files.createTempDirectory("chatty-benchmark");
+        writeConfig("settings.yml", "mentions:\n  enable: " + mentions + "\n");
+        writeConfig("moderation.yml", "caps:\n  enable: " + moderation + "\n"
+                + "advertisement:\n  enable: " + moderation + "\n"
+                + "swear:\n  enable: " + moderation + "\n");
+
+        Injector injector = Guice.createInjector(BenchmarkGuiceModule.create(dataFolderPath, relational));
+        ComponentStringConverter converter = injector.getInstance(ComponentStringConverter.class);
+
+        String formatSuffix = relational ? " %rel_tag%" : "";
+
+        Set<ChatStyle> chatStyles = new HashSet<>();
+        for (int i = 1; i <= styles; i++) {
+            chatStyles.add(new ChatStyle("style" + i,
+                    converter.stringToComponent("&" + i + "[S" + i + "] {player}&8: &f{message}" + formatSuffix),
+                    "{message}", i));
+        }
+
+        Chat chat = new ChatImpl(CHAT_ID, "Global",
+                converter.stringToComponent("&7[G] {prefix}{player}{suffix}&8: &f{message}" + formatSuffix),
+                "{message}", "", null, Ranges.CROSS_WORLD, false,
+                chatStyles, false, true, true, null,
+                converter.stringToComponent("&6[Spy] &r{format}"), 0,
+                injector.getInstance(PermissionSnapshotService.class),
+                injector.getInstance(PlayerPositionGrid.class));
+        injector.getInstance(ChatRegistry.class).register(CHAT_ID, chat);
+
+        this.executor = injector.getInstance(LegacyEventExecutor.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dataFolderPath)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private void writeConfig(String fileName, String content) throws IOException {
+        Files.writeString(dataFolderPath.resolve(fileName), content, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void processMessage(Blackhole blackhole) {
+        AsyncPlayerChatEvent event = new AsyncPlayerChatEvent(true, sender, message, new HashSet<>(players));
+        executor.execute(executor, event);
+        executor.handleFinishedEarlyContextEvent(event);
+        blackhole.consume(event.getFormat());
+        blackhole.consume(event.isCancelled());
+    }
+
+}
@@ -0,0 +1,93 @@
+package ru.brikster.chatty.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.brikster.chatty.chat.message.transform.stage.early.moderation.SwearMatcher;
+import ru.brikster.chatty.config.file.ModerationConfig.SwearNormalizationConfig;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Compares swear matching of {@link SwearMatcher} with the previous implementation,
+ * that joined all swears into one regular expression.
+ * <p>
+ * Run with {@code ./gradlew :benchmarks:jmh -Pjmh.includes=SwearMatcherBenchmark}
+ */
+@State(Scope.Benchmark)
+public class SwearMatcherBenchmark {
+
+    private static final String REPLACEMENT = "<swear>";
+
+    @Param({"100", "1000", "8000"})
+    private int swears;
+
+    @Param({"false", "true"})
+    private boolean containsSwear;
+
+    @Param({"false", "true"})
+    private boolean collapseRepeatedLetters;
+
+    private SwearMatcher swearMatcher;
+    private Pattern regexPattern;
+    private List<String> whitelist;
+    private String message;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        List<String> swearList = new ArrayList<>(swears);
+        for (int i = 0; i < swears; i++) {
+            swearList.add(randomWord(random, 4 + random.nextInt(5)));
+        }
+        this.whitelist = List.of("whitelisted");
+
+        this.swearMatcher = new SwearMatcher(swearList, whitelist,
+                new SwearNormalizationConfig().getCharacters(), collapseRepeatedLetters);
+        this.regexPattern = Pattern.compile(swearList.stream()
+                        .map(swear -> "(".concat(swear).concat(")"))
+                        .collect(Collectors.joining("|")),
+                Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+
+        this.message = containsSwear
+                ? "Hello everyone, " + swearList.get(swears / 2) + " check https://example.com please"
+                : "Hello everyone, check https://example.com please";
+    }
+
+    @Benchmark
+    public void automaton(Blackhole blackhole) {
+        blackhole.consume(swearMatcher.replace(message, REPLACEMENT));
+    }
+
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        Matcher matcher = regexPattern.matcher(message);
+
+        StringBuilder builder = new StringBuilder();
+        while (matcher.find()) {
+            if (!whitelist.contains(matcher.group().trim())) {
+                matcher.appendReplacement(builder, REPLACEMENT);
+            }
+        }
+        matcher.appendTail(builder);
+
+        blackhole.consume(builder.toString());
+    }
+
+    private static String randomWord(Random random, int length) {
+        // Letters, that aren't mapped by default normalization. About a quarter of letters are doubled
+        String alphabet = "bdfghjlmnqrvwz";
+        StringBuilder builder = new StringBuilder(length + 1);
+        while (builder.length() < length) {
+            char c = alphabet.charAt(random.nextInt(alphabet.length()));
+            builder.append(c);
+            if (random.nextInt(4) == 0) {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,164 @@
+package ru.brikster.chatty.benchmark.fake;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Lightweight fakes of Bukkit objects, that are used by the chat pipeline.
+ * Every fake answers only the methods chat pipeline needs and returns default values for others.
+ */
+public final class FakeBukkit {
+
+    private static volatile Collection<? extends Player> onlinePlayers = Collections.emptyList();
+
+    private FakeBukkit() {
+    }
+
+    /**
+     * Installs fake server once per JVM, its online players can be changed with {@link #setOnlinePlayers(Collection)}
+     */
+    public static synchronized void installServer() {
+        if (Bukkit.getServer() != null) {
+            return;
+        }
+
+        Logger logger = Logger.getLogger("FakeServer");
+        PluginManager pluginManager = proxy(PluginManager.class, (proxy, method, args) -> defaultValue(proxy, method, args));
+
+        Server server = proxy(Server.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getLogger":
+                    return logger;
+                case "getName":
+                    return "FakeServer";
+                case "getVersion":
+                case "getBukkitVersion":
+                    return "benchmark";
+                case "getOnlinePlayers":
+                    return onlinePlayers;
+                case "getPluginManager":
+                    return pluginManager;
+                default:
+                    return defaultValue(proxy, method, args);
+            }
+        });
+
+        Bukkit.setServer(server);
+    }
+
+    public static void setOnlinePlayers(Collection<? extends Player> players) {
+        onlinePlayers = Collections.unmodifiableCollection(players);
+    }
+
+    public static Plugin createPlugin(String name, File dataFolder) {
+        Logger logger = Logger.getLogger(name);
+        return proxy(Plugin.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getName":
+                    return name;
+                case "getLogger":
+                    return logger;
+                case "getDataFolder":
+                    return dataFolder;
+                case "getServer":
+                    return Bukkit.getServer();
+                case "isEnabled":
+                    return true;
+                default:
+                    return defaultValue(proxy, method, args);
+            }
+        });
+    }
+
+    public static World createWorld(String name) {
+        UUID uuid = UUID.nameUUIDFromBytes(name.getBytes());
+        return proxy(World.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getName":
+                    return name;
+                case "getUID":
+                    return uuid;
+                default:
+                    return defaultValue(proxy, method, args);
+            }
+        });
+    }
+
+    public static Player createPlayer(String name, World world, double x, double z, Set<String> permissions) {
+        UUID uuid = UUID.nameUUIDFromBytes(name.getBytes());
+        Location location = new Location(world, x, 64, z);
+        return proxy(Player.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getName":
+                case "getDisplayName":
+                case "getPlayerListName":
+                    return name;
+                case "getUniqueId":
+                    return uuid;
+                case "getWorld":
+                    return world;
+                case "getLocation":
+                    if (args != null && args.length == 1 && args[0] != null) {
+                        Location target = (Location) args[0];
+                        target.setWorld(world);
+                        target.setX(location.getX());
+                        target.setY(location.getY());
+                        target.setZ(location.getZ());
+                        return target;
+                    }
+                    return location.clone();
+                case "hasPermission":
+                    return args[0] instanceof String && permissions.contains(args[0]);
+                case "isPermissionSet":
+                    return args[0] instanceof String && permissions.contains(args[0]);
+                case "isOnline":
+                case "canSee":
+                    return true;
+                default:
+                    return defaultValue(proxy, method, args);
+            }
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(FakeBukkit.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object defaultValue(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Fake" + method.getDeclaringClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+        }
+
+        Class<?> returnType = method.getReturnType();
+        if (returnType == boolean.class) return false;
+        if (returnType == int.class) return 0;
+        if (returnType == long.class) return 0L;
+        if (returnType == double.class) return 0D;
+        if (returnType == float.class) return 0F;
+        if (returnType == short.class) return (short) 0;
+        if (returnType == byte.class) return (byte) 0;
+        if (returnType == char.class) return (char) 0;
+        return null;
+    }
+
+}
@@ -0,0 +1,44 @@
+package ru.brikster.chatty.benchmark.fake;
+
+import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.NotNull;
+import ru.brikster.chatty.chat.component.context.TwoPlayersTransformContext;
+import ru.brikster.chatty.chat.component.impl.RelationalPlaceholdersComponentTransformer;
+import ru.brikster.chatty.convert.component.ComponentStringConverter;
+import ru.brikster.chatty.util.AdventureUtil;
+
+import java.util.regex.Pattern;
+
+/**
+ * Replaces relational placeholders the same way PlaceholderAPI transformer does,
+ * but resolves them without PlaceholderAPI: result depends only on the pair of players
+ */
+public final class FakeRelationalPlaceholdersComponentTransformer extends RelationalPlaceholdersComponentTransformer {
+
+    private static final Pattern RELATIONAL_PLACEHOLDER_PATTERN = Pattern.compile("%(rel_)([^%]+)%");
+
+    private final ComponentStringConverter componentStringConverter;
+
+    public FakeRelationalPlaceholdersComponentTransformer(ComponentStringConverter componentStringConverter) {
+        this.componentStringConverter = componentStringConverter;
+    }
+
+    @Override
+    public @NotNull Component transform(@NotNull Component formatComponent, @NotNull TwoPlayersTransformContext context) {
+        return AdventureUtil.replaceWithEndingSpace(formatComponent, RELATIONAL_PLACEHOLDER_PATTERN,
+                matchedString -> componentStringConverter.stringToComponent(replace(context) + " "),
+                matchedString -> replace(context));
+    }
+
+    @Override
+    public boolean hasPlaceholders(@NotNull Component formatComponent) {
+        return AdventureUtil.containsMatch(formatComponent, RELATIONAL_PLACEHOLDER_PATTERN);
+    }
+
+    private static String replace(TwoPlayersTransformContext context) {
+        return (context.getOne().getName().length() + context.getTwo().getName().length()) % 2 == 0
+                ? "&a[friend]"
+                : "&c[enemy]";
+    }
+
+}
@@ -0,0 +1,89 @@
+package ru.brikster.chatty.benchmark.fake;
+
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.brikster.chatty.repository.player.PlayerData;
+import ru.brikster.chatty.repository.player.PlayerDataRepository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Repository without any stored data, so database latency doesn't affect benchmarks
+ */
+public final class InMemoryPlayerDataRepository implements PlayerDataRepository {
+
+    @Override
+    public @NotNull Set<@NotNull UUID> getWhoIgnoreUuids(@NotNull UUID playerUuid) {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public @NotNull Set<@NotNull UUID> getIgnoredPlayersByUuids(@NotNull UUID playerUuid) {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public @NotNull Set<@NotNull String> getIgnoredPlayersByUsernames(@NotNull Player player) {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public void createOrUpdateUser(@NotNull UUID uuid, @NotNull String username) {
+    }
+
+    @Override
+    public void createOrUpdateUsers(@NotNull Map<@NotNull UUID, @NotNull String> users) {
+    }
+
+    @Override
+    public @Nullable UUID getCachedUuid(@NotNull String playerName) {
+        return null;
+    }
+
+    @Override
+    public @Nullable String getCachedUsername(@NotNull UUID uuid) {
+        return null;
+    }
+
+    @Override
+    public void addIgnoredPlayer(@NotNull UUID playerUuid, @NotNull UUID uuid) {
+    }
+
+    @Override
+    public void removeIgnoredPlayer(@NotNull UUID playerUuid, @NotNull UUID uuid) {
+    }
+
+    @Override
+    public boolean isIgnoredPlayer(@NotNull UUID playerUuid, @NotNull UUID uuid) {
+        return false;
+    }
+
+    @Override
+    public boolean isEnableSpy(@NotNull UUID playerUuid) {
+        return false;
+    }
+
+    @Override
+    public void setEnableSpy(@NotNull UUID playerUuid, boolean spy) {
+    }
+
+    @Override
+    public @NotNull Map<@NotNull UUID, @NotNull PlayerData> loadPlayersData(@NotNull Collection<@NotNull UUID> uuids) {
+        Map<UUID, PlayerData> playersData = new HashMap<>();
+        for (UUID uuid : uuids) {
+            playersData.put(uuid, new PlayerData(uuid, null, false, Collections.emptySet(), Collections.emptySet()));
+        }
+        return playersData;
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
@@ -0,0 +1,78 @@
+package ru.brikster.chatty.benchmark.fake;
+
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.key.Key;
+import net.kyori.adventure.platform.bukkit.BukkitAudiences;
+import net.kyori.adventure.text.flattener.ComponentFlattener;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Audience provider that drops everything sent, so benchmarks measure only the pipeline itself
+ */
+public final class NoopBukkitAudiences implements BukkitAudiences {
+
+    @Override
+    public @NotNull Audience sender(@NotNull CommandSender sender) {
+        return Audience.empty();
+    }
+
+    @Override
+    public @NotNull Audience player(@NotNull Player player) {
+        return Audience.empty();
+    }
+
+    @Override
+    public @NotNull Audience filter(@NotNull Predicate<CommandSender> filter) {
+        return Audience.empty();
+    }
+
+    @Override
+    public @NotNull Audience all() {
+        return Audience.empty();
+    }
+
+    @Override
+    public @NotNull Audience console() {
+        return Audience.empty();
+    }
+
+    @Override
+    public @NotNull Audience players() {
+        return Audience.empty();
+    }
+
+    @Override
+    public @NotNull Audience player(@NotNull UUID playerId) {
+        return Audience.empty();
+    }
+
+    @Override
+    public @NotNull Audience permission(@NotNull String permission) {
+        return Audience.empty();
+    }
+
+    @Override
+    public @NotNull Audience world(@NotNull Key world) {
+        return Audience.empty();
+    }
+
+    @Override
+    public @NotNull Audience server(@NotNull String serverName) {
+        return Audience.empty();
+    }
+
+    @Override
+    public @NotNull ComponentFlattener flattener() {
+        return ComponentFlattener.basic();
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
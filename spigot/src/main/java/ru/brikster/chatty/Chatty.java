@@ -35,12 +35,15 @@ import ru.brikster.chatty.adventure.NativeBukkitAudienceProvider;
 import ru.brikster.chatty.api.ChattyApiImpl;
 import ru.brikster.chatty.api.event.ChattyInitEvent;
 import ru.brikster.chatty.chat.executor.LegacyEventExecutor;
+import ru.brikster.chatty.chat.range.PlayerPositionGrid;
 import ru.brikster.chatty.chat.registry.ChatRegistry;
 import ru.brikster.chatty.command.CommandSuggestionsProvider;
 import ru.brikster.chatty.command.ProxyingCommandHandler;
 import ru.brikster.chatty.command.ProxyingCommandSuggestionsProvider;
 import ru.brikster.chatty.command.handler.ClearChatCommandHandler;
 import ru.brikster.chatty.command.handler.SpyCommandHandler;
+import ru.brikster.chatty.command.handler.TimingsCommandHandler;
+import ru.brikster.chatty.command.handler.TimingsResetCommandHandler;
 import ru.brikster.chatty.config.file.MessagesConfig;
 import ru.brikster.chatty.config.file.PmConfig;
 import ru.brikster.chatty.config.file.SettingsConfig;
@@ -50,14 +53,24 @@ import ru.brikster.chatty.metrics.MetricsSender;
 import ru.brikster.chatty.misc.VanillaListener;
 import ru.brikster.chatty.notification.NotificationTicker;
 import ru.brikster.chatty.papi.PapiExpansionInstaller;
+import ru.brikster.chatty.papi.PlaceholderApiSnapshotService;
+import ru.brikster.chatty.papi.RelationalPlaceholderCache;
+import ru.brikster.chatty.permission.PermissionSnapshotService;
+import ru.brikster.chatty.player.PlayerNameResolver;
+import ru.brikster.chatty.player.PlayerSessionRegistry;
 import ru.brikster.chatty.pm.MsgCommandHandler;
 import ru.brikster.chatty.pm.PrivateMessageSuggestionsProvider;
 import ru.brikster.chatty.pm.ReplyCommandHandler;
 import ru.brikster.chatty.pm.ignore.AddIgnoreCommandHandler;
+import ru.brikster.chatty.pm.ignore.IgnoreGraph;
 import ru.brikster.chatty.pm.ignore.IgnoreListCommandHandler;
 import ru.brikster.chatty.pm.ignore.RemoveIgnoreCommandHandler;
+import ru.brikster.chatty.prefix.PrefixCache;
 import ru.brikster.chatty.proxy.ProxyService;
+import ru.brikster.chatty.repository.player.AsyncPlayerDataRepository;
 import ru.brikster.chatty.repository.player.PlayerDataRepository;
+import ru.brikster.chatty.repository.player.UserUpsertQueue;
+import ru.brikster.chatty.spy.SpyRegistry;
 import ru.brikster.chatty.util.AdventureUtil;
 import ru.brikster.chatty.util.EventUtil;
 import ru.brikster.chatty.util.PaperUtil;
@@ -65,7 +78,10 @@ import ru.brikster.chatty.util.PaperUtil;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.logging.Level;
@@ -110,7 +126,8 @@ public final class Chatty extends JavaPlugin {
                     Component component = MiniMessage.miniMessage().deserialize(
                             "<gold><bold>Chatty</bold></gold> <gray>(v" + getDescription().getVersion() + ")</gray> - chat management system by <green>@Brikster</green>.<newline>" +
                             "Links: <click:open_url:'https://github.com/Brikster/Chatty'><aqua>GitHub</aqua></click><newline>" +
-                            "Use <yellow>/chatty reload</yellow> to reload configuration.");
+                            "Use <yellow>/chatty reload</yellow> to reload configuration.<newline>" +
+                            "Use <yellow>/chatty timings</yellow> to see message processing timings.");
 
                     injector.getInstance(BukkitAudiences.class)
                             .sender(handler.getSender())
@@ -134,9 +151,24 @@ public final class Chatty extends JavaPlugin {
                 })
                 .build();
 
+        Command<CommandSender> timingsCommand = chattyBuilder
+                .literal("timings")
+                .permission("chatty.command.timings")
+                .handler(handler -> injector.getInstance(TimingsCommandHandler.class).execute(handler))
+                .build();
+
+        Command<CommandSender> timingsResetCommand = chattyBuilder
+                .literal("timings")
+                .literal("reset")
+                .permission("chatty.command.timings")
+                .handler(handler -> injector.getInstance(TimingsResetCommandHandler.class).execute(handler))
+                .build();
+
         syncCommandManager
                 .command(infoCommand)
-                .command(reloadCommand);
+                .command(reloadCommand)
+                .command(timingsCommand)
+                .command(timingsResetCommand);
     }
 
     private void initialize() throws Exception {
@@ -173,11 +205,24 @@ public final class Chatty extends JavaPlugin {
         VanillaListener miscListener = injector.getInstance(VanillaListener.class);
         this.getServer().getPluginManager().registerEvents(miscListener, this);
 
+        this.getServer().getPluginManager().registerEvents(injector.getInstance(PrefixCache.class), this);
+
+        injector.getInstance(PlayerSessionRegistry.class).start(this);
+        injector.getInstance(PermissionSnapshotService.class).start(this);
+        injector.getInstance(PlayerPositionGrid.class).start(this);
+        injector.getInstance(SpyRegistry.class).start(this);
+        injector.getInstance(IgnoreGraph.class).start(this);
+        injector.getInstance(UserUpsertQueue.class).start(this);
+        injector.getInstance(PlayerNameResolver.class).start(this);
+        preloadPlayersData();
+
         this.notificationTicker = injector.getInstance(NotificationTicker.class);
         notificationTicker.startTicking();
 
         if (Bukkit.getServer().getPluginManager().isPluginEnabled("PlaceholderAPI")) {
             PapiExpansionInstaller.install(injector);
+            injector.getInstance(PlaceholderApiSnapshotService.class).start();
+            injector.getInstance(RelationalPlaceholderCache.class).start(this);
         }
 
         PmConfig pmConfig = injector.getInstance(PmConfig.class);
@@ -225,10 +270,38 @@ public final class Chatty extends JavaPlugin {
         metricsSender.run();
     }
 
+    // Loads data of players, that are online after reload, in bulk instead of per-player queries
+    private void preloadPlayersData() {
+        List<UUID> uuids = new ArrayList<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            uuids.add(player.getUniqueId());
+        }
+
+        if (uuids.isEmpty()) {
+            return;
+        }
+
+        Injector injector = this.injector;
+        injector.getInstance(AsyncPlayerDataRepository.class).loadPlayersData(uuids).thenAccept(playersData -> {
+            injector.getInstance(SpyRegistry.class).preload(playersData.values());
+            injector.getInstance(IgnoreGraph.class).preload(playersData.values());
+            injector.getInstance(UserUpsertQueue.class).preload(playersData.values());
+            injector.getInstance(PlayerNameResolver.class).preload(playersData.values());
+        }).exceptionally(throwable -> {
+            getLogger().log(Level.SEVERE, "Cannot preload data of online players", throwable);
+            return null;
+        });
+    }
+
     private void closeResources() throws IOException {
         if (!isUseNativeAdventurePlatform()) {
             BukkitAudiences.create(this).close();
         }
+        injector.getInstance(SpyRegistry.class).stop();
+        injector.getInstance(IgnoreGraph.class).stop();
+        injector.getInstance(UserUpsertQueue.class).stop();
+        injector.getInstance(PlayerNameResolver.class).stop();
+        injector.getInstance(AsyncPlayerDataRepository.class).close();
         injector.getInstance(PlayerDataRepository.class).close();
         injector.getInstance(ProxyService.class).close();
         EventUtil.unregisterListeners(PlayerJoinEvent.class, this);
@@ -236,6 +309,11 @@ public final class Chatty extends JavaPlugin {
         EventUtil.unregisterListeners(PlayerDeathEvent.class, this);
         EventUtil.unregisterListeners(AsyncPlayerChatEvent.class, this);
         notificationTicker.cancelTicking();
+        injector.getInstance(PlaceholderApiSnapshotService.class).stop();
+        injector.getInstance(PrefixCache.class).close();
+        injector.getInstance(PermissionSnapshotService.class).stop();
+        injector.getInstance(PlayerPositionGrid.class).stop();
+        injector.getInstance(PlayerSessionRegistry.class).stop();
     }
 
     private void initAsyncCommandManager() throws Exception {
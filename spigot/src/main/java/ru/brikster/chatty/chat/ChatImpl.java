@@ -1,5 +1,6 @@
 package ru.brikster.chatty.chat;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import net.kyori.adventure.platform.bukkit.BukkitAudiences;
@@ -17,15 +18,23 @@ import ru.brikster.chatty.api.chat.ChatStyle;
 import ru.brikster.chatty.api.chat.command.ChatCommand;
 import ru.brikster.chatty.api.chat.message.strategy.MessageTransformStrategy;
 import ru.brikster.chatty.api.chat.range.Ranges;
+import ru.brikster.chatty.chat.range.PlayerPositionGrid;
+import ru.brikster.chatty.permission.PermissionSnapshotListener;
+import ru.brikster.chatty.permission.PermissionSnapshotService;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 
 @RequiredArgsConstructor
-public final class ChatImpl implements Chat {
+public final class ChatImpl implements Chat, PermissionSnapshotListener {
 
     @Getter
     private final @NotNull String id;
@@ -70,9 +79,27 @@ public final class ChatImpl implements Chat {
     @Getter
     private final int cooldown;
 
-    private final List<MessageTransformStrategy<?>> strategies
-            = new ArrayList<>();
+    private final PermissionSnapshotService permissionSnapshots;
+    private final PlayerPositionGrid positionGrid;
 
+    // Nodes are built once instead of concatenating them for every check
+    @Getter(value = AccessLevel.PRIVATE, lazy = true)
+    private final String[] symbolWriteNodes = chatNodes("", ".write", ".send", ".write.symbol", ".send.symbol");
+
+    @Getter(value = AccessLevel.PRIVATE, lazy = true)
+    private final String[] commandWriteNodes = chatNodes("", ".write", ".send", ".write.command", ".send.command");
+
+    @Getter(value = AccessLevel.PRIVATE, lazy = true)
+    private final String[] readNodes = chatNodes("", ".read", ".see");
+
+    // Online players, who can read the chat, with their worlds.
+    // Maintained from permission snapshots, so it's used only while they are started
+    private final Map<Player, UUID> memberWorlds = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<Player>> worldMembers = new ConcurrentHashMap<>();
+
+    // Copy-on-write: every modification publishes a new immutable list,
+    // so identity of the list changes only when the strategy set changes
+    private volatile List<MessageTransformStrategy<?>> strategies = List.of();
 
     @Override
     public @NotNull String getDisplayName() {
@@ -83,42 +110,72 @@ public final class ChatImpl implements Chat {
 
     @Override
     public @NotNull List<@NotNull MessageTransformStrategy<?>> getStrategies() {
-        return Collections.unmodifiableList(strategies);
+        return strategies;
     }
 
     @Override
-    public void addStrategy(@NotNull MessageTransformStrategy<?> strategy) {
-        strategies.add(strategy);
+    public synchronized void addStrategy(@NotNull MessageTransformStrategy<?> strategy) {
+        List<MessageTransformStrategy<?>> newStrategies = new ArrayList<>(strategies);
+        newStrategies.add(strategy);
+        strategies = Collections.unmodifiableList(newStrategies);
     }
 
     @Override
-    public boolean removeStrategy(@NotNull MessageTransformStrategy<?> strategy) {
-        return strategies.remove(strategy);
+    public synchronized boolean removeStrategy(@NotNull MessageTransformStrategy<?> strategy) {
+        List<MessageTransformStrategy<?>> newStrategies = new ArrayList<>(strategies);
+        if (!newStrategies.remove(strategy)) {
+            return false;
+        }
+        strategies = Collections.unmodifiableList(newStrategies);
+        return true;
     }
 
     @Override
     public boolean hasSymbolWritePermission(Player sender) {
-        return sender.hasPermission("chatty.chat." + getId())
-                || sender.hasPermission("chatty.chat." + getId() + ".write")
-                || sender.hasPermission("chatty.chat." + getId() + ".send")
-                || sender.hasPermission("chatty.chat." + getId() + ".write.symbol")
-                || sender.hasPermission("chatty.chat." + getId() + ".send.symbol");
+        return hasAnyPermission(sender, getSymbolWriteNodes());
     }
 
     @Override
     public boolean hasCommandWritePermission(Player sender) {
-        return sender.hasPermission("chatty.chat." + getId())
-                || sender.hasPermission("chatty.chat." + getId() + ".write")
-                || sender.hasPermission("chatty.chat." + getId() + ".send")
-                || sender.hasPermission("chatty.chat." + getId() + ".write.command")
-                || sender.hasPermission("chatty.chat." + getId() + ".send.command");
+        return hasAnyPermission(sender, getCommandWriteNodes());
     }
 
     @Override
     public boolean hasReadPermission(Player sender) {
-        return sender.hasPermission("chatty.chat." + getId())
-                || sender.hasPermission("chatty.chat." + getId() + ".read")
-                || sender.hasPermission("chatty.chat." + getId() + ".see");
+        return hasAnyPermission(sender, getReadNodes());
+    }
+
+    /**
+     * @return all permission nodes, that are checked for this chat, its styles and spies
+     */
+    public @NotNull Set<String> getPermissionNodes() {
+        Set<String> nodes = new HashSet<>();
+        Collections.addAll(nodes, getSymbolWriteNodes());
+        Collections.addAll(nodes, getCommandWriteNodes());
+        Collections.addAll(nodes, getReadNodes());
+        nodes.add("chatty.spy." + id);
+        nodes.add("chatty.bypass.cooldown." + id);
+        for (ChatStyle style : styles) {
+            nodes.add("chatty.style." + style.id());
+        }
+        return nodes;
+    }
+
+    private boolean hasAnyPermission(Player player, String[] nodes) {
+        for (String node : nodes) {
+            if (permissionSnapshots.hasPermission(player, node)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String[] chatNodes(String... suffixes) {
+        String[] nodes = new String[suffixes.length];
+        for (int i = 0; i < suffixes.length; i++) {
+            nodes[i] = "chatty.chat." + id + suffixes[i];
+        }
+        return nodes;
     }
 
     @Override
@@ -128,14 +185,94 @@ public final class ChatImpl implements Chat {
                 return true;
             }
 
-            if (isPermissionRequired() && !hasReadPermission(player)) {
+            if (isPermissionRequired() && !canRead(player)) {
                 return false;
             }
 
-            return sender == null || Ranges.isApplicable(sender, player, range);
+            if (sender == null) {
+                return true;
+            }
+
+            Boolean inRange = positionGrid.isInRange(sender, player, range);
+            return inRange != null
+                    ? inRange
+                    : Ranges.isApplicable(sender, player, range);
         };
     }
 
+    @Override
+    public @NotNull Collection<? extends Player> calculateRecipients(@Nullable Player sender) {
+        if (permissionSnapshots.isStarted()) {
+            Collection<Player> members = null;
+            if (range < Ranges.SINGLE_WORLD) {
+                members = memberWorlds.keySet();
+            } else if (range == Ranges.SINGLE_WORLD && sender != null) {
+                UUID senderWorld = memberWorlds.get(sender);
+                if (senderWorld != null) {
+                    members = worldMembers.get(senderWorld);
+                }
+            }
+
+            if (members != null) {
+                List<Player> recipients = new ArrayList<>(members.size() + 1);
+                recipients.addAll(members);
+                if (sender != null && !memberWorlds.containsKey(sender)) {
+                    recipients.add(sender);
+                }
+                return Collections.unmodifiableCollection(recipients);
+            }
+        }
+
+        Collection<Player> playersInRange = sender == null ? null : positionGrid.findPlayersInRange(sender, range);
+        if (playersInRange == null) {
+            return Chat.super.calculateRecipients(sender);
+        }
+
+        Predicate<Player> recipientPredicate = getRecipientPredicate(sender);
+        List<Player> recipients = new ArrayList<>(playersInRange.size());
+        for (Player player : playersInRange) {
+            if (recipientPredicate.test(player)) {
+                recipients.add(player);
+            }
+        }
+        return Collections.unmodifiableCollection(recipients);
+    }
+
+    @Override
+    public void onSnapshot(@NotNull Player player) {
+        UUID world = player.getWorld().getUID();
+        boolean member = !isPermissionRequired() || hasReadPermission(player);
+
+        UUID previousWorld = member ? memberWorlds.put(player, world) : memberWorlds.remove(player);
+        if (previousWorld != null && (!member || !previousWorld.equals(world))) {
+            removeWorldMember(previousWorld, player);
+        }
+        if (member) {
+            worldMembers.computeIfAbsent(world, k -> ConcurrentHashMap.newKeySet()).add(player);
+        }
+    }
+
+    @Override
+    public void onRemove(@NotNull Player player) {
+        UUID previousWorld = memberWorlds.remove(player);
+        if (previousWorld != null) {
+            removeWorldMember(previousWorld, player);
+        }
+    }
+
+    private void removeWorldMember(UUID world, Player player) {
+        Set<Player> members = worldMembers.get(world);
+        if (members != null) {
+            members.remove(player);
+        }
+    }
+
+    private boolean canRead(Player player) {
+        return permissionSnapshots.isStarted()
+                ? memberWorlds.containsKey(player)
+                : hasReadPermission(player);
+    }
+
     @Override
     public void sendLegacyMessage(Plugin plugin, String message, Predicate<CommandSender> recipientPredicate) {
         var component = LegacyComponentSerializer.legacySection().deserialize(message);
@@ -1,17 +1,22 @@
 package ru.brikster.chatty.chat.component.impl;
 
+import lombok.RequiredArgsConstructor;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import ru.brikster.chatty.player.PlayerSessionRegistry;
 
 import java.util.Objects;
 
+@RequiredArgsConstructor
 public final class InternalPlaceholdersReplacementsStringTransformer implements ReplacementsStringTransformer {
 
+    private final PlayerSessionRegistry sessions;
+
     @Override
     public String transform(@NotNull OfflinePlayer sender, @NotNull String message) {
         return message.replace("{player}", sender instanceof Player
-                ? ((Player) sender).getDisplayName()
+                ? sessions.displayName((Player) sender)
                 : Objects.requireNonNull(sender.getName(), "Player name cannot be null"));
     }
 
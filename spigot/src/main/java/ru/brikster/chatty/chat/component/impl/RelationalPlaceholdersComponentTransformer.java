@@ -1,7 +1,16 @@
 package ru.brikster.chatty.chat.component.impl;
 
+import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.NotNull;
 import ru.brikster.chatty.chat.component.ComponentTransformer;
 import ru.brikster.chatty.chat.component.context.TwoPlayersTransformContext;
 
 public abstract class RelationalPlaceholdersComponentTransformer implements ComponentTransformer<TwoPlayersTransformContext> {
+
+    /**
+     * @param formatComponent the component to check
+     * @return false if transforming the component won't change it for any pair of players
+     */
+    public abstract boolean hasPlaceholders(@NotNull Component formatComponent);
+
 }
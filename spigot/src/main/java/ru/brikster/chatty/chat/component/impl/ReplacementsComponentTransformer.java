@@ -1,59 +1,143 @@
 package ru.brikster.chatty.chat.component.impl;
 
-import lombok.RequiredArgsConstructor;
+import lombok.Value;
 import net.kyori.adventure.text.Component;
+import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import ru.brikster.chatty.Constants;
 import ru.brikster.chatty.chat.component.context.SinglePlayerTransformContext;
 import ru.brikster.chatty.config.file.ReplacementsConfig;
 import ru.brikster.chatty.convert.component.ComponentStringConverter;
 import ru.brikster.chatty.util.AdventureUtil;
+import ru.brikster.chatty.util.ComponentReplacer;
+import ru.brikster.chatty.util.ComponentReplacer.NestedReplacement;
+import ru.brikster.chatty.util.GraphUtil;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
-@RequiredArgsConstructor
 public final class ReplacementsComponentTransformer implements PlaceholdersComponentTransformer {
 
-    private final ReplacementsConfig replacementsConfig;
+    // Placeholders, that are resolved by ReplacementsStringTransformer for the player
+    private static final Pattern PLAYER_DEPENDENT_PATTERN = Pattern.compile("%[^%]+%|\\{player}");
+
+    private static final String NESTED_REPLACEMENT_PREFIX = "{r_";
+
     private final ComponentStringConverter componentStringConverter;
     private final ReplacementsStringTransformer replacementsStringTransformer;
-    private final Set<String> cycledReplacements;
+
+    // Replacements without player-dependent placeholders (including nested ones) are expanded once
+    private final Map<String, ExpandedReplacement> staticReplacements = new HashMap<>();
+    private final Map<String, String> dynamicReplacements = new HashMap<>();
+
+    // Replacer without player, that is shared while there are no dynamic replacements
+    private final ComponentReplacer staticReplacer;
+
+    @Value
+    private static class ExpandedReplacement {
+        NestedReplacement component;
+        String string;
+    }
+
+    public ReplacementsComponentTransformer(ReplacementsConfig replacementsConfig,
+                                            ComponentStringConverter componentStringConverter,
+                                            ReplacementsStringTransformer replacementsStringTransformer,
+                                            Set<String> cycledReplacements) {
+        this.componentStringConverter = componentStringConverter;
+        this.replacementsStringTransformer = replacementsStringTransformer;
+
+        this.staticReplacer = createReplacer(null);
+
+        // Nested replacements go first, so they are already expanded when containing replacement is processed
+        for (String key : GraphUtil.sortReplacementsTopologically(replacementsConfig, cycledReplacements)) {
+            String value = replacementsConfig.getReplacements().get(key);
+            boolean dynamic = PLAYER_DEPENDENT_PATTERN.matcher(value).find()
+                    || GraphUtil.findReplacementKeys(value).stream().anyMatch(dynamicReplacements::containsKey);
+            if (dynamic) {
+                dynamicReplacements.put(key, value);
+            } else {
+                staticReplacements.put(key, new ExpandedReplacement(
+                        staticReplacer.nest(componentStringConverter.stringToComponent(value + " ")),
+                        expandString(value, null)));
+            }
+        }
+    }
 
     @Override
     public @NotNull Component transform(@NotNull Component formatComponent, @NotNull SinglePlayerTransformContext context) {
-        Component componentWithReplacements = formatComponent;
-
-        // TODO optimize deep replacement
-
-        int[] matches = new int[1];
-        do {
-            matches[0] = 0;
-            componentWithReplacements = AdventureUtil.replaceWithEndingSpace(componentWithReplacements, Constants.REPLACEMENTS_PATTERN, matchedString -> {
-                String result = replace(matchedString, context);
-                Component component = componentStringConverter.stringToComponent(result + " ");
-                if (result != null) {
-                    matches[0]++;
-                    return component;
-                }
-                return null;
-            }, matchedString -> {
-                String result = replace(matchedString, context);
-                if (result != null) {
-                    matches[0]++;
-                    return result;
-                }
-                return null;
-            });
-        } while (matches[0] > 0);
-
-        return componentWithReplacements;
-    }
-
-    private String replace(String matchedString, SinglePlayerTransformContext context) {
-        String replacementKey = matchedString.substring(3, matchedString.length() - 1);
-        if (cycledReplacements.contains(replacementKey)) return null;
-        String replacementText = replacementsConfig.getReplacements().get(replacementKey);
-        return replacementsStringTransformer.transform(context.getPlayer(), replacementText);
+        if (!AdventureUtil.containsMatch(formatComponent, Constants.REPLACEMENTS_PATTERN)) {
+            return formatComponent;
+        }
+
+        ComponentReplacer replacer = dynamicReplacements.isEmpty()
+                ? staticReplacer
+                : createReplacer(context.getPlayer());
+        return replacer.replaceWithEndingSpace(formatComponent);
+    }
+
+    private ComponentReplacer createReplacer(@Nullable OfflinePlayer player) {
+        ComponentReplacer[] replacer = new ComponentReplacer[1];
+        replacer[0] = ComponentReplacer.builder()
+                .nestedBinding(Constants.REPLACEMENTS_PATTERN,
+                        matchedString -> resolveComponent(getReplacementKey(matchedString), player, replacer[0]),
+                        matchedString -> resolveString(getReplacementKey(matchedString), player))
+                .build();
+        return replacer[0];
+    }
+
+    private @Nullable NestedReplacement resolveComponent(String replacementKey,
+                                                         @Nullable OfflinePlayer player,
+                                                         ComponentReplacer replacer) {
+        ExpandedReplacement expandedReplacement = staticReplacements.get(replacementKey);
+        if (expandedReplacement != null) {
+            return expandedReplacement.getComponent();
+        }
+
+        String replacementText = dynamicReplacements.get(replacementKey);
+        if (replacementText == null) {
+            return null;
+        }
+
+        String transformedText = replacementsStringTransformer.transform(player, replacementText);
+        return replacer.nest(componentStringConverter.stringToComponent(transformedText + " "));
+    }
+
+    private @Nullable String resolveString(String replacementKey, @Nullable OfflinePlayer player) {
+        ExpandedReplacement expandedReplacement = staticReplacements.get(replacementKey);
+        if (expandedReplacement != null) {
+            return expandedReplacement.getString();
+        }
+
+        String replacementText = dynamicReplacements.get(replacementKey);
+        if (replacementText == null) {
+            return null;
+        }
+
+        return expandString(replacementsStringTransformer.transform(player, replacementText), player);
+    }
+
+    private String expandString(String replacementText, @Nullable OfflinePlayer player) {
+        if (!replacementText.contains(NESTED_REPLACEMENT_PREFIX)) {
+            return replacementText;
+        }
+
+        Matcher matcher = Constants.REPLACEMENTS_PATTERN.matcher(replacementText);
+        StringBuilder builder = new StringBuilder();
+        while (matcher.find()) {
+            String replacement = resolveString(getReplacementKey(matcher.group()), player);
+            matcher.appendReplacement(builder, Matcher.quoteReplacement(replacement == null ? matcher.group() : replacement));
+        }
+        matcher.appendTail(builder);
+
+        return builder.toString();
+    }
+
+    private static String getReplacementKey(String matchedString) {
+        return matchedString.substring(3, matchedString.length() - 1);
     }
 
 }
@@ -15,4 +15,9 @@ public final class DummyRelationalPlaceholdersComponentTransformer extends Relat
         return formatComponent;
     }
 
+    @Override
+    public boolean hasPlaceholders(@NotNull Component formatComponent) {
+        return false;
+    }
+
 }
\ No newline at end of file
@@ -1,12 +1,12 @@
 package ru.brikster.chatty.chat.component.impl.papi;
 
 import lombok.RequiredArgsConstructor;
-import me.clip.placeholderapi.PlaceholderAPI;
 import net.kyori.adventure.text.Component;
 import org.jetbrains.annotations.NotNull;
 import ru.brikster.chatty.chat.component.context.SinglePlayerTransformContext;
 import ru.brikster.chatty.chat.component.impl.PlaceholdersComponentTransformer;
 import ru.brikster.chatty.convert.component.ComponentStringConverter;
+import ru.brikster.chatty.papi.PlaceholderApiSnapshotService;
 import ru.brikster.chatty.util.AdventureUtil;
 
 import java.util.function.Function;
@@ -16,6 +16,7 @@ import java.util.regex.Pattern;
 public abstract class AbstractPlaceholderApiComponentTransformer implements PlaceholdersComponentTransformer {
 
     private final ComponentStringConverter componentStringConverter;
+    private final PlaceholderApiSnapshotService snapshotService;
     private final Pattern placeholderPattern;
     private final Function<String, String> matchedStringTransformFunction;
 
@@ -29,7 +30,7 @@ public abstract class AbstractPlaceholderApiComponentTransformer implements Plac
 
     private String replace(SinglePlayerTransformContext context, String matchedString) {
         String matchedTransformed = matchedStringTransformFunction.apply(matchedString);
-        String matchedWithPlaceholders = PlaceholderAPI.setPlaceholders(context.getPlayer(), matchedTransformed);
+        String matchedWithPlaceholders = snapshotService.setPlaceholders(context.getPlayer(), matchedTransformed);
         if (matchedWithPlaceholders.equals(matchedString)) {
             return null;
         } else {
@@ -1,6 +1,7 @@
 package ru.brikster.chatty.chat.component.impl.papi;
 
 import ru.brikster.chatty.convert.component.ComponentStringConverter;
+import ru.brikster.chatty.papi.PlaceholderApiSnapshotService;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -11,8 +12,9 @@ import java.util.regex.Pattern;
 public final class CommonChatPlaceholderApiComponentTransformer extends AbstractPlaceholderApiComponentTransformer {
 
     @Inject
-    public CommonChatPlaceholderApiComponentTransformer(ComponentStringConverter componentStringConverter) {
-        super(componentStringConverter, Pattern.compile("%([^%]+)%"), Function.identity());
+    public CommonChatPlaceholderApiComponentTransformer(ComponentStringConverter componentStringConverter,
+                                                        PlaceholderApiSnapshotService snapshotService) {
+        super(componentStringConverter, snapshotService, Pattern.compile("%([^%]+)%"), Function.identity());
     }
 
 }
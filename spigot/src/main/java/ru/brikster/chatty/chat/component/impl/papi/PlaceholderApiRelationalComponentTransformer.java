@@ -7,6 +7,7 @@ import org.jetbrains.annotations.NotNull;
 import ru.brikster.chatty.chat.component.context.TwoPlayersTransformContext;
 import ru.brikster.chatty.chat.component.impl.RelationalPlaceholdersComponentTransformer;
 import ru.brikster.chatty.convert.component.ComponentStringConverter;
+import ru.brikster.chatty.papi.RelationalPlaceholderCache;
 import ru.brikster.chatty.util.AdventureUtil;
 
 import javax.inject.Singleton;
@@ -19,6 +20,7 @@ public final class PlaceholderApiRelationalComponentTransformer extends Relation
     private static final Pattern RELATIONAL_PLACEHOLDER_PATTERN = Pattern.compile("%(rel_)([^%]+)%");
 
     private final ComponentStringConverter componentStringConverter;
+    private final RelationalPlaceholderCache relationalPlaceholderCache;
 
     @Override
     public @NotNull Component transform(@NotNull Component formatComponent, @NotNull TwoPlayersTransformContext context) {
@@ -28,8 +30,14 @@ public final class PlaceholderApiRelationalComponentTransformer extends Relation
         }, matchedString -> replace(context, matchedString));
     }
 
+    @Override
+    public boolean hasPlaceholders(@NotNull Component formatComponent) {
+        return AdventureUtil.containsMatch(formatComponent, RELATIONAL_PLACEHOLDER_PATTERN);
+    }
+
     private String replace(TwoPlayersTransformContext context, String matchedString) {
-        String matchedWithPlaceholders = PlaceholderAPI.setRelationalPlaceholders(context.getOne(), context.getTwo(), matchedString);
+        String matchedWithPlaceholders = relationalPlaceholderCache.get(context.getOne(), context.getTwo(), matchedString,
+                () -> PlaceholderAPI.setRelationalPlaceholders(context.getOne(), context.getTwo(), matchedString));
         if (matchedWithPlaceholders.equals(matchedString)) {
             return null;
         } else {
@@ -1,15 +1,19 @@
 package ru.brikster.chatty.chat.component.impl.papi;
 
-import me.clip.placeholderapi.PlaceholderAPI;
+import lombok.RequiredArgsConstructor;
 import org.bukkit.OfflinePlayer;
 import org.jetbrains.annotations.NotNull;
 import ru.brikster.chatty.chat.component.impl.ReplacementsStringTransformer;
+import ru.brikster.chatty.papi.PlaceholderApiSnapshotService;
 
+@RequiredArgsConstructor
 public final class PlaceholderApiReplacementsStringTransformer implements ReplacementsStringTransformer {
 
+    private final PlaceholderApiSnapshotService snapshotService;
+
     @Override
     public String transform(@NotNull OfflinePlayer sender, @NotNull String message) {
-        return PlaceholderAPI.setPlaceholders(sender, message);
+        return snapshotService.setPlaceholders(sender, message);
     }
 
 }
@@ -2,6 +2,7 @@ package ru.brikster.chatty.chat.component.impl.pm.placeholders;
 
 import ru.brikster.chatty.chat.component.impl.papi.AbstractPlaceholderApiComponentTransformer;
 import ru.brikster.chatty.convert.component.ComponentStringConverter;
+import ru.brikster.chatty.papi.PlaceholderApiSnapshotService;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -13,8 +14,9 @@ public final class PmToPlaceholderApiComponentTransformer extends AbstractPlaceh
     private static final String FROM_PREFIX = Pattern.quote("%to:");
 
     @Inject
-    public PmToPlaceholderApiComponentTransformer(ComponentStringConverter componentStringConverter) {
-        super(componentStringConverter, Pattern.compile("%to:([^%]+)%"), matchedString ->
+    public PmToPlaceholderApiComponentTransformer(ComponentStringConverter componentStringConverter,
+                                                  PlaceholderApiSnapshotService snapshotService) {
+        super(componentStringConverter, snapshotService, Pattern.compile("%to:([^%]+)%"), matchedString ->
                 matchedString.replaceFirst(FROM_PREFIX, "%"));
     }
 
@@ -1,8 +1,7 @@
 package ru.brikster.chatty.chat.component.impl.pm.prefix;
 
 import ru.brikster.chatty.chat.component.impl.prefix.AbstractPrefixComponentTransformer;
-import ru.brikster.chatty.convert.component.ComponentStringConverter;
-import ru.brikster.chatty.prefix.PrefixProvider;
+import ru.brikster.chatty.prefix.PrefixCache;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -12,9 +11,8 @@ import java.util.regex.Pattern;
 public final class PmToPrefixComponentTransformer extends AbstractPrefixComponentTransformer {
 
     @Inject
-    public PmToPrefixComponentTransformer(PrefixProvider prefixProvider,
-                                          ComponentStringConverter componentStringConverter) {
-        super(prefixProvider, componentStringConverter,
+    public PmToPrefixComponentTransformer(PrefixCache prefixCache) {
+        super(prefixCache,
                 Pattern.compile("\\{to-prefix}|\\{to-suffix}"),
                 "{to-prefix}", "{to-suffix}");
     }
@@ -4,28 +4,24 @@ import net.kyori.adventure.text.Component;
 import org.jetbrains.annotations.NotNull;
 import ru.brikster.chatty.chat.component.ComponentTransformer;
 import ru.brikster.chatty.chat.component.context.SinglePlayerTransformContext;
-import ru.brikster.chatty.convert.component.ComponentStringConverter;
-import ru.brikster.chatty.prefix.PrefixProvider;
+import ru.brikster.chatty.prefix.PrefixCache;
+import ru.brikster.chatty.prefix.PrefixCache.CachedPrefix;
 import ru.brikster.chatty.util.AdventureUtil;
-import ru.brikster.chatty.util.ObjectUtil;
 
 import java.util.regex.Pattern;
 
 public abstract class AbstractPrefixComponentTransformer implements ComponentTransformer<SinglePlayerTransformContext> {
 
-    private final PrefixProvider prefixProvider;
-    private final ComponentStringConverter componentStringConverter;
+    private final PrefixCache prefixCache;
     private final Pattern prefixOrSuffixPattern;
     private final String prefixPlaceholder;
     private final String suffixPlaceholder;
 
-    public AbstractPrefixComponentTransformer(PrefixProvider prefixProvider,
-                                              ComponentStringConverter componentStringConverter,
+    public AbstractPrefixComponentTransformer(PrefixCache prefixCache,
                                               Pattern prefixOrSuffixPattern,
                                               String prefixPlaceholder,
                                               String suffixPlaceholder) {
-        this.prefixProvider = prefixProvider;
-        this.componentStringConverter = componentStringConverter;
+        this.prefixCache = prefixCache;
         this.prefixOrSuffixPattern = prefixOrSuffixPattern;
         this.prefixPlaceholder = prefixPlaceholder;
         this.suffixPlaceholder = suffixPlaceholder;
@@ -33,19 +29,17 @@ public abstract class AbstractPrefixComponentTransformer implements ComponentTra
 
     @Override
     public @NotNull Component transform(@NotNull Component formatComponent, @NotNull SinglePlayerTransformContext context) {
-        String prefix = prefixProvider.getPrefix(context.getPlayer());
-        String suffix = prefixProvider.getSuffix(context.getPlayer());
-        return AdventureUtil.replaceWithEndingSpace(formatComponent, prefixOrSuffixPattern, matchedString -> {
-            String result = replace(prefix, suffix, matchedString);
-            return componentStringConverter.stringToComponent(result + " ");
-        }, matchedString -> replace(prefix, suffix, matchedString));
+        CachedPrefix cachedPrefix = prefixCache.get(context.getPlayer());
+        return AdventureUtil.replaceWithEndingSpace(formatComponent, prefixOrSuffixPattern,
+                matchedString -> isPrefix(matchedString) ? cachedPrefix.getPrefixComponent() : cachedPrefix.getSuffixComponent(),
+                matchedString -> isPrefix(matchedString) ? cachedPrefix.getPrefix() : cachedPrefix.getSuffix());
     }
 
-    private String replace(String prefix, String suffix, String matchedString) {
+    private boolean isPrefix(String matchedString) {
         if (matchedString.equals(prefixPlaceholder)) {
-            return ObjectUtil.requireNonNullElse(prefix, "");
+            return true;
         } else if (matchedString.equals(suffixPlaceholder)) {
-            return ObjectUtil.requireNonNullElse(suffix, "");
+            return false;
         } else {
             throw new IllegalStateException("Illegal string matched: " + matchedString);
         }
@@ -1,7 +1,6 @@
 package ru.brikster.chatty.chat.component.impl.prefix;
 
-import ru.brikster.chatty.convert.component.ComponentStringConverter;
-import ru.brikster.chatty.prefix.PrefixProvider;
+import ru.brikster.chatty.prefix.PrefixCache;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -11,9 +10,8 @@ import java.util.regex.Pattern;
 public final class PrefixComponentTransformer extends AbstractPrefixComponentTransformer {
 
     @Inject
-    public PrefixComponentTransformer(PrefixProvider prefixProvider,
-                                      ComponentStringConverter componentStringConverter) {
-        super(prefixProvider, componentStringConverter,
+    public PrefixComponentTransformer(PrefixCache prefixCache) {
+        super(prefixCache,
                 Pattern.compile("\\{prefix}|\\{suffix}"),
                 "{prefix}", "{suffix}");
     }
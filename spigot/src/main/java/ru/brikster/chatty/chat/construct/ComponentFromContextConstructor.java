@@ -7,4 +7,10 @@ public interface ComponentFromContextConstructor {
 
     Component construct(MessageContext<Component> context);
 
+    /**
+     * Compiles format and message format once, so constructing messages with them
+     * doesn't search placeholders and doesn't convert message format again
+     */
+    void precompile(Component format, String messageFormat);
+
 }
@@ -1,16 +1,20 @@
 package ru.brikster.chatty.chat.construct;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.minimessage.MiniMessage;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 import ru.brikster.chatty.api.chat.message.context.MessageContext;
 import ru.brikster.chatty.convert.component.ComponentStringConverter;
 import ru.brikster.chatty.convert.message.LegacyToMiniMessageConverter;
-import ru.brikster.chatty.util.AdventureUtil;
+import ru.brikster.chatty.player.PlayerSessionRegistry;
+import ru.brikster.chatty.util.ComponentTemplate;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.regex.Pattern;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Singleton
 public final class ComponentFromContextConstructorImpl implements ComponentFromContextConstructor {
@@ -21,37 +25,65 @@ public final class ComponentFromContextConstructorImpl implements ComponentFromC
     @Inject
     private LegacyToMiniMessageConverter legacyToMiniMessageConverter;
 
-    private static final Pattern PLAYER_OR_MESSAGE_PLACEHOLDER = Pattern.compile("\\{player}|\\{message}");
+    @Inject
+    private PlayerSessionRegistry sessions;
 
     private static final String PLAYER_FORMAT_PLACEHOLDER = "{player}";
     private static final String MESSAGE_FORMAT_PLACEHOLDER = "{message}";
 
+    private static final List<String> FORMAT_SLOTS = List.of(PLAYER_FORMAT_PLACEHOLDER, MESSAGE_FORMAT_PLACEHOLDER);
+
+    // Keys are compared by identity, so formats from configs hit the cache, unless strategies have rewritten them
+    private final Cache<Component, ComponentTemplate> formatTemplates = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+
+    private final Map<String, MessageFormatTemplate> messageFormatTemplates = new ConcurrentHashMap<>();
+
     @Override
     public Component construct(MessageContext<Component> context) {
-        String messageWithMmFormat = componentStringConverter.componentToString(context.getMessage());
-        String convertedMessageFormat = legacyToMiniMessageConverter.convert(context.getMessageFormat());
-        String formattedMessage = convertedMessageFormat
-                .replace("{original-message}", messageWithMmFormat);
-        Component formattedMessageComponent = MiniMessage.miniMessage().deserialize(formattedMessage);
-
-        return AdventureUtil.replaceWithEndingSpace(context.getFormat(),
-                PLAYER_OR_MESSAGE_PLACEHOLDER,
-                matchedString -> {
-                    if (matchedString.equals(PLAYER_FORMAT_PLACEHOLDER)) {
-                        return Component.text(context.getSender().getDisplayName() + " ");
-                    } else if (matchedString.equals(MESSAGE_FORMAT_PLACEHOLDER)) {
+        Component formattedMessageComponent = getMessageFormatTemplate(context.getMessageFormat())
+                .render(context.getMessage(), componentStringConverter);
+        String displayName = sessions.displayName(context.getSender());
+
+        return getFormatTemplate(context.getFormat()).render(
+                slot -> {
+                    if (slot.equals(PLAYER_FORMAT_PLACEHOLDER)) {
+                        return Component.text(displayName + " ");
+                    } else if (slot.equals(MESSAGE_FORMAT_PLACEHOLDER)) {
                         return formattedMessageComponent.append(Component.text(" "));
                     }
-                    throw new IllegalStateException("Cannot replace player or message placeholder: " + matchedString);
+                    throw new IllegalStateException("Cannot replace player or message placeholder: " + slot);
                 },
-                matchedString -> {
-                    if (matchedString.equals(PLAYER_FORMAT_PLACEHOLDER)) {
-                        return context.getSender().getDisplayName() + " ";
-                    } else if (matchedString.equals(MESSAGE_FORMAT_PLACEHOLDER)) {
+                slot -> {
+                    if (slot.equals(PLAYER_FORMAT_PLACEHOLDER)) {
+                        return displayName + " ";
+                    } else if (slot.equals(MESSAGE_FORMAT_PLACEHOLDER)) {
                         return PlainTextComponentSerializer.plainText().serialize(formattedMessageComponent) + " ";
                     }
-                    throw new IllegalStateException("Cannot replace player or message placeholder: " + matchedString);
+                    throw new IllegalStateException("Cannot replace player or message placeholder: " + slot);
                 });
     }
 
+    @Override
+    public void precompile(Component format, String messageFormat) {
+        formatTemplates.put(format, ComponentTemplate.compile(format, FORMAT_SLOTS));
+        getMessageFormatTemplate(messageFormat);
+    }
+
+    private ComponentTemplate getFormatTemplate(Component format) {
+        ComponentTemplate template = formatTemplates.getIfPresent(format);
+        if (template != null) {
+            return template;
+        }
+
+        // Formats with prefixes and placeholders are new components for every message
+        return ComponentTemplate.compile(format, FORMAT_SLOTS);
+    }
+
+    private MessageFormatTemplate getMessageFormatTemplate(String messageFormat) {
+        return messageFormatTemplates.computeIfAbsent(messageFormat,
+                format -> MessageFormatTemplate.compile(format, legacyToMiniMessageConverter));
+    }
+
 }
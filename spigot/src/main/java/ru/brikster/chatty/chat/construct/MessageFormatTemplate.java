@@ -0,0 +1,126 @@
+package ru.brikster.chatty.chat.construct;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.brikster.chatty.convert.component.ComponentStringConverter;
+import ru.brikster.chatty.convert.message.MessageConverter;
+
+import java.util.regex.Pattern;
+
+/**
+ * Message format (like "&e{original-message}"), that is converted to MiniMessage once.
+ * If message format only styles the message, the style is resolved once too,
+ * so rendering doesn't need MiniMessage serialization and parsing
+ */
+final class MessageFormatTemplate {
+
+    private static final String ORIGINAL_MESSAGE_PLACEHOLDER = "{original-message}";
+
+    // Tags, that change every character of the message differently, cannot be replaced with one style
+    private static final Pattern CHARACTER_MODIFYING_TAGS_PATTERN = Pattern.compile("(?i)<(gradient|rainbow|transition|pride)");
+
+    private static final String STYLE_PROBE = "\uE000";
+
+    private final String convertedMessageFormat;
+    private final @Nullable Style messageStyle;
+
+    private MessageFormatTemplate(String convertedMessageFormat, @Nullable Style messageStyle) {
+        this.convertedMessageFormat = convertedMessageFormat;
+        this.messageStyle = messageStyle;
+    }
+
+    static @NotNull MessageFormatTemplate compile(@NotNull String messageFormat, @NotNull MessageConverter legacyConverter) {
+        String convertedMessageFormat = legacyConverter.convert(messageFormat);
+        return new MessageFormatTemplate(convertedMessageFormat, resolveMessageStyle(convertedMessageFormat));
+    }
+
+    @NotNull Component render(@NotNull Component message, @NotNull ComponentStringConverter componentStringConverter) {
+        if (messageStyle != null && isMiniMessageStable(message)) {
+            // Compacted like MiniMessage does, because components appended
+            // to the result inherit style of the compacted root
+            return messageStyle.isEmpty()
+                    ? message
+                    : Component.text().style(messageStyle).append(message).build().compact();
+        }
+
+        String messageWithMmFormat = componentStringConverter.componentToString(message);
+        return MiniMessage.miniMessage().deserialize(convertedMessageFormat
+                .replace(ORIGINAL_MESSAGE_PLACEHOLDER, messageWithMmFormat));
+    }
+
+    /**
+     * @return style of the message, or null if message format isn't just styling tags followed by the placeholder
+     */
+    private static @Nullable Style resolveMessageStyle(String convertedMessageFormat) {
+        int placeholderIndex = convertedMessageFormat.indexOf(ORIGINAL_MESSAGE_PLACEHOLDER);
+        if (placeholderIndex == -1
+                || placeholderIndex + ORIGINAL_MESSAGE_PLACEHOLDER.length() != convertedMessageFormat.length()
+                || CHARACTER_MODIFYING_TAGS_PATTERN.matcher(convertedMessageFormat).find()) {
+            return null;
+        }
+
+        if (placeholderIndex == 0) {
+            return Style.empty();
+        }
+
+        Component probe = MiniMessage.miniMessage().deserialize(
+                convertedMessageFormat.substring(0, placeholderIndex) + STYLE_PROBE);
+
+        if (!PlainTextComponentSerializer.plainText().serialize(probe).equals(STYLE_PROBE)) {
+            return null;
+        }
+
+        return findProbeStyle(probe, Style.empty());
+    }
+
+    private static @Nullable Style findProbeStyle(Component component, Style parentStyle) {
+        Style style = parentStyle.merge(component.style());
+        if (component instanceof TextComponent && ((TextComponent) component).content().contains(STYLE_PROBE)) {
+            return style;
+        }
+
+        for (Component child : component.children()) {
+            Style childStyle = findProbeStyle(child, style);
+            if (childStyle != null) {
+                return childStyle;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks if MiniMessage serialization and deserialization of component keeps the same texts with the same styles.
+     * Non-text components and styled empty texts may be changed or dropped by MiniMessage
+     */
+    private static boolean isMiniMessageStable(Component component) {
+        if (!(component instanceof TextComponent)) {
+            return false;
+        }
+
+        if (((TextComponent) component).content().isEmpty() && !component.style().isEmpty()) {
+            return false;
+        }
+
+        HoverEvent<?> hoverEvent = component.hoverEvent();
+        if (hoverEvent != null && (hoverEvent.action() != HoverEvent.Action.SHOW_TEXT
+                || !isMiniMessageStable((Component) hoverEvent.value()))) {
+            return false;
+        }
+
+        for (Component child : component.children()) {
+            if (!isMiniMessageStable(child)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
@@ -1,5 +1,6 @@
 package ru.brikster.chatty.chat.executor;
 
+import lombok.Value;
 import net.kyori.adventure.identity.Identity;
 import net.kyori.adventure.platform.bukkit.BukkitAudiences;
 import net.kyori.adventure.text.Component;
@@ -28,13 +29,14 @@ import ru.brikster.chatty.chat.selection.ChatSelector;
 import ru.brikster.chatty.chat.style.ChatStylePlayerGrouper;
 import ru.brikster.chatty.config.file.MessagesConfig;
 import ru.brikster.chatty.config.file.SettingsConfig;
+import ru.brikster.chatty.player.PlayerSessionRegistry;
 import ru.brikster.chatty.proxy.ProxyService;
+import ru.brikster.chatty.timings.PipelineTimings;
 import ru.brikster.chatty.util.EventUtil;
 
 import javax.inject.Inject;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -43,7 +45,7 @@ import java.util.stream.Collectors;
 
 public final class LegacyEventExecutor implements Listener, EventExecutor {
 
-    private final Map<Integer, MessageContext<String>> pendingMessages = new ConcurrentHashMap<>();
+    private final Map<Integer, PendingMessage> pendingMessages = new ConcurrentHashMap<>();
 
     @Inject private ChatSelector selector;
     @Inject private ComponentFromContextConstructor componentFromContextConstructor;
@@ -55,6 +57,14 @@ public final class LegacyEventExecutor implements Listener, EventExecutor {
     @Inject private Logger logger;
     @Inject private ProxyService proxyService;
     @Inject private ChatStylePlayerGrouper chatStylePlayerGrouper;
+    @Inject private PipelineTimings timings;
+    @Inject private PlayerSessionRegistry sessions;
+
+    @Value
+    private static class PendingMessage {
+        MessageContext<String> earlyContext;
+        long earlyNanos;
+    }
 
     @Override
     public void execute(@NotNull Listener listener, @NotNull Event event) {
@@ -69,6 +79,7 @@ public final class LegacyEventExecutor implements Listener, EventExecutor {
 
         try {
             long millisStart = System.currentTimeMillis();
+            long nanosStart = System.nanoTime();
 
             MessageContext<String> unhandledEarlyContext = createEarlyContext(event);
             MessageContext<String> earlyContext = processor.handle(unhandledEarlyContext, Stage.EARLY).getNewContext();
@@ -80,7 +91,7 @@ public final class LegacyEventExecutor implements Listener, EventExecutor {
                 event.setMessage(earlyContext.getMessage());
             }
 
-            pendingMessages.put(eventHashcode, earlyContext);
+            pendingMessages.put(eventHashcode, new PendingMessage(earlyContext, System.nanoTime() - nanosStart));
 
             long millisEnd = System.currentTimeMillis();
             long millisDelta = millisEnd - millisStart;
@@ -112,9 +123,11 @@ public final class LegacyEventExecutor implements Listener, EventExecutor {
             event.setCancelled(true);
         } else {
             if (settings.isRespectForeignRecipients()) {
-                Predicate<Player> playerPredicate = chat.getRecipientPredicate(event.getPlayer());
-                recipients = event.getRecipients().stream()
-                        .filter(playerPredicate)
+                // Chat recipients come from maintained sets (or players in range),
+                // so intersecting them is cheaper than checking every foreign recipient
+                Set<Player> foreignRecipients = event.getRecipients();
+                recipients = chat.calculateRecipients(event.getPlayer()).stream()
+                        .filter(foreignRecipients::contains)
                         .collect(Collectors.toList());
             } else {
                 recipients = new ArrayList<>(chat.calculateRecipients(event.getPlayer()));
@@ -137,8 +150,8 @@ public final class LegacyEventExecutor implements Listener, EventExecutor {
     public void handleFinishedEarlyContextEvent(AsyncPlayerChatEvent event) {
         int eventHashcode = System.identityHashCode(event);
 
-        MessageContext<String> earlyContext = pendingMessages.remove(eventHashcode);
-        if (earlyContext == null) {
+        PendingMessage pendingMessage = pendingMessages.remove(eventHashcode);
+        if (pendingMessage == null) {
             if (settings.isDebug()) {
                 logger.log(Level.WARNING, "Cannot handle unprocessed chat event from \"{0}\" with format \"{1}\" and message \"{2}\"",
                         new Object[]{event.getPlayer().getName(), event.getFormat(), event.getMessage()});
@@ -146,6 +159,7 @@ public final class LegacyEventExecutor implements Listener, EventExecutor {
             return;
         }
 
+        MessageContext<String> earlyContext = pendingMessage.getEarlyContext();
         if (earlyContext.isCancelled()) {
             event.setCancelled(true);
         }
@@ -161,6 +175,8 @@ public final class LegacyEventExecutor implements Listener, EventExecutor {
 
         try {
             long millisStart = System.currentTimeMillis();
+            long nanosStart = System.nanoTime();
+            long deliveryNanos = 0;
 
             MessageContext<Component> earlyComponentContext = intermediateMessageTransformer.handle(earlyContext).getNewContext();
 
@@ -216,13 +232,13 @@ public final class LegacyEventExecutor implements Listener, EventExecutor {
                 groupContext.getMetadata().put("all_recipients", middleContext.getRecipients());
 
                 MessageContext<Component> lateContext = processor.handle(groupContext, Stage.LATE).getNewContext();
-                sendProcessedMessage(lateContext, middleContext.getRecipients());
+                deliveryNanos += sendProcessedMessage(lateContext, middleContext.getRecipients());
 
                 // Format console message without style
                 if (groupIndex == 0) {
                     String stringFormat = LegacyComponentSerializer.legacySection().serialize(lateContext.getFormat());
                     String stringMessage = LegacyComponentSerializer.legacySection().serialize(lateContext.getMessage());
-                    stringFormat = stringFormat.replaceFirst(Pattern.quote("{player}"), Matcher.quoteReplacement(lateContext.getSender().getDisplayName()));
+                    stringFormat = stringFormat.replaceFirst(Pattern.quote("{player}"), Matcher.quoteReplacement(sessions.displayName(lateContext.getSender())));
                     stringFormat = stringFormat.replaceFirst(Pattern.quote("{message}"), Matcher.quoteReplacement(stringMessage));
                     stringFormat = stringFormat.replace("%", "%%");
                     event.setFormat(stringFormat);
@@ -234,6 +250,9 @@ public final class LegacyEventExecutor implements Listener, EventExecutor {
                 sendNobodyHeardYou(event, middleContext);
             }
 
+            timings.recordDelivery(deliveryNanos);
+            timings.recordChat(middleContext.getChat().getId(), pendingMessage.getEarlyNanos() + System.nanoTime() - nanosStart);
+
             long millisEnd = System.currentTimeMillis();
             long millisDelta = millisEnd - millisStart;
 
@@ -341,26 +360,44 @@ public final class LegacyEventExecutor implements Listener, EventExecutor {
         return contexts;
     }
 
-    private void sendProcessedMessage(MessageContext<Component> lateContext,
+    /**
+     * @return nanoseconds spent for sending rendered messages to recipients
+     */
+    private long sendProcessedMessage(MessageContext<Component> lateContext,
                                       Collection<? extends @NotNull Player> middleContextRecipients) {
         Identity senderIdentity = Identity.identity(lateContext.getSender().getUniqueId());
-        for (Player recipient : lateContext.getRecipients()) {
+        long deliveryNanos = 0;
+        lateContext.getMetadata().put("all_recipients", middleContextRecipients);
+
+        for (List<Player> renderGroup : processor.groupByIdenticalOutput(lateContext, Stage.POST)) {
+            // Every recipient of the group gets the same output, so it's rendered for the first one
+            Player groupTarget = renderGroup.get(0);
+
             MessageContext<Component> personalLateContext = new MessageContextImpl<>(lateContext);
-            personalLateContext.getMetadata().put("all_recipients", middleContextRecipients);
             personalLateContext.setMessage(lateContext.getMessage());
-            personalLateContext.setRecipients(Collections.singletonList(recipient));
-            personalLateContext.setTarget(recipient);
+            personalLateContext.setRecipients(Collections.singletonList(groupTarget));
+            personalLateContext.setTarget(groupTarget);
 
             MessageContext<Component> postContext = processor.handle(personalLateContext, Stage.POST).getNewContext();
 
             Component message = componentFromContextConstructor.construct(postContext).compact();
-            if (settings.isSendIdentifiedMessages()) {
-                //noinspection deprecation
-                audiences.player(recipient).sendMessage(senderIdentity, message);
-            } else {
-                audiences.player(recipient).sendMessage(message);
+
+            long deliveryStartNanos = System.nanoTime();
+            for (Player recipient : renderGroup) {
+                if (settings.isSendIdentifiedMessages()) {
+                    //noinspection deprecation
+                    audiences.player(recipient).sendMessage(senderIdentity, message);
+                } else {
+                    audiences.player(recipient).sendMessage(message);
+                }
             }
+
+            deliveryNanos += System.nanoTime() - deliveryStartNanos;
+
+            timings.recordSavedPostRenders(renderGroup.size() - 1);
         }
+
+        return deliveryNanos;
     }
 
 }
@@ -7,13 +7,13 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import ru.brikster.chatty.api.chat.Chat;
 import ru.brikster.chatty.api.chat.message.context.MessageContext;
+import ru.brikster.chatty.api.chat.message.strategy.result.MessageTransformResult;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
 
 @RequiredArgsConstructor
-@AllArgsConstructor
 @ToString
 @Getter @Setter
 public final class MessageContextImpl<MessageT> implements MessageContext<MessageT> {
@@ -28,6 +28,31 @@ public final class MessageContextImpl<MessageT> implements MessageContext<Messag
     private MessageT message;
     private @Nullable Player target;
 
+    // Shared by all strategies, that don't change the context. Created on the first use
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private @Nullable MessageTransformResult<MessageT> unchangedResult;
+
+    public MessageContextImpl(@Nullable Chat chat,
+                              @Nullable Player sender,
+                              @NotNull Map<String, Object> metadata,
+                              boolean cancelled,
+                              @NotNull Component format,
+                              @NotNull String messageFormat,
+                              @NotNull Collection<? extends @NotNull Player> recipients,
+                              MessageT message,
+                              @Nullable Player target) {
+        this.chat = chat;
+        this.sender = sender;
+        this.metadata = metadata;
+        this.cancelled = cancelled;
+        this.format = format;
+        this.messageFormat = messageFormat;
+        this.recipients = recipients;
+        this.message = message;
+        this.target = target;
+    }
+
     public MessageContextImpl(MessageContext<?> context) {
         this.cancelled = context.isCancelled();
         this.format = context.getFormat();
@@ -39,4 +64,15 @@ public final class MessageContextImpl<MessageT> implements MessageContext<Messag
         this.target = context.getTarget();
     }
 
+    /**
+     * Internal cache of {@link ru.brikster.chatty.chat.message.transform.result.MessageTransformResultBuilder#unchanged(MessageContext)}
+     */
+    public @Nullable MessageTransformResult<MessageT> getCachedUnchangedResult() {
+        return unchangedResult;
+    }
+
+    public void setCachedUnchangedResult(@NotNull MessageTransformResult<MessageT> unchangedResult) {
+        this.unchangedResult = unchangedResult;
+    }
+
 }
@@ -26,6 +26,9 @@ public abstract class AbstractComponentTransformerStrategy<MessageT, TransformCo
     public @NotNull final MessageTransformResult<MessageT> handle(final MessageContext<MessageT> context) {
         TransformContextT transformContext = transformContextFunction.apply(context);
         Component newFormat = formatTransformer.transform(context.getFormat(), transformContext);
+        if (newFormat == context.getFormat()) {
+            return MessageTransformResultBuilder.unchanged(context);
+        }
         return MessageTransformResultBuilder.<MessageT>fromContext(context)
                 .withFormat(newFormat)
                 .build();
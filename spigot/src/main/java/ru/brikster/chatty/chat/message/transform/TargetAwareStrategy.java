@@ -0,0 +1,24 @@
+package ru.brikster.chatty.chat.message.transform;
+
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.brikster.chatty.api.chat.message.context.MessageContext;
+
+import java.util.function.Function;
+
+/**
+ * Personal (post-stage) strategy, that knows how its result depends on the message target.
+ * Recipients with equal render keys of all the stage strategies receive identical output,
+ * so the message is rendered only once for them.
+ * Strategies without this interface are treated as fully target-dependent.
+ */
+public interface TargetAwareStrategy {
+
+    /**
+     * @param context context of the message before the personal stage
+     * @return function that maps target to its render key, or null if result doesn't depend on target at all
+     */
+    @Nullable Function<@NotNull Player, @NotNull Object> getRenderKeyFunction(@NotNull MessageContext<?> context);
+
+}
@@ -4,14 +4,20 @@ import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.legacy.CharacterAndFormat;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import ru.brikster.chatty.permission.PermissionSnapshotService;
 import ru.brikster.chatty.util.CollectionUtil;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 @Singleton
 public final class PlayerDecorationsFormatter {
@@ -44,6 +50,30 @@ public final class PlayerDecorationsFormatter {
         put("reset", CharacterAndFormat.RESET);
     }};
 
+    // Every allowed format is a bit of the mask: colors, then decorations, then hex colors
+    private static final List<String> FORMAT_NODES = new ArrayList<>();
+    private static final List<CharacterAndFormat> FORMATS = new ArrayList<>();
+
+    static {
+        COLORS.forEach((name, format) -> {
+            FORMAT_NODES.add("chatty.decoration.color." + name);
+            FORMATS.add(format);
+        });
+        DECORATIONS.forEach((name, format) -> {
+            FORMAT_NODES.add("chatty.decoration." + name);
+            FORMATS.add(format);
+        });
+    }
+
+    private static final int COLORS_MASK = (1 << COLORS.size()) - 1;
+    private static final int HEX_MASK = 1 << FORMATS.size();
+
+    private static final Pattern HEX_PATTERN = Pattern.compile("&[xX](&[a-fA-F0-9]){6}");
+
+    public static final Set<String> PERMISSION_NODES = Set.copyOf(CollectionUtil.listOf(
+            Set.of("chatty.decoration", "chatty.decoration.color", "chatty.decoration.hex"),
+            FORMAT_NODES));
+
     private static final LegacyComponentSerializer FULL_SERIALIZER = LegacyComponentSerializer
             .builder()
             .character('&')
@@ -51,47 +81,77 @@ public final class PlayerDecorationsFormatter {
             .hexColors()
             .build();
 
+    @Inject private PermissionSnapshotService permissionSnapshots;
+
+    private final Map<Integer, LegacyComponentSerializer> serializersByMask = new ConcurrentHashMap<>();
+
     public @NotNull Component formatMessageWithDecorations(@NotNull CommandSender sender, @NotNull String message) {
-        if (sender.hasPermission("chatty.decoration")) {
+        if (hasPermission(sender, "chatty.decoration")) {
             return FULL_SERIALIZER.deserialize(message);
         }
 
-        var componentSerializerBuilder = LegacyComponentSerializer
-                .builder()
-                .character('&');
+        int mask = getFormatsMask(sender);
+        if ((mask & HEX_MASK) == 0) {
+            message = HEX_PATTERN.matcher(message).replaceAll("");
+        }
+
+        return serializersByMask
+                .computeIfAbsent(mask, PlayerDecorationsFormatter::createSerializer)
+                .deserialize(message);
+    }
 
-        List<CharacterAndFormat> formatList = new LinkedList<>();
+    private int getFormatsMask(CommandSender sender) {
+        int mask = 0;
 
-        if (sender.hasPermission("chatty.decoration.color")) {
-            formatList.addAll(COLORS.values());
+        if (hasPermission(sender, "chatty.decoration.color")) {
+            mask |= COLORS_MASK;
         } else {
-            for (var format : COLORS.entrySet()) {
-                if (sender.hasPermission("chatty.decoration.color." + format.getKey())) {
-                    formatList.add(format.getValue());
+            for (int i = 0; i < COLORS.size(); i++) {
+                if (hasPermission(sender, FORMAT_NODES.get(i))) {
+                    mask |= 1 << i;
                 }
             }
         }
 
-        for (var format : DECORATIONS.entrySet()) {
-            if (sender.hasPermission("chatty.decoration." + format.getKey())) {
-                formatList.add(format.getValue());
+        for (int i = COLORS.size(); i < FORMATS.size(); i++) {
+            if (hasPermission(sender, FORMAT_NODES.get(i))) {
+                mask |= 1 << i;
+            }
+        }
+
+        if (hasPermission(sender, "chatty.decoration.hex")) {
+            mask |= HEX_MASK;
+        }
+
+        return mask;
+    }
+
+    private static LegacyComponentSerializer createSerializer(int mask) {
+        List<CharacterAndFormat> formats = new ArrayList<>();
+        for (int i = 0; i < FORMATS.size(); i++) {
+            if ((mask & (1 << i)) != 0) {
+                formats.add(FORMATS.get(i));
             }
         }
 
-        String messageToDeserialize = message;
+        var builder = LegacyComponentSerializer
+                .builder()
+                .character('&')
+                .formats(formats);
 
-        if (!sender.hasPermission("chatty.decoration.hex")) {
-            componentSerializerBuilder.hexCharacter((char) 0);
-            messageToDeserialize = message.replaceAll("&[xX](&[a-fA-F0-9]){6}", "");
+        if ((mask & HEX_MASK) != 0) {
+            builder.hexColors();
         } else {
-            componentSerializerBuilder.hexColors();
+            builder.hexCharacter((char) 0);
         }
 
-        componentSerializerBuilder.formats(formatList);
+        return builder.build();
+    }
 
-        return componentSerializerBuilder
-                .build()
-                .deserialize(messageToDeserialize);
+    private boolean hasPermission(CommandSender sender, String node) {
+        return sender instanceof Player
+                ? permissionSnapshots.hasPermission((Player) sender, node)
+                : sender.hasPermission(node);
     }
 
 }
@@ -1,12 +1,25 @@
 package ru.brikster.chatty.chat.message.transform.processor;
 
+import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import ru.brikster.chatty.api.chat.message.context.MessageContext;
 import ru.brikster.chatty.api.chat.message.strategy.MessageTransformStrategy.Stage;
 import ru.brikster.chatty.api.chat.message.strategy.result.MessageTransformResult;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface MessageTransformStrategiesProcessor {
 
     <MessageT> @NotNull MessageTransformResult<MessageT> handle(MessageContext<MessageT> context, Stage stage);
 
+    /**
+     * Splits recipients of the context into groups, that receive identical output of the stage strategies,
+     * as if each of them was the context target
+     * @param context context of the message
+     * @param stage the personal stage
+     * @return groups of recipients, every group is not empty
+     */
+    @NotNull Collection<@NotNull List<@NotNull Player>> groupByIdenticalOutput(MessageContext<?> context, Stage stage);
+
 }
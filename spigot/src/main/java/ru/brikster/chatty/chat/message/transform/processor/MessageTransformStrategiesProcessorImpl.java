@@ -1,21 +1,23 @@
 package ru.brikster.chatty.chat.message.transform.processor;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import ru.brikster.chatty.api.chat.Chat;
 import ru.brikster.chatty.api.chat.message.context.MessageContext;
 import ru.brikster.chatty.api.chat.message.strategy.MessageTransformStrategy;
 import ru.brikster.chatty.api.chat.message.strategy.MessageTransformStrategy.Stage;
 import ru.brikster.chatty.api.chat.message.strategy.MessageTransformStrategy.TransformRule;
 import ru.brikster.chatty.api.chat.message.strategy.result.MessageTransformResult;
+import ru.brikster.chatty.chat.message.transform.TargetAwareStrategy;
 import ru.brikster.chatty.chat.message.transform.result.MessageTransformResultImpl;
+import ru.brikster.chatty.timings.PipelineTimings;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.*;
+import java.util.function.Function;
 
 @Singleton
 public final class MessageTransformStrategiesProcessorImpl implements MessageTransformStrategiesProcessor {
@@ -23,34 +25,58 @@ public final class MessageTransformStrategiesProcessorImpl implements MessageTra
     @Inject
     private Set<MessageTransformStrategy<?>> strategies;
 
+    @Inject
+    private PipelineTimings timings;
+
+    // Plans are recompiled when chat publishes new strategies list
+    private final Cache<Chat, StrategyExecutionPlan> plans = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+
     @Override
     public <MessageT> @NotNull MessageTransformResult<MessageT> handle(MessageContext<MessageT> context, Stage stage) {
+        long stageStartNanos = System.nanoTime();
+
+        MessageTransformStrategy<?>[] strategies = getPlan(context.getChat()).getStrategies(stage);
+
         MessageContext<?> newContext = context;
+        MessageTransformResult<?> lastResult = null;
 
-        List<Player> removedRecipients = new ArrayList<>();
-        List<Player> addedRecipients = new ArrayList<>();
+        // Allocated only if any strategy changes recipients
+        List<Player> removedRecipients = null;
+        List<Player> addedRecipients = null;
 
         boolean formatUpdated = false;
         boolean messageUpdated = false;
         boolean becameCancelled = false;
 
-        List<MessageTransformStrategy<?>> strategies = Stream.concat(this.strategies.stream(), context.getChat().getStrategies().stream())
-                .filter(strategy -> strategy.getStage() == stage)
-                .collect(Collectors.toList());
-
         for (MessageTransformStrategy<?> strategy : strategies) {
+            long strategyStartNanos = System.nanoTime();
+
             @SuppressWarnings({"rawtypes", "unchecked"})
             MessageTransformResult<?> messageTransformResult = ((MessageTransformStrategy) strategy).handle(newContext);
 
+            timings.recordStrategy(strategy.getClass(), System.nanoTime() - strategyStartNanos);
+
+            lastResult = messageTransformResult;
             newContext = messageTransformResult.getNewContext();
             formatUpdated |= messageTransformResult.isFormatUpdated();
             messageUpdated |= messageTransformResult.isMessageUpdated();
             becameCancelled |= messageTransformResult.isBecameCancelled();
 
-            removedRecipients.addAll(messageTransformResult.getRemovedRecipients());
-            addedRecipients.addAll(messageTransformResult.getAddedRecipients());
+            if (!messageTransformResult.getRemovedRecipients().isEmpty()) {
+                if (removedRecipients == null) removedRecipients = new ArrayList<>();
+                removedRecipients.addAll(messageTransformResult.getRemovedRecipients());
+            }
+
+            if (!messageTransformResult.getAddedRecipients().isEmpty()) {
+                if (addedRecipients == null) addedRecipients = new ArrayList<>();
+                addedRecipients.addAll(messageTransformResult.getAddedRecipients());
+            }
         }
 
+        timings.recordStage(stage, System.nanoTime() - stageStartNanos);
+
         if (becameCancelled && stage.hasRule(TransformRule.DENY_CANCEL)) {
             throw new IllegalStateException("Strategy at stage " + stage + " cannot cancel message");
         }
@@ -59,16 +85,74 @@ public final class MessageTransformStrategiesProcessorImpl implements MessageTra
             throw new IllegalStateException("Strategy at stage " + stage + " cannot update format");
         }
 
-        if ((!removedRecipients.isEmpty() || !addedRecipients.isEmpty())
+        if ((removedRecipients != null || addedRecipients != null)
                 && stage.hasRule(TransformRule.DENY_UPDATE_RECIPIENTS)) {
             throw new IllegalStateException("Strategy at stage " + stage + " cannot update recipients");
         }
 
+        // Nothing was updated, so result of the last strategy describes the whole stage
+        if (lastResult != null && !formatUpdated && !messageUpdated && !becameCancelled
+                && removedRecipients == null && addedRecipients == null) {
+            //noinspection unchecked
+            return (MessageTransformResult<MessageT>) lastResult;
+        }
+
         //noinspection unchecked
         return new MessageTransformResultImpl<>((MessageContext<MessageT>) newContext,
-                removedRecipients,
-                addedRecipients,
+                removedRecipients == null ? Collections.emptyList() : removedRecipients,
+                addedRecipients == null ? Collections.emptyList() : addedRecipients,
                 formatUpdated, messageUpdated, becameCancelled);
     }
 
+    @Override
+    public @NotNull Collection<@NotNull List<@NotNull Player>> groupByIdenticalOutput(MessageContext<?> context, Stage stage) {
+        List<Function<Player, Object>> renderKeyFunctions = new ArrayList<>();
+        for (MessageTransformStrategy<?> strategy : getPlan(context.getChat()).getStrategies(stage)) {
+            if (!(strategy instanceof TargetAwareStrategy)) {
+                return singletonGroups(context.getRecipients());
+            }
+            Function<Player, Object> renderKeyFunction = ((TargetAwareStrategy) strategy).getRenderKeyFunction(context);
+            if (renderKeyFunction != null) {
+                renderKeyFunctions.add(renderKeyFunction);
+            }
+        }
+
+        if (context.getRecipients().isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        if (renderKeyFunctions.isEmpty()) {
+            return Collections.singletonList(new ArrayList<>(context.getRecipients()));
+        }
+
+        Map<List<Object>, List<Player>> groups = new LinkedHashMap<>();
+        for (Player recipient : context.getRecipients()) {
+            List<Object> renderKey = new ArrayList<>(renderKeyFunctions.size());
+            for (Function<Player, Object> renderKeyFunction : renderKeyFunctions) {
+                renderKey.add(renderKeyFunction.apply(recipient));
+            }
+            groups.computeIfAbsent(renderKey, key -> new ArrayList<>()).add(recipient);
+        }
+
+        return groups.values();
+    }
+
+    private StrategyExecutionPlan getPlan(Chat chat) {
+        List<MessageTransformStrategy<?>> chatStrategies = chat.getStrategies();
+        StrategyExecutionPlan plan = plans.getIfPresent(chat);
+        if (plan == null || !plan.isCompiledFrom(chatStrategies)) {
+            plan = StrategyExecutionPlan.compile(strategies, chatStrategies);
+            plans.put(chat, plan);
+        }
+        return plan;
+    }
+
+    private static List<List<Player>> singletonGroups(Collection<? extends Player> recipients) {
+        List<List<Player>> groups = new ArrayList<>(recipients.size());
+        for (Player recipient : recipients) {
+            groups.add(Collections.singletonList(recipient));
+        }
+        return groups;
+    }
+
 }
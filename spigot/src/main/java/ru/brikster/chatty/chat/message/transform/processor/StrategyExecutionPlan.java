@@ -0,0 +1,58 @@
+package ru.brikster.chatty.chat.message.transform.processor;
+
+import org.jetbrains.annotations.NotNull;
+import ru.brikster.chatty.api.chat.message.strategy.MessageTransformStrategy;
+import ru.brikster.chatty.api.chat.message.strategy.MessageTransformStrategy.Stage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable list of the strategies to execute for every stage of a chat.
+ * Plan is bound to the chat strategies list it was compiled from and must be
+ * recompiled, when chat publishes another one.
+ */
+final class StrategyExecutionPlan {
+
+    private final List<MessageTransformStrategy<?>> chatStrategies;
+    private final MessageTransformStrategy<?>[][] stageStrategies;
+
+    private StrategyExecutionPlan(List<MessageTransformStrategy<?>> chatStrategies,
+                                  MessageTransformStrategy<?>[][] stageStrategies) {
+        this.chatStrategies = chatStrategies;
+        this.stageStrategies = stageStrategies;
+    }
+
+    static StrategyExecutionPlan compile(@NotNull Collection<? extends MessageTransformStrategy<?>> commonStrategies,
+                                         @NotNull List<MessageTransformStrategy<?>> chatStrategies) {
+        Stage[] stages = Stage.values();
+        MessageTransformStrategy<?>[][] stageStrategies = new MessageTransformStrategy<?>[stages.length][];
+
+        for (Stage stage : stages) {
+            List<MessageTransformStrategy<?>> strategies = new ArrayList<>();
+            for (MessageTransformStrategy<?> strategy : commonStrategies) {
+                if (strategy.getStage() == stage) {
+                    strategies.add(strategy);
+                }
+            }
+            for (MessageTransformStrategy<?> strategy : chatStrategies) {
+                if (strategy.getStage() == stage) {
+                    strategies.add(strategy);
+                }
+            }
+            stageStrategies[stage.ordinal()] = strategies.toArray(new MessageTransformStrategy<?>[0]);
+        }
+
+        return new StrategyExecutionPlan(chatStrategies, stageStrategies);
+    }
+
+    boolean isCompiledFrom(List<MessageTransformStrategy<?>> chatStrategies) {
+        return this.chatStrategies == chatStrategies;
+    }
+
+    MessageTransformStrategy<?>[] getStrategies(Stage stage) {
+        return stageStrategies[stage.ordinal()];
+    }
+
+}
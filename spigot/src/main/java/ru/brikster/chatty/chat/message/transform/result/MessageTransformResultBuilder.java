@@ -7,8 +7,10 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import ru.brikster.chatty.api.chat.message.context.MessageContext;
 import ru.brikster.chatty.api.chat.message.strategy.result.MessageTransformResult;
+import ru.brikster.chatty.chat.message.context.MessageContextImpl;
 
 import java.util.Collection;
+import java.util.Collections;
 
 public interface MessageTransformResultBuilder<MessageT> {
 
@@ -33,4 +35,27 @@ public interface MessageTransformResultBuilder<MessageT> {
         return new MessageTransformResultBuilderImpl<>(oldContext);
     }
 
+    /**
+     * @return result, that shares the context with the next strategy. It's allocated once per built-in context
+     */
+    static <MessageT> MessageTransformResult<MessageT> unchanged(MessageContext<MessageT> context) {
+        if (!(context instanceof MessageContextImpl)) {
+            return createUnchanged(context);
+        }
+
+        MessageContextImpl<MessageT> contextImpl = (MessageContextImpl<MessageT>) context;
+        MessageTransformResult<MessageT> result = contextImpl.getCachedUnchangedResult();
+        if (result == null) {
+            result = createUnchanged(context);
+            contextImpl.setCachedUnchangedResult(result);
+        }
+        return result;
+    }
+
+    private static <MessageT> MessageTransformResult<MessageT> createUnchanged(MessageContext<MessageT> context) {
+        return new MessageTransformResultImpl<>(context,
+                Collections.emptySet(), Collections.emptySet(),
+                false, false, false);
+    }
+
 }
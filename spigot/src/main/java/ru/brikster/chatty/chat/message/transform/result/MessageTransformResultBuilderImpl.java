@@ -14,9 +14,8 @@ import java.util.stream.Stream;
 
 final class MessageTransformResultBuilderImpl<MessageT> implements MessageTransformResultBuilder<MessageT> {
 
-    private final Map<String, Object> metadata = new HashMap<>();
-
     private final MessageContext<?> oldContext;
+    private Map<String, Object> metadata;
     private Collection<Player> recipients;
     private Component format;
     private MessageT message;
@@ -56,12 +55,21 @@ final class MessageTransformResultBuilderImpl<MessageT> implements MessageTransf
 
     @Contract(value = "_, _ -> this")
     public MessageTransformResultBuilder<MessageT> withMetadata(@NotNull String key, @Nullable Object value) {
+        if (this.metadata == null) {
+            this.metadata = new HashMap<>();
+        }
         this.metadata.put(key, value);
         return this;
     }
 
     @Override
     public MessageTransformResult<MessageT> build() {
+        if (isUnchanged()) {
+            // Nothing to copy, old context can be shared with the next strategy
+            //noinspection unchecked
+            return MessageTransformResultBuilder.unchanged((MessageContext<MessageT>) oldContext);
+        }
+
         MessageContext<MessageT> newContext = new MessageContextImpl<>(oldContext);
 
         boolean formatUpdated = false;
@@ -106,7 +114,9 @@ final class MessageTransformResultBuilderImpl<MessageT> implements MessageTransf
             newContext.setCancelled(true);
         }
 
-        newContext.getMetadata().putAll(metadata);
+        if (metadata != null) {
+            newContext.getMetadata().putAll(metadata);
+        }
 
         return new MessageTransformResultImpl<>(newContext,
                 removedRecipients,
@@ -114,4 +124,12 @@ final class MessageTransformResultBuilderImpl<MessageT> implements MessageTransf
                 formatUpdated, messageUpdated, becomeCancelled);
     }
 
+    private boolean isUnchanged() {
+        return recipients == null
+                && metadata == null
+                && (format == null || format.equals(oldContext.getFormat()))
+                && (message == null || message.equals(oldContext.getMessage()))
+                && (!cancel || oldContext.isCancelled());
+    }
+
 }
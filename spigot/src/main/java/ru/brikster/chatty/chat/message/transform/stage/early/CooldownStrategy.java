@@ -1,60 +1,61 @@
 package ru.brikster.chatty.chat.message.transform.stage.early;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import lombok.SneakyThrows;
-import net.kyori.adventure.platform.bukkit.BukkitAudiences;
-import org.bukkit.command.CommandSender;
 import org.jetbrains.annotations.NotNull;
 import ru.brikster.chatty.api.chat.message.context.MessageContext;
 import ru.brikster.chatty.api.chat.message.strategy.MessageTransformStrategy;
 import ru.brikster.chatty.api.chat.message.strategy.result.MessageTransformResult;
 import ru.brikster.chatty.chat.message.transform.result.MessageTransformResultBuilder;
 import ru.brikster.chatty.config.file.MessagesConfig;
+import ru.brikster.chatty.permission.PermissionSnapshotService;
+import ru.brikster.chatty.player.CooldownTable;
+import ru.brikster.chatty.player.PlayerSessionRegistry;
 import ru.brikster.chatty.util.AdventureUtil;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Singleton
 public final class CooldownStrategy implements MessageTransformStrategy<String> {
 
     @Inject private MessagesConfig messagesConfig;
-    @Inject private BukkitAudiences audiences;
+    @Inject private PermissionSnapshotService permissionSnapshots;
+    @Inject private PlayerSessionRegistry sessions;
+    @Inject private CooldownTable cooldowns;
 
-    private final ConcurrentHashMap<String, Cache<CommandSender, Long>> cooldownCachesMap = new ConcurrentHashMap<>();
+    // Chat id -> bypass node, so node isn't concatenated for every message
+    private final Map<String, String> bypassNodes = new ConcurrentHashMap<>();
 
-    @SneakyThrows
     @Override
     public @NotNull MessageTransformResult<String> handle(MessageContext<String> context) {
         String chatName = context.getChat().getId();
 
         if (context.getChat().getCooldown() > 0
-                && !context.getSender().hasPermission("chatty.bypass.cooldown")
-                && !context.getSender().hasPermission("chatty.bypass.cooldown." + chatName)) {
-            Cache<CommandSender, Long> cache = cooldownCachesMap.computeIfAbsent(chatName, (k) -> CacheBuilder.newBuilder()
-                    .maximumSize(1000)
-                    .weakKeys()
-                    .build());
-
-            Long previousMillis = cache.getIfPresent(context.getSender());
-            if (previousMillis != null) {
-                long endCooldownMillis = previousMillis + context.getChat().getCooldown() * 1000L;
-                if (System.currentTimeMillis() < endCooldownMillis) {
-                    long secondsLeft = (long) Math.ceil((double) (endCooldownMillis - System.currentTimeMillis()) / 1000d);
-                    audiences.sender(context.getSender())
-                            .sendMessage(messagesConfig.getWaitCooldown()
-                                    .replaceText(AdventureUtil.createReplacement("{secondsLeft}", secondsLeft)));
-                    return MessageTransformResultBuilder.<String>fromContext(context)
-                            .withCancelled()
-                            .build();
-                }
+                && !permissionSnapshots.hasPermission(context.getSender(), "chatty.bypass.cooldown")
+                && !permissionSnapshots.hasPermission(context.getSender(), getBypassNode(chatName))) {
+            long millisLeft = cooldowns.tryStart(context.getSender(),
+                    cooldowns.getChatSlot(chatName),
+                    context.getChat().getCooldown() * 1000L);
+            if (millisLeft > 0) {
+                long secondsLeft = (long) Math.ceil((double) millisLeft / 1000d);
+                sessions.audience(context.getSender())
+                        .sendMessage(messagesConfig.getWaitCooldown()
+                                .replaceText(AdventureUtil.createReplacement("{secondsLeft}", secondsLeft)));
+                return MessageTransformResultBuilder.<String>fromContext(context)
+                        .withCancelled()
+                        .build();
             }
+        }
+        return MessageTransformResultBuilder.unchanged(context);
+    }
 
-            cache.put(context.getSender(), System.currentTimeMillis());
+    private String getBypassNode(String chatName) {
+        String node = bypassNodes.get(chatName);
+        if (node == null) {
+            node = bypassNodes.computeIfAbsent(chatName, id -> "chatty.bypass.cooldown." + id);
         }
-        return MessageTransformResultBuilder.<String>fromContext(context).build();
+        return node;
     }
 
     @Override
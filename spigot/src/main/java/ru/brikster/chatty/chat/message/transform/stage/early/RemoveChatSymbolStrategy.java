@@ -15,7 +15,7 @@ public final class RemoveChatSymbolStrategy implements MessageTransformStrategy<
     @Override
     public @NotNull MessageTransformResult<String> handle(final MessageContext<String> context) {
         if (context.getChat().getSymbol().isEmpty()) {
-            return MessageTransformResultBuilder.<String>fromContext(context).build();
+            return MessageTransformResultBuilder.unchanged(context);
         } else {
             String message = context.getMessage()
                     .replaceFirst(Pattern.quote(context.getChat().getSymbol()), "")
@@ -1,17 +1,18 @@
 package ru.brikster.chatty.chat.message.transform.stage.early;
 
-import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import ru.brikster.chatty.api.chat.message.context.MessageContext;
 import ru.brikster.chatty.api.chat.message.strategy.MessageTransformStrategy;
 import ru.brikster.chatty.api.chat.message.strategy.result.MessageTransformResult;
 import ru.brikster.chatty.chat.message.transform.result.MessageTransformResultBuilder;
-import ru.brikster.chatty.repository.player.PlayerDataRepository;
+import ru.brikster.chatty.pm.ignore.IgnoreGraph;
+import ru.brikster.chatty.spy.SpyRegistry;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -19,7 +20,8 @@ import java.util.UUID;
 @Singleton
 public final class SpyModeStrategy implements MessageTransformStrategy<String> {
 
-    @Inject private PlayerDataRepository repository;
+    @Inject private SpyRegistry spyRegistry;
+    @Inject private IgnoreGraph ignoreGraph;
 
     @Override
     public @NotNull MessageTransformResult<String> handle(MessageContext<String> context) {
@@ -29,23 +31,20 @@ public final class SpyModeStrategy implements MessageTransformStrategy<String> {
 
         List<Player> spies = new ArrayList<>();
         if (context.getChat().isEnableSpy()) {
-            for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-                if (onlinePlayer.hasPermission("chatty.spy." + context.getChat().getId())
-                        && repository.isEnableSpy(onlinePlayer.getUniqueId())
-                        && !recipients.contains(onlinePlayer)) {
-                    recipients.add(onlinePlayer);
-                    spies.add(onlinePlayer);
+            Set<Player> recipientsSet = new HashSet<>(recipients);
+            for (Player spy : spyRegistry.getSpies("chatty.spy." + context.getChat().getId())) {
+                if (!recipientsSet.contains(spy)) {
+                    recipients.add(spy);
+                    spies.add(spy);
                 }
             }
 
             builder.withMetadata("spy-recipients", spies);
         }
 
-        Set<UUID> whoIgnoreUuids = repository.getWhoIgnoreUuids(context.getSender());
+        Set<UUID> whoIgnoreUuids = ignoreGraph.getWhoIgnore(context.getSender().getUniqueId());
         recipients.removeIf(recipient -> whoIgnoreUuids.contains(recipient.getUniqueId()));
 
-        repository.createOrUpdateUser(context.getSender().getUniqueId(), context.getSender().getName());
-
         return builder
                 .withRecipients(recipients)
                 .build();
@@ -9,6 +9,7 @@ import ru.brikster.chatty.chat.message.transform.result.MessageTransformResultBu
 import ru.brikster.chatty.config.file.MessagesConfig;
 import ru.brikster.chatty.config.file.ModerationConfig;
 import ru.brikster.chatty.config.file.ModerationConfig.AdvertisementModerationConfig;
+import ru.brikster.chatty.permission.PermissionSnapshotService;
 
 import javax.inject.Inject;
 import java.util.Set;
@@ -20,6 +21,7 @@ public final class AdModerationStrategyModeration implements ModerationMatcherSt
 
     private final BukkitAudiences audiences;
     private final MessagesConfig messages;
+    private final PermissionSnapshotService permissionSnapshots;
 
     private final Set<String> whitelist;
     private final boolean useBlock;
@@ -29,9 +31,11 @@ public final class AdModerationStrategyModeration implements ModerationMatcherSt
     private final Pattern webPattern;
 
     @Inject
-    public AdModerationStrategyModeration(BukkitAudiences audiences, MessagesConfig messages, ModerationConfig moderationConfig) {
+    public AdModerationStrategyModeration(BukkitAudiences audiences, MessagesConfig messages, ModerationConfig moderationConfig,
+                                          PermissionSnapshotService permissionSnapshots) {
         this.audiences = audiences;
         this.messages = messages;
+        this.permissionSnapshots = permissionSnapshots;
 
         AdvertisementModerationConfig config = moderationConfig.getAdvertisement();
 
@@ -45,8 +49,8 @@ public final class AdModerationStrategyModeration implements ModerationMatcherSt
 
     @Override
     public @NotNull MessageTransformResult<String> handle(MessageContext<String> context) {
-        if (context.getSender().hasPermission("chatty.bypass.moderation")
-                || context.getSender().hasPermission("chatty.bypass.moderation.ads")) {
+        if (permissionSnapshots.hasPermission(context.getSender(), "chatty.bypass.moderation")
+                || permissionSnapshots.hasPermission(context.getSender(), "chatty.bypass.moderation.ads")) {
             return MessageTransformResultBuilder
                     .<String>fromContext(context)
                     .build();
@@ -0,0 +1,170 @@
+package ru.brikster.chatty.chat.message.transform.stage.early.moderation;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Finds all occurrences of the words in one pass over the text,
+ * regardless of the count of words. Words are identified by their index in the constructor collection.
+ */
+final class AhoCorasickAutomaton {
+
+    private static final int ROOT = 0;
+    private static final long NO_TRANSITION = -1L;
+
+    // Open addressing table: (state, char) -> next state
+    private final long[] transitionKeys;
+    private final int[] transitionTargets;
+    private final int transitionMask;
+
+    private final int[] failures;
+    // Word, that ends in the state, or -1
+    private final int[] words;
+    // Nearest state on the failure chain, that has a word, or root
+    private final int[] outputs;
+
+    /**
+     * @param words distinct non-empty words
+     */
+    AhoCorasickAutomaton(@NotNull List<@NotNull String> words) {
+        List<Map<Character, Integer>> children = new ArrayList<>();
+        List<Integer> stateWords = new ArrayList<>();
+        children.add(new HashMap<>());
+        stateWords.add(-1);
+
+        int transitionsCount = 0;
+        for (int wordIndex = 0; wordIndex < words.size(); wordIndex++) {
+            String word = words.get(wordIndex);
+
+            int state = ROOT;
+            for (int i = 0; i < word.length(); i++) {
+                Integer next = children.get(state).get(word.charAt(i));
+                if (next == null) {
+                    next = children.size();
+                    children.add(new HashMap<>());
+                    stateWords.add(-1);
+                    children.get(state).put(word.charAt(i), next);
+                    transitionsCount++;
+                }
+                state = next;
+            }
+            stateWords.set(state, wordIndex);
+        }
+
+        int statesCount = children.size();
+        this.failures = new int[statesCount];
+        this.outputs = new int[statesCount];
+        this.words = new int[statesCount];
+        for (int state = 0; state < statesCount; state++) {
+            this.words[state] = stateWords.get(state);
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(1, transitionsCount) * 2 - 1) << 1;
+        this.transitionKeys = new long[capacity];
+        this.transitionTargets = new int[capacity];
+        this.transitionMask = capacity - 1;
+        Arrays.fill(transitionKeys, NO_TRANSITION);
+
+        // Breadth-first, so failure of the parent is known before its children
+        Queue<Integer> queue = new ArrayDeque<>();
+        queue.add(ROOT);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> entry : children.get(state).entrySet()) {
+                char c = entry.getKey();
+                int child = entry.getValue();
+                putTransition(state, c, child);
+
+                if (state != ROOT) {
+                    int failure = failures[state];
+                    while (failure != ROOT && !children.get(failure).containsKey(c)) {
+                        failure = failures[failure];
+                    }
+                    Integer failureChild = children.get(failure).get(c);
+                    failures[child] = failureChild == null || failureChild == child ? ROOT : failureChild;
+                }
+
+                int failure = failures[child];
+                outputs[child] = this.words[failure] >= 0 ? failure : outputs[failure];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Reports every word, that ends at every position of the text
+     */
+    void match(char @NotNull [] text, int length, @NotNull MatchConsumer consumer) {
+        int state = ROOT;
+        for (int i = 0; i < length; i++) {
+            state = next(state, text[i]);
+            int output = words[state] >= 0 ? state : outputs[state];
+            while (output != ROOT) {
+                consumer.accept(words[output], i + 1);
+                output = outputs[output];
+            }
+        }
+    }
+
+    private int next(int state, char c) {
+        while (true) {
+            int target = getTransition(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = failures[state];
+        }
+    }
+
+    private void putTransition(int state, char c, int target) {
+        long key = key(state, c);
+        int index = index(key);
+        while (transitionKeys[index] != NO_TRANSITION) {
+            index = (index + 1) & transitionMask;
+        }
+        transitionKeys[index] = key;
+        transitionTargets[index] = target;
+    }
+
+    private int getTransition(int state, char c) {
+        long key = key(state, c);
+        int index = index(key);
+        long storedKey;
+        while ((storedKey = transitionKeys[index]) != NO_TRANSITION) {
+            if (storedKey == key) {
+                return transitionTargets[index];
+            }
+            index = (index + 1) & transitionMask;
+        }
+        return -1;
+    }
+
+    private static long key(int state, char c) {
+        return ((long) state << 16) | c;
+    }
+
+    private int index(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & transitionMask;
+    }
+
+    @FunctionalInterface
+    interface MatchConsumer {
+
+        /**
+         * @param end index after the last character of the word
+         */
+        void accept(int word, int end);
+
+    }
+
+}
@@ -10,6 +10,7 @@ import ru.brikster.chatty.chat.message.transform.result.MessageTransformResultBu
 import ru.brikster.chatty.config.file.MessagesConfig;
 import ru.brikster.chatty.config.file.ModerationConfig;
 import ru.brikster.chatty.config.file.ModerationConfig.CapsModerationConfig;
+import ru.brikster.chatty.permission.PermissionSnapshotService;
 
 import javax.inject.Inject;
 
@@ -18,15 +19,18 @@ public final class CapsModerationStrategy implements MessageTransformStrategy<St
 
     private final BukkitAudiences audiences;
     private final MessagesConfig messages;
+    private final PermissionSnapshotService permissionSnapshots;
 
     private final int percent;
     private final int length;
     private final boolean useBlock;
 
     @Inject
-    public CapsModerationStrategy(BukkitAudiences audiences, MessagesConfig messages, ModerationConfig moderationConfig) {
+    public CapsModerationStrategy(BukkitAudiences audiences, MessagesConfig messages, ModerationConfig moderationConfig,
+                                  PermissionSnapshotService permissionSnapshots) {
         this.audiences = audiences;
         this.messages = messages;
+        this.permissionSnapshots = permissionSnapshots;
 
         CapsModerationConfig config = moderationConfig.getCaps();
         this.useBlock = config.isBlock();
@@ -36,8 +40,8 @@ public final class CapsModerationStrategy implements MessageTransformStrategy<St
 
     @Override
     public @NotNull MessageTransformResult<String> handle(MessageContext<String> context) {
-        if (context.getSender().hasPermission("chatty.bypass.moderation")
-                || context.getSender().hasPermission("chatty.bypass.moderation.caps")) {
+        if (permissionSnapshots.hasPermission(context.getSender(), "chatty.bypass.moderation")
+                || permissionSnapshots.hasPermission(context.getSender(), "chatty.bypass.moderation.caps")) {
             return MessageTransformResultBuilder
                     .<String>fromContext(context)
                     .build();
@@ -63,7 +67,7 @@ public final class CapsModerationStrategy implements MessageTransformStrategy<St
             }
         }
 
-        return MessageTransformResultBuilder.<String>fromContext(context).build();
+        return MessageTransformResultBuilder.unchanged(context);
     }
 
     @Override
@@ -25,7 +25,7 @@ public interface ModerationMatcherStrategy extends MessageTransformStrategy<Stri
                         .build();
             }
         } else {
-            return MessageTransformResultBuilder.<String>fromContext(context).build();
+            return MessageTransformResultBuilder.unchanged(context);
         }
     }
 
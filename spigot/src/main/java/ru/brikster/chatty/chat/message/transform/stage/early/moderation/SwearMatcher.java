@@ -0,0 +1,218 @@
+package ru.brikster.chatty.chat.message.transform.stage.early.moderation;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.brikster.chatty.chat.message.transform.stage.early.moderation.SwearNormalizer.NormalizedText;
+import ru.brikster.chatty.config.file.ModerationConfig.SwearNormalizationConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Finds swears in messages. Plain words are matched by Aho-Corasick automaton against normalized message,
+ * and only swears with regular expression syntax are matched by regular expression.
+ */
+public final class SwearMatcher {
+
+    private static final Pattern REGEX_SYNTAX = Pattern.compile("[\\\\.\\[\\]{}()*+?^$|]");
+
+    private final SwearNormalizer normalizer;
+    private final @Nullable AhoCorasickAutomaton automaton;
+    // Word -> length of normalized word
+    private final int[] wordLengths;
+    // Word -> variants of minimal run lengths of every normalized character, or null if letters aren't collapsed
+    private final int @Nullable [][][] wordRuns;
+    private final @Nullable Pattern regexPattern;
+    private final Set<String> whitelist = new HashSet<>();
+
+    public SwearMatcher(@NotNull Collection<@NotNull String> swears,
+                        @NotNull Collection<@NotNull String> whitelist,
+                        @NotNull SwearNormalizationConfig normalizationConfig) {
+        this(swears, whitelist, normalizationConfig.getCharacters(), normalizationConfig.isCollapseRepeatedLetters());
+    }
+
+    /**
+     * @param characters              single characters, that are replaced after lower-casing
+     * @param collapseRepeatedLetters match swears regardless of repeats of their letters. Letter of the swear,
+     *                                that is repeated N times, matches only N or more repeats in the message
+     */
+    public SwearMatcher(@NotNull Collection<@NotNull String> swears,
+                        @NotNull Collection<@NotNull String> whitelist,
+                        @NotNull Map<String, String> characters,
+                        boolean collapseRepeatedLetters) {
+        this.normalizer = new SwearNormalizer(characters, collapseRepeatedLetters);
+
+        // Swears with different repeats of letters are normalized into the same word
+        Map<String, List<int[]>> words = new LinkedHashMap<>();
+        List<String> regexes = new ArrayList<>();
+        for (String swear : swears) {
+            if (REGEX_SYNTAX.matcher(swear).find()) {
+                regexes.add(swear);
+                continue;
+            }
+
+            NormalizedText normalizedSwear = normalizer.normalize(swear);
+            if (normalizedSwear.getLength() == 0) {
+                continue;
+            }
+
+            int[] runs = new int[normalizedSwear.getLength()];
+            for (int i = 0; i < runs.length; i++) {
+                runs[i] = normalizedSwear.getRunLength(i);
+            }
+            words.computeIfAbsent(normalizedSwear.asString(), k -> new ArrayList<>()).add(runs);
+        }
+
+        List<String> wordList = new ArrayList<>(words.keySet());
+        this.automaton = wordList.isEmpty() ? null : new AhoCorasickAutomaton(wordList);
+        this.wordLengths = new int[wordList.size()];
+        this.wordRuns = collapseRepeatedLetters ? new int[wordList.size()][][] : null;
+        for (int i = 0; i < wordList.size(); i++) {
+            String word = wordList.get(i);
+            wordLengths[i] = word.length();
+            if (wordRuns != null) {
+                wordRuns[i] = words.get(word).toArray(new int[0][]);
+            }
+        }
+        this.regexPattern = regexes.isEmpty()
+                ? null
+                : Pattern.compile(regexes.stream()
+                                .map(swear -> "(".concat(swear).concat(")"))
+                                .collect(Collectors.joining("|")),
+                        Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+
+        for (String word : whitelist) {
+            String trimmedWord = word.trim();
+            if (!trimmedWord.isEmpty()) {
+                this.whitelist.add(trimmedWord.toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    /**
+     * @return message with swears replaced, or the same message instance if there are no swears
+     */
+    public @NotNull String replace(@NotNull String message, @NotNull String replacement) {
+        Ranges ranges = new Ranges();
+
+        if (automaton != null) {
+            NormalizedText normalizedText = normalizer.normalize(message);
+            automaton.match(normalizedText.getChars(), normalizedText.getLength(), (word, end) -> {
+                int start = end - wordLengths[word];
+                if (wordRuns == null || hasRepeats(normalizedText, start, wordRuns[word])) {
+                    addIfNotWhitelisted(ranges, message,
+                            normalizedText.getStarts()[start],
+                            normalizedText.getEnds()[end - 1]);
+                }
+            });
+        }
+
+        if (regexPattern != null) {
+            Matcher matcher = regexPattern.matcher(message);
+            while (matcher.find()) {
+                if (matcher.end() > matcher.start()) {
+                    addIfNotWhitelisted(ranges, message, matcher.start(), matcher.end());
+                }
+            }
+        }
+
+        if (ranges.size == 0) {
+            return message;
+        }
+
+        // Ranges are packed as (start << 32 | end), so they are sorted by start
+        long[] sortedRanges = Arrays.copyOf(ranges.values, ranges.size);
+        Arrays.sort(sortedRanges);
+
+        StringBuilder builder = new StringBuilder(message.length());
+        int copiedUntil = 0;
+        int rangeStart = -1;
+        int rangeEnd = -1;
+        for (long range : sortedRanges) {
+            int start = (int) (range >>> 32);
+            int end = (int) range;
+            if (start < rangeEnd) {
+                // Overlapping swears are replaced once
+                rangeEnd = Math.max(rangeEnd, end);
+                continue;
+            }
+            if (rangeStart >= 0) {
+                builder.append(message, copiedUntil, rangeStart).append(replacement);
+                copiedUntil = rangeEnd;
+            }
+            rangeStart = start;
+            rangeEnd = end;
+        }
+        builder.append(message, copiedUntil, rangeStart).append(replacement);
+        builder.append(message, rangeEnd, message.length());
+
+        return builder.toString();
+    }
+
+    private static boolean hasRepeats(NormalizedText text, int start, int[][] variants) {
+        for (int[] runs : variants) {
+            boolean matches = true;
+            for (int i = 0; i < runs.length && matches; i++) {
+                matches = text.getRunLength(start + i) >= runs[i];
+            }
+            if (matches) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addIfNotWhitelisted(Ranges ranges, String message, int start, int end) {
+        if (!isWhitelisted(message, start, end)) {
+            ranges.add(start, end);
+        }
+    }
+
+    private boolean isWhitelisted(String message, int start, int end) {
+        if (whitelist.isEmpty()) {
+            return false;
+        }
+
+        if (whitelist.contains(message.substring(start, end).trim().toLowerCase(Locale.ROOT))) {
+            return true;
+        }
+
+        // Swear may be a part of the whitelisted word
+        int wordStart = start;
+        while (wordStart > 0 && Character.isLetterOrDigit(message.charAt(wordStart - 1))) {
+            wordStart--;
+        }
+        int wordEnd = end;
+        while (wordEnd < message.length() && Character.isLetterOrDigit(message.charAt(wordEnd))) {
+            wordEnd++;
+        }
+
+        return (wordStart != start || wordEnd != end)
+                && whitelist.contains(message.substring(wordStart, wordEnd).toLowerCase(Locale.ROOT));
+    }
+
+    private static final class Ranges {
+
+        private long[] values = new long[4];
+        private int size;
+
+        private void add(int start, int end) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = ((long) start << 32) | end;
+        }
+
+    }
+
+}
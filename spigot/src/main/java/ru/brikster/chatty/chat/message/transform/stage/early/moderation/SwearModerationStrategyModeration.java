@@ -3,65 +3,56 @@ package ru.brikster.chatty.chat.message.transform.stage.early.moderation;
 import com.google.inject.Singleton;
 import net.kyori.adventure.platform.bukkit.BukkitAudiences;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 import ru.brikster.chatty.api.chat.message.context.MessageContext;
 import ru.brikster.chatty.api.chat.message.strategy.result.MessageTransformResult;
 import ru.brikster.chatty.chat.message.transform.result.MessageTransformResultBuilder;
 import ru.brikster.chatty.config.file.MessagesConfig;
 import ru.brikster.chatty.config.file.ModerationConfig;
 import ru.brikster.chatty.config.file.ModerationConfig.SwearModerationConfig;
+import ru.brikster.chatty.permission.PermissionSnapshotService;
 import ru.brikster.chatty.repository.swear.SwearRepository;
 
 import javax.inject.Inject;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @Singleton
 public final class SwearModerationStrategyModeration implements ModerationMatcherStrategy {
 
     private final BukkitAudiences audiences;
     private final MessagesConfig messages;
-    private final SwearRepository swearRepository;
+    private final PermissionSnapshotService permissionSnapshots;
 
     private final String replacement;
     private final boolean useBlock;
 
-    private final Pattern swearPattern;
+    private final SwearMatcher swearMatcher;
 
     @Inject
-    public SwearModerationStrategyModeration(BukkitAudiences audiences, MessagesConfig messages, ModerationConfig moderationConfig, SwearRepository swearRepository) {
+    public SwearModerationStrategyModeration(BukkitAudiences audiences, MessagesConfig messages, ModerationConfig moderationConfig, SwearRepository swearRepository,
+                                             PermissionSnapshotService permissionSnapshots) {
         this.audiences = audiences;
         this.messages = messages;
-        this.swearRepository = swearRepository;
+        this.permissionSnapshots = permissionSnapshots;
 
         SwearModerationConfig config = moderationConfig.getSwear();
         this.replacement = config.getReplacement();
         this.useBlock = config.isBlock();
 
-        if (!swearRepository.getSwears().isEmpty()) {
-            this.swearPattern =
-                    Pattern.compile(swearRepository.getSwears()
-                                    .stream()
-                                    .map(swear -> "(".concat(swear).concat(")"))
-                                    .collect(Collectors.joining("|")),
-                            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
-        } else {
-            this.swearPattern = null;
-        }
+        this.swearMatcher = new SwearMatcher(swearRepository.getSwears(),
+                swearRepository.getWhitelist(),
+                config.getNormalization());
     }
 
     @Override
     public @NotNull MessageTransformResult<String> handle(MessageContext<String> context) {
-        if (context.getSender().hasPermission("chatty.bypass.moderation")
-                || context.getSender().hasPermission("chatty.bypass.moderation.swear")) {
+        if (permissionSnapshots.hasPermission(context.getSender(), "chatty.bypass.moderation")
+                || permissionSnapshots.hasPermission(context.getSender(), "chatty.bypass.moderation.swear")) {
             return MessageTransformResultBuilder
                     .<String>fromContext(context)
                     .build();
         }
 
         String message = context.getMessage();
-        String matchedMessage = match(message, swearPattern);
+        String matchedMessage = swearMatcher.replace(message, replacement);
 
         boolean hasViolations = !message.equals(matchedMessage);
         MessageTransformResult<String> messageTransformResult = getMatcherResult(context, matchedMessage, hasViolations, useBlock);
@@ -73,22 +64,4 @@ public final class SwearModerationStrategyModeration implements ModerationMatche
         return messageTransformResult;
     }
 
-    private @NotNull String match(@NotNull String message, @Nullable Pattern pattern) {
-        if (pattern == null) {
-            return message;
-        }
-
-        Matcher matcher = pattern.matcher(message);
-
-        StringBuilder builder = new StringBuilder();
-        while (matcher.find()) {
-            if (!swearRepository.getWhitelist().contains(matcher.group().trim())) {
-                matcher.appendReplacement(builder, replacement);
-            }
-        }
-        matcher.appendTail(builder);
-
-        return builder.toString();
-    }
-
 }
@@ -0,0 +1,102 @@
+package ru.brikster.chatty.chat.message.transform.stage.early.moderation;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import ru.brikster.chatty.config.file.ModerationConfig.SwearNormalizationConfig;
+
+import java.util.Map;
+
+/**
+ * Lower-cases text, replaces configured characters and collapses repeated letters.
+ * Keeps the range of original characters for every normalized character,
+ * so matches in the normalized text can be replaced in the original one.
+ */
+final class SwearNormalizer {
+
+    private final char[] characters;
+    private final boolean collapseRepeatedLetters;
+
+    SwearNormalizer(@NotNull SwearNormalizationConfig config) {
+        this(config.getCharacters(), config.isCollapseRepeatedLetters());
+    }
+
+    SwearNormalizer(@NotNull Map<String, String> characters, boolean collapseRepeatedLetters) {
+        this.collapseRepeatedLetters = collapseRepeatedLetters;
+
+        int maxCharacter = 0;
+        for (Map.Entry<String, String> entry : characters.entrySet()) {
+            if (entry.getKey().length() != 1 || entry.getValue().length() != 1) {
+                throw new IllegalStateException("Swear normalization must replace single characters: "
+                        + entry.getKey() + " -> " + entry.getValue());
+            }
+            maxCharacter = Math.max(maxCharacter, Character.toLowerCase(entry.getKey().charAt(0)));
+        }
+
+        // Direct lookup table up to the greatest replaced character
+        this.characters = new char[maxCharacter + 1];
+        for (int i = 0; i < this.characters.length; i++) {
+            this.characters[i] = (char) i;
+        }
+        characters.forEach((from, to) -> this.characters[Character.toLowerCase(from.charAt(0))] = to.charAt(0));
+    }
+
+    @NotNull NormalizedText normalize(@NotNull String text) {
+        int length = text.length();
+        char[] chars = new char[length];
+        int[] starts = new int[length];
+        int[] ends = new int[length];
+
+        int normalizedLength = 0;
+        for (int i = 0; i < length; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (c < characters.length) {
+                c = characters[c];
+            }
+
+            if (collapseRepeatedLetters
+                    && normalizedLength > 0
+                    && chars[normalizedLength - 1] == c
+                    && Character.isLetter(c)) {
+                ends[normalizedLength - 1] = i + 1;
+                continue;
+            }
+
+            chars[normalizedLength] = c;
+            starts[normalizedLength] = i;
+            ends[normalizedLength] = i + 1;
+            normalizedLength++;
+        }
+
+        return new NormalizedText(chars, normalizedLength, starts, ends);
+    }
+
+    @Getter
+    static final class NormalizedText {
+
+        private final char[] chars;
+        private final int length;
+        // Normalized index -> range of original characters
+        private final int[] starts;
+        private final int[] ends;
+
+        private NormalizedText(char[] chars, int length, int[] starts, int[] ends) {
+            this.chars = chars;
+            this.length = length;
+            this.starts = starts;
+            this.ends = ends;
+        }
+
+        /**
+         * @return count of original characters, that were collapsed into the normalized character
+         */
+        int getRunLength(int index) {
+            return ends[index] - starts[index];
+        }
+
+        @NotNull String asString() {
+            return new String(chars, 0, length);
+        }
+
+    }
+
+}
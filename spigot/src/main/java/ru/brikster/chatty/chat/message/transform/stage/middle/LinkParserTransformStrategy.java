@@ -9,6 +9,7 @@ import ru.brikster.chatty.chat.component.context.EmptyTransformContext;
 import ru.brikster.chatty.chat.component.impl.LinkParserComponentTransformer;
 import ru.brikster.chatty.chat.message.transform.result.MessageTransformResultBuilder;
 import ru.brikster.chatty.config.file.SettingsConfig;
+import ru.brikster.chatty.permission.PermissionSnapshotService;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -18,15 +19,16 @@ public final class LinkParserTransformStrategy implements MessageTransformStrate
 
     @Inject private SettingsConfig settingsConfig;
     @Inject private LinkParserComponentTransformer linkParserComponentTransformer;
+    @Inject private PermissionSnapshotService permissionSnapshots;
 
     @Override
     public @NotNull MessageTransformResult<Component> handle(MessageContext<Component> context) {
         if (!context.getChat().isParseLinks()) {
-            return MessageTransformResultBuilder.<Component>fromContext(context).build();
+            return MessageTransformResultBuilder.unchanged(context);
         }
         if (settingsConfig.getLinksParsing().isPermissionRequired()
-                && !context.getSender().hasPermission("chatty.parselinks")) {
-            return MessageTransformResultBuilder.<Component>fromContext(context).build();
+                && !permissionSnapshots.hasPermission(context.getSender(), "chatty.parselinks")) {
+            return MessageTransformResultBuilder.unchanged(context);
         }
         return MessageTransformResultBuilder.<Component>fromContext(context)
                 .withMessage(linkParserComponentTransformer.transform(
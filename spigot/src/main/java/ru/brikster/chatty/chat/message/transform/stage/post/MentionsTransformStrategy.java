@@ -1,13 +1,12 @@
 package ru.brikster.chatty.chat.message.transform.stage.post;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import net.kyori.adventure.platform.bukkit.BukkitAudiences;
+import lombok.Value;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.TextReplacementConfig;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import ru.brikster.chatty.api.chat.message.context.MessageContext;
 import ru.brikster.chatty.api.chat.message.strategy.MessageTransformStrategy;
 import ru.brikster.chatty.api.chat.message.strategy.result.MessageTransformResult;
@@ -15,63 +14,48 @@ import ru.brikster.chatty.chat.component.context.SinglePlayerTransformContext;
 import ru.brikster.chatty.chat.component.context.TwoPlayersTransformContext;
 import ru.brikster.chatty.chat.component.impl.PlaceholdersComponentTransformer;
 import ru.brikster.chatty.chat.component.impl.RelationalPlaceholdersComponentTransformer;
+import ru.brikster.chatty.chat.message.transform.TargetAwareStrategy;
 import ru.brikster.chatty.chat.message.transform.result.MessageTransformResultBuilder;
 import ru.brikster.chatty.config.file.SettingsConfig;
 import ru.brikster.chatty.config.file.SettingsConfig.RelationalPlaceholdersOrder;
 import ru.brikster.chatty.convert.component.ComponentStringConverter;
+import ru.brikster.chatty.permission.PermissionSnapshotService;
+import ru.brikster.chatty.player.PlayerSessionRegistry;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.time.Duration;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.regex.Matcher;
+import java.util.*;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
 @Singleton
-public class MentionsTransformStrategy implements MessageTransformStrategy<Component> {
+public class MentionsTransformStrategy implements MessageTransformStrategy<Component>, TargetAwareStrategy {
+
+    private static final Object NOT_MENTIONED_TARGET_KEY = new Object();
+
+    // Mentioned players are searched once per message and shared by grouping and all renders
+    private static final String MENTIONED_PLAYERS_METADATA_KEY = "mentioned_players";
 
     @Inject private SettingsConfig settingsConfig;
     @Inject private ComponentStringConverter componentStringConverter;
     @Inject private RelationalPlaceholdersComponentTransformer relationalPlaceholdersComponentTransformer;
     @Inject private PlaceholdersComponentTransformer placeholdersComponentTransformer;
-    @Inject private BukkitAudiences audiences;
-
-    private final Cache<Player, Pattern> playerPatternCache = CacheBuilder.newBuilder()
-            .weakKeys()
-            .expireAfterAccess(Duration.ofMinutes(5))
-            .build();
+    @Inject private PermissionSnapshotService permissionSnapshots;
+    @Inject private PlayerSessionRegistry sessions;
 
     @Override
     public @NotNull MessageTransformResult<Component> handle(MessageContext<Component> context) {
-        if (!context.getSender().hasPermission("chatty.mentions")) {
-            return MessageTransformResultBuilder.<Component>fromContext(context).build();
+        if (!permissionSnapshots.hasPermission(context.getSender(), "chatty.mentions")) {
+            return MessageTransformResultBuilder.unchanged(context);
         }
 
-        PlainTextComponentSerializer plainTextComponentSerializer = PlainTextComponentSerializer.plainText();
-
         List<Player> mentionedPlayers = new ArrayList<>();
 
         Component message = context.getMessage();
-        String plainTextMessage = plainTextComponentSerializer.serialize(message);
-
-        // TODO optimize
-        //noinspection unchecked
-        for (Player onlinePlayer : ((Collection<? extends Player>) context.getMetadata().get("all_recipients"))) {
-            // Cannot mention yourself
-            if (onlinePlayer == context.getSender()) {
-                continue;
-            }
 
+        for (Player onlinePlayer : getMentionedPlayers(context, message)) {
             Pattern pattern = patternForPlayer(onlinePlayer);
 
-            Matcher matcher = pattern.matcher(plainTextMessage);
-            if (!matcher.matches() && !matcher.find()) {
-                continue;
-            }
-
             boolean mentionTarget = onlinePlayer == context.getTarget();
 
             String format = mentionTarget
@@ -79,7 +63,7 @@ public class MentionsTransformStrategy implements MessageTransformStrategy<Compo
                     : settingsConfig.getMentions().getOthersFormat();
 
             Component mentionFormatComponent = componentStringConverter.stringToComponent(format
-                    .replace("{username}", onlinePlayer.getDisplayName()));
+                    .replace("{username}", sessions.displayName(onlinePlayer)));
 
             if (!mentionTarget) {
                 mentionFormatComponent = relationalPlaceholdersComponentTransformer.transform(mentionFormatComponent,
@@ -99,7 +83,6 @@ public class MentionsTransformStrategy implements MessageTransformStrategy<Compo
 
             if (!updatedMessage.compact().equals(message.compact())) {
                 message = updatedMessage;
-                plainTextMessage = plainTextComponentSerializer.serialize(message);
                 mentionedPlayers.add(onlinePlayer);
             }
         }
@@ -107,7 +90,7 @@ public class MentionsTransformStrategy implements MessageTransformStrategy<Compo
         if (settingsConfig.getMentions().isPlaySound()) {
             for (Player mentionedPlayer : mentionedPlayers) {
                 if (mentionedPlayer == context.getTarget()) {
-                    audiences.player(mentionedPlayer)
+                    sessions.audience(mentionedPlayer)
                             .playSound(settingsConfig.getMentions().getSound());
                 }
             }
@@ -118,14 +101,56 @@ public class MentionsTransformStrategy implements MessageTransformStrategy<Compo
                 .build();
     }
 
-    private Pattern patternForPlayer(Player player) {
-        try {
-            return playerPatternCache.get(player, () ->
-                    Pattern.compile(settingsConfig.getMentions().getPattern().replace("{username}",
-                            player.getDisplayName())));
-        } catch (ExecutionException e) {
-            throw new IllegalStateException("Cannot compile mention pattern", e);
+    @Override
+    public @Nullable Function<@NotNull Player, @NotNull Object> getRenderKeyFunction(@NotNull MessageContext<?> context) {
+        if (!permissionSnapshots.hasPermission(context.getSender(), "chatty.mentions")
+                || !(context.getMessage() instanceof Component)) {
+            return null;
         }
+
+        Set<Player> mentionedPlayers = getMentionedPlayers(context, (Component) context.getMessage());
+        if (mentionedPlayers.isEmpty()) {
+            return null;
+        }
+
+        // Mentions of others are rendered with relational placeholders between mentioned player and target
+        Component othersFormat = componentStringConverter.stringToComponent(settingsConfig.getMentions().getOthersFormat());
+        if (relationalPlaceholdersComponentTransformer.hasPlaceholders(othersFormat)) {
+            return target -> target;
+        }
+
+        return target -> mentionedPlayers.contains(target) ? target : NOT_MENTIONED_TARGET_KEY;
+    }
+
+    /**
+     * @return players, who are mentioned in the message, in order of recipients
+     */
+    private Set<Player> getMentionedPlayers(MessageContext<?> context, Component message) {
+        Object cachedMentionedPlayers = context.getMetadata().get(MENTIONED_PLAYERS_METADATA_KEY);
+        // Metadata is shared by contexts of the message, but message may be changed by earlier strategies
+        if (cachedMentionedPlayers instanceof MentionedPlayers
+                && ((MentionedPlayers) cachedMentionedPlayers).getMessage() == message) {
+            return ((MentionedPlayers) cachedMentionedPlayers).getPlayers();
+        }
+
+        String plainTextMessage = PlainTextComponentSerializer.plainText().serialize(message);
+
+        Set<Player> mentionedPlayers = new LinkedHashSet<>();
+        //noinspection unchecked
+        for (Player onlinePlayer : ((Collection<? extends Player>) context.getMetadata().get("all_recipients"))) {
+            // Cannot mention yourself
+            if (onlinePlayer != context.getSender() && patternForPlayer(onlinePlayer).matcher(plainTextMessage).find()) {
+                mentionedPlayers.add(onlinePlayer);
+            }
+        }
+
+        context.getMetadata().put(MENTIONED_PLAYERS_METADATA_KEY, new MentionedPlayers(message, mentionedPlayers));
+        return mentionedPlayers;
+    }
+
+    private Pattern patternForPlayer(Player player) {
+        return sessions.get(player).getMentionPattern(sessions.displayName(player), displayName ->
+                Pattern.compile(settingsConfig.getMentions().getPattern().replace("{username}", displayName)));
     }
 
     @Override
@@ -133,4 +158,10 @@ public class MentionsTransformStrategy implements MessageTransformStrategy<Compo
         return Stage.POST;
     }
 
+    @Value
+    private static class MentionedPlayers {
+        Component message;
+        Set<Player> players;
+    }
+
 }
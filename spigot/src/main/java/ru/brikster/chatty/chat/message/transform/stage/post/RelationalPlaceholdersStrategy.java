@@ -1,17 +1,25 @@
 package ru.brikster.chatty.chat.message.transform.stage.post;
 
+import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.brikster.chatty.api.chat.message.context.MessageContext;
 import ru.brikster.chatty.chat.component.context.TwoPlayersTransformContext;
 import ru.brikster.chatty.chat.component.impl.RelationalPlaceholdersComponentTransformer;
 import ru.brikster.chatty.chat.message.transform.AbstractComponentTransformerStrategy;
+import ru.brikster.chatty.chat.message.transform.TargetAwareStrategy;
 import ru.brikster.chatty.config.file.SettingsConfig;
 import ru.brikster.chatty.config.file.SettingsConfig.RelationalPlaceholdersOrder;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.function.Function;
 
 @Singleton
-public final class RelationalPlaceholdersStrategy extends AbstractComponentTransformerStrategy<String, TwoPlayersTransformContext> {
+public final class RelationalPlaceholdersStrategy extends AbstractComponentTransformerStrategy<String, TwoPlayersTransformContext>
+        implements TargetAwareStrategy {
+
+    private final RelationalPlaceholdersComponentTransformer placeholdersComponentTransformer;
 
     @Inject
     public RelationalPlaceholdersStrategy(RelationalPlaceholdersComponentTransformer placeholdersComponentTransformer, SettingsConfig config) {
@@ -20,6 +28,14 @@ public final class RelationalPlaceholdersStrategy extends AbstractComponentTrans
                             ? TwoPlayersTransformContext.of(context.getSender(), context.getTarget())
                             : TwoPlayersTransformContext.of(context.getTarget(), context.getSender())
                 );
+        this.placeholdersComponentTransformer = placeholdersComponentTransformer;
+    }
+
+    @Override
+    public @Nullable Function<@NotNull Player, @NotNull Object> getRenderKeyFunction(@NotNull MessageContext<?> context) {
+        return placeholdersComponentTransformer.hasPlaceholders(context.getFormat())
+                ? target -> target
+                : null;
     }
 
     @Override
@@ -0,0 +1,221 @@
+package ru.brikster.chatty.chat.range;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.brikster.chatty.api.chat.Chat;
+import ru.brikster.chatty.api.chat.range.Ranges;
+import ru.brikster.chatty.chat.registry.ChatRegistry;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Positions of online players, taken on the main thread every tick
+ * and bucketed by worlds and chunks. Range queries from the chat thread
+ * look only through the chunks, that cover the range, and don't touch live entities.
+ */
+@Singleton
+public final class PlayerPositionGrid {
+
+    @Inject private ChatRegistry chatRegistry;
+
+    private volatile @Nullable Snapshot snapshot;
+    private @Nullable BukkitTask snapshotTask;
+
+    public void start(@NotNull Plugin plugin) {
+        boolean hasRangedChats = chatRegistry.getChats().values().stream()
+                .mapToInt(Chat::getRange)
+                .anyMatch(range -> range >= Ranges.SINGLE_WORLD);
+        if (!hasRangedChats) {
+            return;
+        }
+
+        takeSnapshot();
+        this.snapshotTask = Bukkit.getScheduler().runTaskTimer(plugin, this::takeSnapshot, 1, 1);
+    }
+
+    public void stop() {
+        if (snapshotTask != null) {
+            snapshotTask.cancel();
+            snapshotTask = null;
+        }
+        this.snapshot = null;
+    }
+
+    /**
+     * @param center the player in the center of range
+     * @param range the range (single-world or local one)
+     * @return players (including center) in range, or null if range isn't supported or center has no position yet
+     */
+    public @Nullable Collection<Player> findPlayersInRange(@NotNull Player center, int range) {
+        Snapshot snapshot = this.snapshot;
+        if (snapshot == null || range < Ranges.SINGLE_WORLD) {
+            return null;
+        }
+
+        Position centerPosition = snapshot.positions.get(center);
+        if (centerPosition == null) {
+            return null;
+        }
+
+        WorldCells worldCells = snapshot.worlds.get(centerPosition.worldId);
+        if (range == Ranges.SINGLE_WORLD) {
+            return worldCells.players;
+        }
+
+        int minChunkX = floorToChunk(centerPosition.x - range);
+        int maxChunkX = floorToChunk(centerPosition.x + range);
+        int minChunkZ = floorToChunk(centerPosition.z - range);
+        int maxChunkZ = floorToChunk(centerPosition.z + range);
+
+        List<Player> players = new ArrayList<>();
+
+        long cellsCount = (long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+        if (cellsCount > worldCells.players.size()) {
+            // Range is huge, so it's cheaper to check all players of the world
+            for (Player player : worldCells.players) {
+                if (isInRange(centerPosition, snapshot.positions.get(player), range)) {
+                    players.add(player);
+                }
+            }
+            return players;
+        }
+
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                List<Position> cell = worldCells.cells.get(chunkKey(chunkX, chunkZ));
+                if (cell == null) {
+                    continue;
+                }
+                for (Position position : cell) {
+                    if (isInRange(centerPosition, position, range)) {
+                        players.add(position.player);
+                    }
+                }
+            }
+        }
+
+        return players;
+    }
+
+    /**
+     * @return whether players are in range, or null if any of them has no position yet
+     * @see Ranges#isApplicable(Player, Player, int)
+     */
+    public @Nullable Boolean isInRange(@NotNull Player firstPlayer, @NotNull Player secondPlayer, int range) {
+        if (range < Ranges.SINGLE_WORLD || firstPlayer == secondPlayer) {
+            return Ranges.isApplicable(firstPlayer, secondPlayer, range);
+        }
+
+        Snapshot snapshot = this.snapshot;
+        if (snapshot == null) {
+            return null;
+        }
+
+        Position firstPosition = snapshot.positions.get(firstPlayer);
+        Position secondPosition = snapshot.positions.get(secondPlayer);
+        if (firstPosition == null || secondPosition == null) {
+            return null;
+        }
+
+        if (range == Ranges.SINGLE_WORLD) {
+            return firstPosition.worldId.equals(secondPosition.worldId);
+        }
+
+        return isInRange(firstPosition, secondPosition, range);
+    }
+
+    private void takeSnapshot() {
+        Collection<? extends Player> onlinePlayers = Bukkit.getOnlinePlayers();
+
+        Map<Player, Position> positions = new HashMap<>(onlinePlayers.size() * 2);
+        Map<UUID, WorldCells> worlds = new HashMap<>();
+
+        Location location = new Location(null, 0, 0, 0);
+        for (Player player : onlinePlayers) {
+            player.getLocation(location);
+            UUID worldId = location.getWorld().getUID();
+            Position position = new Position(player, worldId, location.getX(), location.getY(), location.getZ());
+            positions.put(player, position);
+
+            WorldCells worldCells = worlds.computeIfAbsent(worldId, k -> new WorldCells());
+            worldCells.players.add(player);
+            worldCells.cells
+                    .computeIfAbsent(chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4), k -> new ArrayList<>())
+                    .add(position);
+        }
+
+        worlds.values().forEach(worldCells -> worldCells.players = Collections.unmodifiableList(worldCells.players));
+
+        this.snapshot = new Snapshot(positions, worlds);
+    }
+
+    private static boolean isInRange(Position first, Position second, int range) {
+        if (!first.worldId.equals(second.worldId)) {
+            return false;
+        }
+
+        double dx = first.x - second.x;
+        double dy = first.y - second.y;
+        double dz = first.z - second.z;
+        return dx * dx + dy * dy + dz * dz <= (range * range);
+    }
+
+    private static int floorToChunk(double coordinate) {
+        return ((int) Math.floor(coordinate)) >> 4;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    private static final class Snapshot {
+
+        private final Map<Player, Position> positions;
+        private final Map<UUID, WorldCells> worlds;
+
+        private Snapshot(Map<Player, Position> positions, Map<UUID, WorldCells> worlds) {
+            this.positions = positions;
+            this.worlds = worlds;
+        }
+
+    }
+
+    private static final class WorldCells {
+
+        private List<Player> players = new ArrayList<>();
+        private final Map<Long, List<Position>> cells = new HashMap<>();
+
+    }
+
+    private static final class Position {
+
+        private final Player player;
+        private final UUID worldId;
+        private final double x;
+        private final double y;
+        private final double z;
+
+        private Position(Player player, UUID worldId, double x, double y, double z) {
+            this.player = player;
+            this.worldId = worldId;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+    }
+
+}
@@ -4,25 +4,46 @@ import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import ru.brikster.chatty.api.chat.ChatStyle;
+import ru.brikster.chatty.permission.PermissionSnapshotService;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.*;
 
 @Singleton
 public final class ChatStylePlayerGrouperImpl implements ChatStylePlayerGrouper {
 
+    @Inject private PermissionSnapshotService permissionSnapshots;
+
     @Override
     public @NotNull ChatStylePlayerGrouper.Grouping makeGrouping(@NotNull Collection<? extends @NotNull Player> recipients,
                                                                  @NotNull Set<@NotNull ChatStyle> styles,
                                                                  @Nullable Collection<? extends @NotNull Player> spies,
                                                                  @Nullable ChatStyle spyStyle) {
         Map<Player, ChatStyle> playerStyleMap = new HashMap<>();
+        Set<? extends Player> recipientSet = null;
 
         for (ChatStyle style : styles) {
+            String styleNode = "chatty.style." + style.id();
+
+            // Styles are usually granted to few players, so their holders are iterated instead of all recipients
+            Set<Player> holders = permissionSnapshots.getHolders(styleNode);
+            if (holders != null && holders.size() < recipients.size()) {
+                if (recipientSet == null) {
+                    recipientSet = recipients instanceof Set ? (Set<? extends Player>) recipients : new HashSet<>(recipients);
+                }
+                for (Player holder : holders) {
+                    if (recipientSet.contains(holder)) {
+                        putIfHigherPriority(playerStyleMap, holder, style);
+                    }
+                }
+                continue;
+            }
+
             for (Player recipient : recipients) {
                 ChatStyle currentStyle = playerStyleMap.get(recipient);
                 if (currentStyle == null || style.priority() > currentStyle.priority()) {
-                    if (recipient.hasPermission("chatty.style." + style.id())) {
+                    if (permissionSnapshots.hasPermission(recipient, styleNode)) {
                         playerStyleMap.put(recipient, style);
                     }
                 }
@@ -56,4 +77,11 @@ public final class ChatStylePlayerGrouperImpl implements ChatStylePlayerGrouper
         return new Grouping(noStyleRecipients, stylePlayersMap);
     }
 
+    private static void putIfHigherPriority(Map<Player, ChatStyle> playerStyleMap, Player player, ChatStyle style) {
+        ChatStyle currentStyle = playerStyleMap.get(player);
+        if (currentStyle == null || style.priority() > currentStyle.priority()) {
+            playerStyleMap.put(player, style);
+        }
+    }
+
 }
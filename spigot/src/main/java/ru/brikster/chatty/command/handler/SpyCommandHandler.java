@@ -8,7 +8,7 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import ru.brikster.chatty.config.file.MessagesConfig;
-import ru.brikster.chatty.repository.player.PlayerDataRepository;
+import ru.brikster.chatty.spy.SpyRegistry;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -17,14 +17,14 @@ import javax.inject.Singleton;
 @RequiredArgsConstructor(onConstructor_ = {@Inject})
 public final class SpyCommandHandler implements CommandExecutionHandler<CommandSender> {
 
-    private final PlayerDataRepository playerDataRepository;
+    private final SpyRegistry spyRegistry;
     private final MessagesConfig messagesConfig;
     private final BukkitAudiences audiences;
 
     @Override
     public void execute(@NonNull CommandContext<CommandSender> commandContext) {
         boolean state = commandContext.get("state");
-        playerDataRepository.setEnableSpy(((Player) commandContext.getSender()).getUniqueId(), state);
+        spyRegistry.setEnabled((Player) commandContext.getSender(), state);
         if (state) {
             audiences.sender(commandContext.getSender())
                     .sendMessage(messagesConfig.getSpyCommandSpyIsNowEnabled());
@@ -0,0 +1,104 @@
+package ru.brikster.chatty.command.handler;
+
+import cloud.commandframework.context.CommandContext;
+import cloud.commandframework.execution.CommandExecutionHandler;
+import lombok.RequiredArgsConstructor;
+import net.kyori.adventure.platform.bukkit.BukkitAudiences;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.bukkit.command.CommandSender;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import ru.brikster.chatty.repository.player.AsyncPlayerDataRepository;
+import ru.brikster.chatty.timings.LatencyHistogram;
+import ru.brikster.chatty.timings.PipelineTimings;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Singleton
+@RequiredArgsConstructor(onConstructor_ = {@Inject})
+public final class TimingsCommandHandler implements CommandExecutionHandler<CommandSender> {
+
+    private final PipelineTimings timings;
+    private final AsyncPlayerDataRepository asyncRepository;
+    private final BukkitAudiences audiences;
+
+    @Override
+    public void execute(@NonNull CommandContext<CommandSender> commandContext) {
+        Duration window = Duration.ofMillis(System.currentTimeMillis() - timings.getWindowStartMillis());
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("<gold><bold>Chatty timings</bold></gold> <gray>(window: ")
+                .append(formatDuration(window))
+                .append(", use <yellow>/chatty timings reset</yellow> to start a new one)</gray>");
+
+        builder.append("<newline><gold>Stages:</gold>");
+        timings.getStages().forEach((stage, histogram) -> appendHistogram(builder, stage.name(), histogram));
+
+        builder.append("<newline><gold>Strategies:</gold>");
+        Map<String, LatencyHistogram> strategies = new TreeMap<>();
+        timings.getStrategies().forEach((strategyClass, histogram) ->
+                strategies.put(strategyClass.getSimpleName().isEmpty() ? strategyClass.getName() : strategyClass.getSimpleName(), histogram));
+        strategies.forEach((name, histogram) -> appendHistogram(builder, name, histogram));
+
+        builder.append("<newline><gold>Chats:</gold>");
+        new TreeMap<>(timings.getChats()).forEach((chatId, histogram) -> appendHistogram(builder, chatId, histogram));
+
+        builder.append("<newline><gold>Delivery:</gold>");
+        appendHistogram(builder, "all", timings.getDelivery());
+
+        builder.append("<newline><gold>Saved personal renders:</gold> <white>")
+                .append(timings.getSavedPostRenders())
+                .append("</white>");
+
+        long relationalCacheHits = timings.getRelationalCacheHits();
+        long relationalCacheRequests = relationalCacheHits + timings.getRelationalCacheMisses();
+        builder.append("<newline><gold>Relational placeholders cache:</gold> <gray>hits ")
+                .append(relationalCacheHits)
+                .append(" of ")
+                .append(relationalCacheRequests);
+        if (relationalCacheRequests != 0) {
+            builder.append(String.format(Locale.ROOT, " (%.1f%%)", relationalCacheHits * 100.0 / relationalCacheRequests));
+        }
+        builder.append("</gray>");
+
+        builder.append("<newline><gold>Database:</gold> <gray>queued ")
+                .append(asyncRepository.getQueueSize())
+                .append(", active ")
+                .append(asyncRepository.getActiveCount())
+                .append("</gray>");
+        appendHistogram(builder, "wait", timings.getDatabaseQueue());
+        appendHistogram(builder, "execution", timings.getDatabaseExecution());
+
+        audiences.sender(commandContext.getSender())
+                .sendMessage(MiniMessage.miniMessage().deserialize(builder.toString()));
+    }
+
+    private static void appendHistogram(StringBuilder builder, String name, LatencyHistogram histogram) {
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        builder.append("<newline> <yellow>")
+                .append(MiniMessage.miniMessage().escapeTags(name))
+                .append("</yellow><gray>: count ")
+                .append(snapshot.getCount());
+        if (snapshot.getCount() != 0) {
+            builder.append(", p50 ").append(formatNanos(snapshot.getP50Nanos()))
+                    .append(", p99 ").append(formatNanos(snapshot.getP99Nanos()))
+                    .append(", p999 ").append(formatNanos(snapshot.getP999Nanos()))
+                    .append(", max ").append(formatNanos(snapshot.getMaxNanos()));
+        }
+        builder.append("</gray>");
+    }
+
+    private static String formatNanos(long nanos) {
+        return String.format(Locale.ROOT, "%.3fms", nanos / 1_000_000.0);
+    }
+
+    private static String formatDuration(Duration duration) {
+        long seconds = duration.getSeconds();
+        return String.format(Locale.ROOT, "%dh %dm %ds", seconds / 3600, (seconds % 3600) / 60, seconds % 60);
+    }
+
+}
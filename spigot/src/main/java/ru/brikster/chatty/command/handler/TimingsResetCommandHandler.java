@@ -0,0 +1,29 @@
+package ru.brikster.chatty.command.handler;
+
+import cloud.commandframework.context.CommandContext;
+import cloud.commandframework.execution.CommandExecutionHandler;
+import lombok.RequiredArgsConstructor;
+import net.kyori.adventure.platform.bukkit.BukkitAudiences;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.bukkit.command.CommandSender;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import ru.brikster.chatty.timings.PipelineTimings;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+@RequiredArgsConstructor(onConstructor_ = {@Inject})
+public final class TimingsResetCommandHandler implements CommandExecutionHandler<CommandSender> {
+
+    private final PipelineTimings timings;
+    private final BukkitAudiences audiences;
+
+    @Override
+    public void execute(@NonNull CommandContext<CommandSender> commandContext) {
+        timings.reset();
+        audiences.sender(commandContext.getSender())
+                .sendMessage(MiniMessage.miniMessage().deserialize("<green>Chatty timings have been reset."));
+    }
+
+}
@@ -9,6 +9,8 @@ import eu.okaeri.validator.annotation.Positive;
 import lombok.Getter;
 import ru.brikster.chatty.BuildConstants;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -111,7 +113,7 @@ public class ModerationConfig extends OkaeriConfig {
             "",
             "Swear moderation method.",
             "Swears and whitelist located in \"plugins/Chatty/swears\" folder. ",
-            "\"swears.txt\" should contain regular expressions from new lines, ",
+            "\"swears.txt\" should contain swear words or regular expressions from new lines, ",
             "\"whitelist.txt\" - whitelist words from new line (case insensitive)"
     })
     private SwearModerationConfig swear = new SwearModerationConfig();
@@ -136,6 +138,50 @@ public class ModerationConfig extends OkaeriConfig {
         })
         private String replacement = "<swear>";
 
+        @Comment({
+                "",
+                "Normalization of messages before matching of plain swear words.",
+                "Swear words are normalized the same way. Regular expressions are matched against original message"
+        })
+        private SwearNormalizationConfig normalization = new SwearNormalizationConfig();
+
+    }
+
+    @Getter
+    @SuppressWarnings("FieldMayBeFinal")
+    @Names(strategy = NameStrategy.HYPHEN_CASE, modifier = NameModifier.TO_LOWER_CASE)
+    public static class SwearNormalizationConfig extends OkaeriConfig {
+
+        @Comment({
+                "Match swears regardless of repeated letters (\"fooool\" matches \"fool\").",
+                "Letter, that is repeated in the swear, matches only the same or longer repeat"
+        })
+        private boolean collapseRepeatedLetters = false;
+
+        @Comment({
+                "",
+                "Single characters, that are replaced after lower-casing (leet-speak and homoglyphs)"
+        })
+        private Map<String, String> characters = new LinkedHashMap<>() {{
+            put("0", "o");
+            put("1", "i");
+            put("3", "e");
+            put("4", "a");
+            put("5", "s");
+            put("7", "t");
+            put("@", "a");
+            put("$", "s");
+            put("а", "a");
+            put("е", "e");
+            put("ё", "e");
+            put("к", "k");
+            put("о", "o");
+            put("р", "p");
+            put("с", "c");
+            put("у", "y");
+            put("х", "x");
+        }};
+
     }
 
 }
@@ -49,6 +49,12 @@ public class PmConfig extends OkaeriConfig {
     @Comment({"", "Parse links in private messages?"})
     private boolean parseLinks = true;
 
+    @Comment({"",
+            "Cooldowns in seconds for /msg and /reply commands.",
+            "Bypass permission: chatty.bypass.cooldown.pm"})
+    private int msgCooldown = 0;
+    private int replyCooldown = 0;
+
     @Comment({"",
             "Permission for spy: chatty.spy.pm"
     })
@@ -10,6 +10,10 @@ import org.bukkit.event.EventPriority;
 import ru.brikster.chatty.BuildConstants;
 import ru.brikster.chatty.convert.component.ComponentStringConverter;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 @Getter
@@ -89,6 +93,74 @@ public class SettingsConfig extends OkaeriConfig {
     })
     private RelationalPlaceholdersOrder relationalPlaceholdersOrder = RelationalPlaceholdersOrder.SENDER_AND_TARGET;
 
+    @Comment({"",
+            "Time to live of cached prefixes and suffixes (in seconds), use 0 to disable caching.",
+            "Used only for Vault: LuckPerms prefixes are cached until they are changed"})
+    private int prefixCacheTtl = 5;
+
+    @Comment({"",
+            "Check Chatty permissions of online players using snapshots, that are taken",
+            "on the main thread on join, on world change and on LuckPerms changes,",
+            "instead of asking permissions plugin for every recipient of every message"})
+    private boolean permissionSnapshots = true;
+
+    @Comment({"", "Period (in ticks), during which snapshots of all online players are refreshed.",
+            "Required for permissions plugins without change events, use 0 to disable"})
+    private int permissionSnapshotsRefreshPeriod = 100;
+
+    @Comment({"", "Period (in ticks) of saving usernames of joined players to the database in one batch"})
+    private int userUpsertFlushPeriod = 100;
+
+    @Comment({"", "Count of threads, that execute database operations (up to 32).",
+            "Shared database connection pool has 2 more connections"})
+    private int databaseThreads = 2;
+
+    @Comment({"", "Maximum count of database operations, that wait for a thread.",
+            "Operations beyond the limit fail instead of slowing down the server"})
+    private int databaseQueueSize = 1000;
+
+    @Comment({"", "Time to live (in seconds) of resolved usernames and UUIDs of offline and remote players"})
+    private int nameCacheTtl = 600;
+
+    @Comment({"", "Time to live (in seconds) of failed resolutions (e.g. of mistyped names)"})
+    private int nameCacheNegativeTtl = 30;
+
+    @Comment({"", "Maximum count of cached usernames and UUIDs"})
+    private int nameCacheSize = 10000;
+
+    @Comment({"", "Settings for PlaceholderAPI placeholders"})
+    private PlaceholderApiConfig placeholderApi = new PlaceholderApiConfig();
+
+    @Getter
+    @Names(strategy = NameStrategy.HYPHEN_CASE, modifier = NameModifier.TO_LOWER_CASE)
+    public static class PlaceholderApiConfig extends OkaeriConfig {
+
+        @Comment({"Resolve placeholders from formats, notifications and replacements",
+                "on the main thread periodically (and on join), instead of resolving them",
+                "from the chat thread for every message.",
+                "Some expansions are slow or not thread-safe, so it's recommended to keep it enabled"})
+        private boolean snapshots = true;
+
+        @Comment({"", "Period of snapshots refreshing (in ticks)"})
+        private int snapshotsRefreshPeriod = 20;
+
+        @Comment({"", "Placeholders, that are always resolved on message sending,",
+                "if their values should be always fresh (e.g. \"%server_time_HH:mm:ss%\")"})
+        private List<String> volatilePlaceholders = new ArrayList<>();
+
+        @Comment({"", "Time to live of cached relational placeholders values (in seconds).",
+                "Values are cached for every pair of players, use 0 to disable caching"})
+        private int relationalCacheTtl = 5;
+
+        @Comment({"", "Time to live for specific relational placeholders (in seconds),",
+                "e.g. \"%rel_factions_relation%\": 30"})
+        private Map<String, Integer> relationalCacheTtlOverrides = new HashMap<>();
+
+        @Comment({"", "Maximum count of cached relational placeholders values"})
+        private int relationalCacheSize = 50000;
+
+    }
+
     @Comment({"", "Settings for parsing links from player messages.", "See chats.yml for per-chat enabling"})
     private LinksParsingConfig linksParsing = new LinksParsingConfig();
 
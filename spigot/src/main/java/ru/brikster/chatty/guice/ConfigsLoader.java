@@ -2,20 +2,28 @@ package ru.brikster.chatty.guice;
 
 import com.google.inject.Inject;
 import net.kyori.adventure.platform.bukkit.BukkitAudiences;
-import ru.brikster.chatty.api.chat.Chat;
 import ru.brikster.chatty.api.chat.ChatStyle;
 import ru.brikster.chatty.chat.ChatImpl;
 import ru.brikster.chatty.chat.component.impl.PlaceholdersComponentTransformer;
+import ru.brikster.chatty.chat.construct.ComponentFromContextConstructor;
+import ru.brikster.chatty.chat.message.transform.decorations.PlayerDecorationsFormatter;
+import ru.brikster.chatty.chat.range.PlayerPositionGrid;
 import ru.brikster.chatty.chat.registry.ChatRegistry;
 import ru.brikster.chatty.config.file.ChatsConfig;
 import ru.brikster.chatty.config.file.NotificationsConfig;
+import ru.brikster.chatty.config.file.PmConfig;
+import ru.brikster.chatty.config.file.ReplacementsConfig;
+import ru.brikster.chatty.config.file.VanillaConfig;
 import ru.brikster.chatty.convert.component.ComponentStringConverter;
 import ru.brikster.chatty.notification.ActionbarNotification;
 import ru.brikster.chatty.notification.ChatNotification;
 import ru.brikster.chatty.notification.NotificationTicker;
 import ru.brikster.chatty.notification.TitleNotification;
 import ru.brikster.chatty.notification.TitleNotification.TitleNotificationMessage;
+import ru.brikster.chatty.papi.PlaceholderApiSnapshotService;
+import ru.brikster.chatty.permission.PermissionSnapshotService;
 
+import java.util.List;
 import java.util.stream.Collectors;
 
 public final class ConfigsLoader {
@@ -23,9 +31,12 @@ public final class ConfigsLoader {
     @Inject
     public void loadChannels(ChatsConfig config,
                              ChatRegistry registry,
-                             ComponentStringConverter componentConverter) {
+                             ComponentStringConverter componentConverter,
+                             ComponentFromContextConstructor componentFromContextConstructor,
+                             PermissionSnapshotService permissionSnapshots,
+                             PlayerPositionGrid positionGrid) {
         config.getChats().forEach((chatId, chatConfig) -> {
-            Chat chat = new ChatImpl(chatId,
+            ChatImpl chat = new ChatImpl(chatId,
                     chatConfig.getDisplayName(),
                     componentConverter.stringToComponent(chatConfig.getFormat()),
                     chatConfig.getMessageFormat(),
@@ -44,9 +55,66 @@ public final class ConfigsLoader {
                     chatConfig.getSpy().isEnable(),
                     chatConfig.isPlaySound() ? chatConfig.getSound() : null,
                     componentConverter.stringToComponent(chatConfig.getSpy().getFormat()),
-                    chatConfig.getCooldown());
+                    chatConfig.getCooldown(),
+                    permissionSnapshots,
+                    positionGrid);
+
+            componentFromContextConstructor.precompile(chat.getFormat(), chat.getMessageFormat());
+            componentFromContextConstructor.precompile(chat.getSpyFormat(), chat.getMessageFormat());
+            chat.getStyles().forEach(style ->
+                    componentFromContextConstructor.precompile(style.format(), style.messageFormat()));
+
+            permissionSnapshots.track(chat.getPermissionNodes());
+            permissionSnapshots.addListener(chat);
+
             registry.register(chatId, chat);
         });
+
+        permissionSnapshots.track(List.of(
+                "chatty.bypass.cooldown",
+                "chatty.bypass.moderation",
+                "chatty.bypass.moderation.ads",
+                "chatty.bypass.moderation.caps",
+                "chatty.bypass.moderation.swear",
+                "chatty.mentions",
+                "chatty.parselinks",
+                "chatty.spy.pm"));
+        permissionSnapshots.track(PlayerDecorationsFormatter.PERMISSION_NODES);
+    }
+
+    @Inject
+    public void loadPlaceholderApiSnapshots(PlaceholderApiSnapshotService snapshotService,
+                                            ChatsConfig chatsConfig,
+                                            PmConfig pmConfig,
+                                            ReplacementsConfig replacementsConfig,
+                                            NotificationsConfig notificationsConfig,
+                                            VanillaConfig vanillaConfig) {
+        chatsConfig.getChats().values().forEach(chatConfig -> {
+            snapshotService.track(chatConfig.getFormat());
+            snapshotService.track(chatConfig.getSpy().getFormat());
+            chatConfig.getStyles().values().forEach(styleConfig -> snapshotService.track(styleConfig.getFormat()));
+        });
+
+        snapshotService.track(pmConfig.getFromFormat());
+        snapshotService.track(pmConfig.getToFormat());
+        snapshotService.track(pmConfig.getSpy().getFormat());
+
+        replacementsConfig.getReplacements().values().forEach(snapshotService::track);
+
+        notificationsConfig.getChat().getLists().values().forEach(channelConfig ->
+                channelConfig.getMessages().forEach(snapshotService::track));
+        notificationsConfig.getActionbar().getLists().values().forEach(channelConfig ->
+                channelConfig.getMessages().forEach(snapshotService::track));
+        notificationsConfig.getTitle().getLists().values().forEach(channelConfig ->
+                channelConfig.getMessages().forEach(titleConfig -> {
+                    snapshotService.track(titleConfig.getTitle());
+                    snapshotService.track(titleConfig.getSubtitle());
+                }));
+
+        snapshotService.track(vanillaConfig.getJoin().getMessage());
+        snapshotService.track(vanillaConfig.getJoin().getFirstJoin().getMessage());
+        snapshotService.track(vanillaConfig.getQuit().getMessage());
+        snapshotService.track(vanillaConfig.getDeath().getMessage());
     }
 
     @Inject
@@ -70,6 +70,9 @@ import ru.brikster.chatty.convert.message.LegacyToMiniMessageConverter;
 import ru.brikster.chatty.convert.message.MessageConverter;
 import ru.brikster.chatty.notification.NotificationTicker;
 import ru.brikster.chatty.notification.ScheduledExecutorNotificationTicker;
+import ru.brikster.chatty.papi.PlaceholderApiSnapshotService;
+import ru.brikster.chatty.papi.RelationalPlaceholderCache;
+import ru.brikster.chatty.player.PlayerSessionRegistry;
 import ru.brikster.chatty.prefix.LuckpermsPrefixProvider;
 import ru.brikster.chatty.prefix.NullPrefixProvider;
 import ru.brikster.chatty.prefix.PrefixProvider;
@@ -77,6 +80,7 @@ import ru.brikster.chatty.prefix.VaultPrefixProvider;
 import ru.brikster.chatty.proxy.DummyProxyService;
 import ru.brikster.chatty.proxy.ProxyService;
 import ru.brikster.chatty.proxy.ProxyServiceImpl;
+import ru.brikster.chatty.repository.player.AsyncPlayerDataRepository;
 import ru.brikster.chatty.repository.player.MysqlPlayerDataRepository;
 import ru.brikster.chatty.repository.player.PlayerDataRepository;
 import ru.brikster.chatty.repository.player.PostgresPlayerDataRepository;
@@ -165,10 +169,8 @@ public final class GeneralGuiceModule extends AbstractModule {
 
         if (proxyConfig.isEnable()) {
             setupRedis(proxyConfig);
-            setupSharedDatabase(proxyConfig);
             bind(ProxyService.class).to(ProxyServiceImpl.class);
         } else {
-            bind(PlayerDataRepository.class).toInstance(new SqlitePlayerDataRepository(dataFolderPath));
             bind(ProxyService.class).to(DummyProxyService.class);
         }
 
@@ -243,13 +245,18 @@ public final class GeneralGuiceModule extends AbstractModule {
         bind(Config.class).toInstance(redisConfig);
     }
 
-    private void setupSharedDatabase(ProxyConfig proxyConfig) {
+    @Provides
+    @Singleton
+    public PlayerDataRepository playerDataRepository(ProxyConfig proxyConfig, SettingsConfig settingsConfig) {
+        if (!proxyConfig.isEnable()) {
+            return new SqlitePlayerDataRepository(dataFolderPath);
+        }
+
+        int poolSize = AsyncPlayerDataRepository.getPoolSize(settingsConfig);
         if (proxyConfig.getDatabaseConfig().getType() == DatasourceType.POSTGRESQL) {
-            bind(PlayerDataRepository.class)
-                    .toInstance(new PostgresPlayerDataRepository(proxyConfig.getDatabaseConfig()));
+            return new PostgresPlayerDataRepository(proxyConfig.getDatabaseConfig(), poolSize);
         } else if (proxyConfig.getDatabaseConfig().getType() == DatasourceType.MYSQL) {
-            bind(PlayerDataRepository.class)
-                    .toInstance(new MysqlPlayerDataRepository(proxyConfig.getDatabaseConfig()));
+            return new MysqlPlayerDataRepository(proxyConfig.getDatabaseConfig(), poolSize);
         } else {
             throw new IllegalArgumentException(proxyConfig.getDatabaseConfig().getType() + " database is not implemented yet");
         }
@@ -282,14 +289,16 @@ public final class GeneralGuiceModule extends AbstractModule {
 
     @Provides
     @Singleton
-    public ReplacementsStringTransformer replacementsStringTransformer(ProxyConfig proxyConfig) {
+    public ReplacementsStringTransformer replacementsStringTransformer(ProxyConfig proxyConfig,
+                                                                       PlaceholderApiSnapshotService snapshotService,
+                                                                       PlayerSessionRegistry sessions) {
         List<ReplacementsStringTransformer> transformerList = new LinkedList<>();
 
         if (Bukkit.getServer().getPluginManager().isPluginEnabled("PlaceholderAPI")) {
-            transformerList.add(new PlaceholderApiReplacementsStringTransformer());
+            transformerList.add(new PlaceholderApiReplacementsStringTransformer(snapshotService));
         }
 
-        transformerList.add(new InternalPlaceholdersReplacementsStringTransformer());
+        transformerList.add(new InternalPlaceholdersReplacementsStringTransformer(sessions));
 
         return (sender, message) -> {
             String result = message;
@@ -305,6 +314,7 @@ public final class GeneralGuiceModule extends AbstractModule {
     public PlaceholdersComponentTransformer placeholdersComponentTransformer(ReplacementsConfig replacementsConfig,
                                                                              ComponentStringConverter componentStringConverter,
                                                                              ReplacementsStringTransformer replacementsStringTransformer,
+                                                                             PlaceholderApiSnapshotService snapshotService,
                                                                              Logger logger) {
         List<PlaceholdersComponentTransformer> transformerList = new LinkedList<>();
 
@@ -319,7 +329,7 @@ public final class GeneralGuiceModule extends AbstractModule {
         transformerList.add(new ReplacementsComponentTransformer(replacementsConfig, componentStringConverter, replacementsStringTransformer, cycleAnalysisResult.getKeysWithCycles()));
 
         if (Bukkit.getServer().getPluginManager().isPluginEnabled("PlaceholderAPI")) {
-            transformerList.add(new CommonChatPlaceholderApiComponentTransformer(componentStringConverter));
+            transformerList.add(new CommonChatPlaceholderApiComponentTransformer(componentStringConverter, snapshotService));
         }
 
         return new ChainPlaceholdersComponentTransformer(transformerList);
@@ -327,25 +337,28 @@ public final class GeneralGuiceModule extends AbstractModule {
 
     @Provides
     @Singleton
-    public PmFromPlaceholdersComponentTransformer pmFromPlaceholdersComponentTransformer(ComponentStringConverter componentStringConverter) {
+    public PmFromPlaceholdersComponentTransformer pmFromPlaceholdersComponentTransformer(ComponentStringConverter componentStringConverter,
+                                                                                         PlaceholderApiSnapshotService snapshotService) {
         return Bukkit.getServer().getPluginManager().isPluginEnabled("PlaceholderAPI")
-                ? new PmFromPlaceholderApiComponentTransformer(componentStringConverter)
+                ? new PmFromPlaceholderApiComponentTransformer(componentStringConverter, snapshotService)
                 : new DummyPlaceholdersComponentTransformer();
     }
 
     @Provides
     @Singleton
-    public PmToPlaceholdersComponentTransformer pmToPlaceholdersComponentTransformer(ComponentStringConverter componentStringConverter) {
+    public PmToPlaceholdersComponentTransformer pmToPlaceholdersComponentTransformer(ComponentStringConverter componentStringConverter,
+                                                                                     PlaceholderApiSnapshotService snapshotService) {
         return Bukkit.getServer().getPluginManager().isPluginEnabled("PlaceholderAPI")
-                ? new PmToPlaceholderApiComponentTransformer(componentStringConverter)
+                ? new PmToPlaceholderApiComponentTransformer(componentStringConverter, snapshotService)
                 : new DummyPlaceholdersComponentTransformer();
     }
 
     @Provides
     @Singleton
-    public RelationalPlaceholdersComponentTransformer relationalPlaceholdersComponentTransformer(ComponentStringConverter componentStringConverter) {
+    public RelationalPlaceholdersComponentTransformer relationalPlaceholdersComponentTransformer(ComponentStringConverter componentStringConverter,
+                                                                                                 RelationalPlaceholderCache relationalPlaceholderCache) {
         return Bukkit.getServer().getPluginManager().isPluginEnabled("PlaceholderAPI")
-                ? new PlaceholderApiRelationalComponentTransformer(componentStringConverter)
+                ? new PlaceholderApiRelationalComponentTransformer(componentStringConverter, relationalPlaceholderCache)
                 : new DummyRelationalPlaceholdersComponentTransformer();
     }
 
@@ -0,0 +1,181 @@
+package ru.brikster.chatty.papi;
+
+import me.clip.placeholderapi.PlaceholderAPI;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.HoverEvent;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.brikster.chatty.config.file.SettingsConfig;
+import ru.brikster.chatty.config.file.SettingsConfig.PlaceholderApiConfig;
+import ru.brikster.chatty.player.PlayerRefreshCycle;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Values of PlaceholderAPI placeholders, that are used in configs, resolved on the main thread.
+ * Chat pipeline reads them from any thread without calling PlaceholderAPI.
+ * Placeholders, that aren't tracked (or are volatile), and players without snapshot are resolved live.
+ */
+@Singleton
+public final class PlaceholderApiSnapshotService implements Listener {
+
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("%([^%]+)%");
+
+    // Prefixes of placeholders in private messages formats, see PmFromPlaceholderApiComponentTransformer
+    private static final Pattern PM_PLACEHOLDER_PREFIX_PATTERN = Pattern.compile("^%(from|to):");
+
+    @Inject private Plugin plugin;
+    @Inject private SettingsConfig settingsConfig;
+
+    private final Set<String> trackedPlaceholders = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Map<String, String>> snapshots = new ConcurrentHashMap<>();
+
+    private Set<String> volatilePlaceholders;
+    private BukkitTask refreshTask;
+
+    public void track(@NotNull String text) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        Matcher matcher = PLACEHOLDER_PATTERN.matcher(text);
+        while (matcher.find()) {
+            String placeholder = PM_PLACEHOLDER_PREFIX_PATTERN.matcher(matcher.group()).replaceFirst("%");
+            // Relational placeholders depend on two players, so they cannot be resolved for one
+            if (!placeholder.startsWith("%rel_") && !getVolatilePlaceholders().contains(placeholder)) {
+                trackedPlaceholders.add(placeholder);
+            }
+        }
+    }
+
+    public void track(@Nullable Component component) {
+        if (component == null) {
+            return;
+        }
+
+        if (component instanceof TextComponent) {
+            track(((TextComponent) component).content());
+        }
+
+        if (component.clickEvent() != null) {
+            track(component.clickEvent().value());
+        }
+
+        HoverEvent<?> hoverEvent = component.hoverEvent();
+        if (hoverEvent != null && hoverEvent.action() == HoverEvent.Action.SHOW_TEXT) {
+            track((Component) hoverEvent.value());
+        }
+
+        for (Component child : component.children()) {
+            track(child);
+        }
+    }
+
+    public void start() {
+        if (!isEnabled() || trackedPlaceholders.isEmpty()) {
+            return;
+        }
+
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        int period = Math.max(1, settingsConfig.getPlaceholderApi().getSnapshotsRefreshPeriod());
+        this.refreshTask = Bukkit.getScheduler().runTaskTimer(plugin, new PlayerRefreshCycle(period, this::refresh), 0, 1);
+    }
+
+    public void stop() {
+        HandlerList.unregisterAll(this);
+
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+        snapshots.clear();
+    }
+
+    /**
+     * Sets placeholders like {@link PlaceholderAPI#setPlaceholders(OfflinePlayer, String)} does,
+     * but takes values from the snapshot of player, if all placeholders of text are there
+     */
+    public @NotNull String setPlaceholders(@Nullable OfflinePlayer player, @NotNull String text) {
+        Map<String, String> snapshot = player == null ? null : snapshots.get(player.getUniqueId());
+        if (snapshot == null) {
+            return PlaceholderAPI.setPlaceholders(player, text);
+        }
+
+        Matcher matcher = PLACEHOLDER_PATTERN.matcher(text);
+        StringBuilder builder = null;
+        int beginIndex = 0;
+        while (matcher.find()) {
+            String value = snapshot.get(matcher.group());
+            if (value == null) {
+                return PlaceholderAPI.setPlaceholders(player, text);
+            }
+            if (builder == null) {
+                builder = new StringBuilder(text.length());
+            }
+            builder.append(text, beginIndex, matcher.start()).append(value);
+            beginIndex = matcher.end();
+        }
+
+        if (builder == null) {
+            return text;
+        }
+
+        return builder.append(text, beginIndex, text.length()).toString();
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        snapshots.remove(event.getPlayer().getUniqueId());
+    }
+
+    private void refresh(Player player) {
+        Map<String, String> snapshot = new HashMap<>(trackedPlaceholders.size() * 2);
+        for (String placeholder : trackedPlaceholders) {
+            snapshot.put(placeholder, PlaceholderAPI.setPlaceholders(player, placeholder));
+        }
+        snapshots.put(player.getUniqueId(), snapshot);
+    }
+
+    private boolean isEnabled() {
+        PlaceholderApiConfig config = settingsConfig.getPlaceholderApi();
+        return config.isSnapshots() && Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI");
+    }
+
+    private Set<String> getVolatilePlaceholders() {
+        if (volatilePlaceholders == null) {
+            Set<String> placeholders = new HashSet<>();
+            for (String placeholder : settingsConfig.getPlaceholderApi().getVolatilePlaceholders()) {
+                placeholders.add(placeholder.startsWith("%") ? placeholder : "%" + placeholder + "%");
+            }
+            this.volatilePlaceholders = placeholders;
+        }
+        return volatilePlaceholders;
+    }
+
+}
@@ -0,0 +1,153 @@
+package ru.brikster.chatty.papi;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import lombok.Value;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import ru.brikster.chatty.config.file.SettingsConfig;
+import ru.brikster.chatty.config.file.SettingsConfig.PlaceholderApiConfig;
+import ru.brikster.chatty.timings.PipelineTimings;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Values of relational placeholders for (sender, target, placeholder).
+ * Relations between players change rarely, but are requested for every recipient of every message
+ */
+@Singleton
+public final class RelationalPlaceholderCache implements Listener {
+
+    private final PipelineTimings timings;
+
+    private final long defaultTtlNanos;
+    private final Map<String, Long> ttlNanosOverrides = new HashMap<>();
+
+    private final Cache<PairKey, CachedValue> cache;
+    // Online player -> keys, where player is one of the pair, so entries of the quit player are found without scan
+    private final Map<UUID, Set<PairKey>> playerKeys = new ConcurrentHashMap<>();
+
+    @Inject
+    public RelationalPlaceholderCache(SettingsConfig settingsConfig, PipelineTimings timings) {
+        this.timings = timings;
+
+        PlaceholderApiConfig config = settingsConfig.getPlaceholderApi();
+        this.defaultTtlNanos = Duration.ofSeconds(config.getRelationalCacheTtl()).toNanos();
+
+        long maxTtlNanos = defaultTtlNanos;
+        for (Map.Entry<String, Integer> entry : config.getRelationalCacheTtlOverrides().entrySet()) {
+            String placeholder = entry.getKey().startsWith("%") ? entry.getKey() : "%" + entry.getKey() + "%";
+            long ttlNanos = Duration.ofSeconds(entry.getValue()).toNanos();
+            ttlNanosOverrides.put(placeholder, ttlNanos);
+            maxTtlNanos = Math.max(maxTtlNanos, ttlNanos);
+        }
+
+        // Entries are evicted after the longest TTL, shorter TTLs are checked on read
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(0, config.getRelationalCacheSize()))
+                .expireAfterWrite(Duration.ofNanos(Math.max(1, maxTtlNanos)))
+                .removalListener((RemovalListener<PairKey, CachedValue>) notification -> {
+                    if (notification.getCause() != RemovalCause.REPLACED) {
+                        unindex(notification.getKey().getOne(), notification.getKey());
+                        unindex(notification.getKey().getTwo(), notification.getKey());
+                    }
+                })
+                .build();
+    }
+
+    public void start(@NotNull Plugin plugin) {
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            playerKeys.putIfAbsent(player.getUniqueId(), new HashSet<>());
+        }
+    }
+
+    public @NotNull String get(@NotNull Player one, @NotNull Player two, @NotNull String placeholder,
+                               @NotNull Supplier<@NotNull String> valueSupplier) {
+        long ttlNanos = ttlNanosOverrides.getOrDefault(placeholder, defaultTtlNanos);
+        if (ttlNanos <= 0) {
+            return valueSupplier.get();
+        }
+
+        PairKey key = new PairKey(one.getUniqueId(), two.getUniqueId(), placeholder);
+        long now = System.nanoTime();
+
+        CachedValue cachedValue = cache.getIfPresent(key);
+        if (cachedValue != null && now - cachedValue.getCreatedNanos() < ttlNanos) {
+            timings.recordRelationalCacheHit();
+            return cachedValue.getValue();
+        }
+
+        timings.recordRelationalCacheMiss();
+        String value = valueSupplier.get();
+        cache.put(key, new CachedValue(value, now));
+        // Keys are indexed after put, and only for online players, so the entry is either
+        // invalidated by the quit handler, or isn't indexed and is invalidated here
+        if (!index(key.getOne(), key) || !index(key.getTwo(), key)) {
+            cache.invalidate(key);
+        }
+        return value;
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        playerKeys.putIfAbsent(event.getPlayer().getUniqueId(), new HashSet<>());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        Set<PairKey> keys = playerKeys.remove(event.getPlayer().getUniqueId());
+        if (keys != null) {
+            cache.invalidateAll(keys);
+        }
+    }
+
+    /**
+     * @return false if the player is offline
+     */
+    private boolean index(UUID uuid, PairKey key) {
+        return playerKeys.computeIfPresent(uuid, (k, keys) -> {
+            keys.add(key);
+            return keys;
+        }) != null;
+    }
+
+    private void unindex(UUID uuid, PairKey key) {
+        playerKeys.computeIfPresent(uuid, (k, keys) -> {
+            keys.remove(key);
+            return keys;
+        });
+    }
+
+    @Value
+    private static class PairKey {
+        UUID one;
+        UUID two;
+        String placeholder;
+    }
+
+    @Value
+    private static class CachedValue {
+        String value;
+        long createdNanos;
+    }
+
+}
@@ -0,0 +1,33 @@
+package ru.brikster.chatty.permission;
+
+import lombok.experimental.UtilityClass;
+import net.luckperms.api.LuckPermsProvider;
+import net.luckperms.api.event.EventBus;
+import net.luckperms.api.event.EventSubscription;
+import net.luckperms.api.event.context.ContextUpdateEvent;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Isolates LuckPerms classes, so they are loaded only if LuckPerms is enabled
+ */
+@UtilityClass
+class LuckpermsPermissionChanges {
+
+    @NotNull AutoCloseable subscribe(@NotNull Consumer<UUID> changeListener) {
+        EventBus eventBus = LuckPermsProvider.get().getEventBus();
+        EventSubscription<UserDataRecalculateEvent> recalculateSubscription = eventBus.subscribe(UserDataRecalculateEvent.class,
+                event -> changeListener.accept(event.getUser().getUniqueId()));
+        EventSubscription<ContextUpdateEvent> contextSubscription = eventBus.subscribe(ContextUpdateEvent.class,
+                event -> event.getSubject(Player.class).ifPresent(player -> changeListener.accept(player.getUniqueId())));
+        return () -> {
+            recalculateSubscription.close();
+            contextSubscription.close();
+        };
+    }
+
+}
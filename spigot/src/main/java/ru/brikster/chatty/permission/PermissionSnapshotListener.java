@@ -0,0 +1,21 @@
+package ru.brikster.chatty.permission;
+
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Listener of {@link PermissionSnapshotService}, that is called on the main thread
+ */
+public interface PermissionSnapshotListener {
+
+    /**
+     * Called after snapshot of player was taken (on join, world change or permissions change)
+     */
+    void onSnapshot(@NotNull Player player);
+
+    /**
+     * Called after snapshot of player was removed on quit
+     */
+    void onRemove(@NotNull Player player);
+
+}
@@ -0,0 +1,211 @@
+package ru.brikster.chatty.permission;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.brikster.chatty.config.file.SettingsConfig;
+import ru.brikster.chatty.player.PlayerRefreshCycle;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Chatty permission nodes of online players, checked on the main thread.
+ * Snapshots are refreshed on join, on world change, on LuckPerms recalculations and periodically,
+ * so chat pipeline doesn't call permission plugin for every recipient of every message.
+ * Nodes, that aren't tracked, and players without snapshot are checked live.
+ */
+@Singleton
+public final class PermissionSnapshotService implements Listener {
+
+    @Inject private SettingsConfig settingsConfig;
+
+    private final Set<String> trackedNodes = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, Set<String>> snapshots = new ConcurrentHashMap<>();
+
+    // Inverted index: node -> online players, who have it
+    private final Map<String, Set<Player>> holders = new ConcurrentHashMap<>();
+
+    private final List<PermissionSnapshotListener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean started;
+    private @Nullable BukkitTask refreshTask;
+    private @Nullable AutoCloseable luckpermsSubscription;
+
+    public void track(@NotNull String node) {
+        trackedNodes.add(node);
+    }
+
+    public void track(@NotNull Collection<@NotNull String> nodes) {
+        trackedNodes.addAll(nodes);
+    }
+
+    public void addListener(@NotNull PermissionSnapshotListener listener) {
+        listeners.add(listener);
+    }
+
+    public void start(@NotNull Plugin plugin) {
+        if (!settingsConfig.isPermissionSnapshots() || trackedNodes.isEmpty()) {
+            return;
+        }
+
+        for (String node : trackedNodes) {
+            holders.put(node, ConcurrentHashMap.newKeySet());
+        }
+
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+
+        if (Bukkit.getPluginManager().isPluginEnabled("LuckPerms")) {
+            // LuckPerms calls listeners asynchronously
+            this.luckpermsSubscription = LuckpermsPermissionChanges.subscribe(uuid ->
+                    Bukkit.getScheduler().runTask(plugin, () -> {
+                        Player player = Bukkit.getPlayer(uuid);
+                        if (player != null) {
+                            refresh(player);
+                        }
+                    }));
+        }
+
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            refresh(player);
+        }
+
+        int period = settingsConfig.getPermissionSnapshotsRefreshPeriod();
+        if (period > 0) {
+            this.refreshTask = Bukkit.getScheduler().runTaskTimer(plugin, new PlayerRefreshCycle(period, this::refresh), period, 1);
+        }
+
+        this.started = true;
+    }
+
+    public void stop() {
+        this.started = false;
+        HandlerList.unregisterAll(this);
+
+        if (refreshTask != null) {
+            refreshTask.cancel();
+            refreshTask = null;
+        }
+
+        if (luckpermsSubscription != null) {
+            try {
+                luckpermsSubscription.close();
+            } catch (Exception e) {
+                throw new IllegalStateException("Cannot unsubscribe from LuckPerms changes", e);
+            }
+            luckpermsSubscription = null;
+        }
+
+        snapshots.clear();
+        holders.clear();
+    }
+
+    /**
+     * @return true if snapshots are taken and listeners are called
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    public boolean hasPermission(@NotNull Player player, @NotNull String node) {
+        if (!started || !trackedNodes.contains(node)) {
+            return player.hasPermission(node);
+        }
+
+        Set<String> snapshot = snapshots.get(player.getUniqueId());
+        if (snapshot == null) {
+            return player.hasPermission(node);
+        }
+
+        return snapshot.contains(node);
+    }
+
+    /**
+     * @param node the permission node
+     * @return unmodifiable live view of online players, who have the node,
+     * or null if the node isn't tracked (or snapshots are disabled)
+     */
+    public @Nullable Set<Player> getHolders(@NotNull String node) {
+        if (!started) {
+            return null;
+        }
+
+        Set<Player> nodeHolders = holders.get(node);
+        return nodeHolders == null ? null : Collections.unmodifiableSet(nodeHolders);
+    }
+
+    public void refresh(@NotNull Player player) {
+        Set<String> snapshot = new HashSet<>();
+        for (String node : trackedNodes) {
+            if (player.hasPermission(node)) {
+                snapshot.add(node);
+            }
+        }
+
+        Set<String> previousSnapshot = snapshots.put(player.getUniqueId(), Collections.unmodifiableSet(snapshot));
+        for (String node : trackedNodes) {
+            boolean granted = snapshot.contains(node);
+            boolean previouslyGranted = previousSnapshot != null && previousSnapshot.contains(node);
+            if (granted != previouslyGranted) {
+                Set<Player> nodeHolders = holders.computeIfAbsent(node, k -> ConcurrentHashMap.newKeySet());
+                if (granted) {
+                    nodeHolders.add(player);
+                } else {
+                    nodeHolders.remove(player);
+                }
+            }
+        }
+
+        for (PermissionSnapshotListener listener : listeners) {
+            listener.onSnapshot(player);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChangeWorld(PlayerChangedWorldEvent event) {
+        refresh(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        Player player = event.getPlayer();
+        Set<String> snapshot = snapshots.remove(player.getUniqueId());
+        if (snapshot != null) {
+            for (String node : snapshot) {
+                Set<Player> nodeHolders = holders.get(node);
+                if (nodeHolders != null) {
+                    nodeHolders.remove(player);
+                }
+            }
+        }
+
+        for (PermissionSnapshotListener listener : listeners) {
+            listener.onRemove(player);
+        }
+    }
+
+}
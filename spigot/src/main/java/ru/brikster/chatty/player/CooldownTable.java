@@ -0,0 +1,51 @@
+package ru.brikster.chatty.player;
+
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import ru.brikster.chatty.chat.registry.ChatRegistry;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cooldowns of chats and commands. Every session has one primitive slot per chat and command,
+ * so cooldowns of online players are never evicted, and are dropped together with the session on quit.
+ */
+@Singleton
+public final class CooldownTable {
+
+    public static final int MSG_COMMAND_SLOT = 0;
+    public static final int REPLY_COMMAND_SLOT = 1;
+
+    private final PlayerSessionRegistry sessions;
+
+    private final Map<String, Integer> chatSlots = new ConcurrentHashMap<>();
+    private final AtomicInteger slotsCount = new AtomicInteger(REPLY_COMMAND_SLOT + 1);
+
+    @Inject
+    public CooldownTable(PlayerSessionRegistry sessions, ChatRegistry chatRegistry) {
+        this.sessions = sessions;
+        chatRegistry.getChats().keySet().forEach(this::getChatSlot);
+    }
+
+    public int getChatSlot(@NotNull String chatId) {
+        Integer slot = chatSlots.get(chatId);
+        if (slot == null) {
+            slot = chatSlots.computeIfAbsent(chatId, k -> slotsCount.getAndIncrement());
+        }
+        return slot;
+    }
+
+    /**
+     * Starts new cooldown, if the previous one has passed
+     *
+     * @return millis left until the end of the previous cooldown, or 0 if new cooldown has been started
+     */
+    public long tryStart(@NotNull Player player, int slot, long cooldownMillis) {
+        return sessions.get(player).tryStartCooldown(slot, slotsCount.get(), System.currentTimeMillis(), cooldownMillis);
+    }
+
+}
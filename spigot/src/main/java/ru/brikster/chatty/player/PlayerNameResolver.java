@@ -0,0 +1,210 @@
+package ru.brikster.chatty.player;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.Value;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.brikster.chatty.config.file.SettingsConfig;
+import ru.brikster.chatty.proxy.ProxyService;
+import ru.brikster.chatty.repository.player.AsyncPlayerDataRepository;
+import ru.brikster.chatty.repository.player.PlayerData;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resolves usernames of offline and remote players to UUIDs and vice versa.
+ * Results of the proxy player directory and the repository are cached, including failed
+ * resolutions (with shorter TTL), so repeated lookups of mistyped names don't reach storage.
+ * Cache is filled on join, so the name of the joined player always resolves to the actual UUID.
+ */
+@Singleton
+public final class PlayerNameResolver implements Listener {
+
+    private final AsyncPlayerDataRepository asyncRepository;
+    private final ProxyService proxyService;
+
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+
+    // Lowercase username -> UUID, or null UUID if there is no such player
+    private final Cache<String, CachedValue<UUID>> uuids;
+    // UUID -> username
+    private final Cache<UUID, CachedValue<String>> usernames;
+
+    @Inject
+    public PlayerNameResolver(AsyncPlayerDataRepository asyncRepository,
+                              ProxyService proxyService,
+                              SettingsConfig settingsConfig) {
+        this.asyncRepository = asyncRepository;
+        this.proxyService = proxyService;
+        this.ttlNanos = Duration.ofSeconds(Math.max(0, settingsConfig.getNameCacheTtl())).toNanos();
+        this.negativeTtlNanos = Duration.ofSeconds(Math.max(0, settingsConfig.getNameCacheNegativeTtl())).toNanos();
+
+        // Entries are evicted after the longest TTL, negative TTL is checked on read
+        Duration expiration = Duration.ofNanos(Math.max(1, Math.max(ttlNanos, negativeTtlNanos)));
+        long maximumSize = Math.max(0, settingsConfig.getNameCacheSize());
+        this.uuids = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expiration)
+                .build();
+        this.usernames = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expiration)
+                .build();
+    }
+
+    public void start(@NotNull Plugin plugin) {
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            put(player.getUniqueId(), player.getName());
+        }
+    }
+
+    public void stop() {
+        HandlerList.unregisterAll(this);
+        uuids.invalidateAll();
+        usernames.invalidateAll();
+    }
+
+    public void preload(@NotNull Collection<@NotNull PlayerData> playersData) {
+        for (PlayerData playerData : playersData) {
+            if (playerData.getUsername() != null) {
+                put(playerData.getUuid(), playerData.getUsername());
+            }
+        }
+    }
+
+    /**
+     * @return future of UUID of the player with given name (case-insensitive), or null UUID if player is unknown
+     */
+    public @NotNull CompletableFuture<@Nullable UUID> resolveUuid(@NotNull String username) {
+        Player player = Bukkit.getPlayerExact(username);
+        if (player != null) {
+            return CompletableFuture.completedFuture(player.getUniqueId());
+        }
+
+        String key = username.toLowerCase(Locale.ROOT);
+        CachedValue<UUID> cachedValue = getValid(uuids, key);
+        if (cachedValue != null) {
+            return CompletableFuture.completedFuture(cachedValue.getValue());
+        }
+
+        return asyncRepository.getCachedUuid(username).thenApply(uuid -> {
+            if (uuid == null) {
+                putNegative(uuids, key);
+            } else {
+                put(uuid, username);
+            }
+            return uuid;
+        });
+    }
+
+    /**
+     * @return future of the last known username of the player, or null username if player is unknown
+     */
+    public @NotNull CompletableFuture<@Nullable String> resolveUsername(@NotNull UUID uuid) {
+        Player player = Bukkit.getPlayer(uuid);
+        if (player != null) {
+            return CompletableFuture.completedFuture(player.getName());
+        }
+
+        CachedValue<String> cachedValue = getValid(usernames, uuid);
+        if (cachedValue != null) {
+            return CompletableFuture.completedFuture(cachedValue.getValue());
+        }
+
+        return asyncRepository.getCachedUsername(uuid).thenApply(username -> {
+            if (username == null) {
+                putNegative(usernames, uuid);
+            } else {
+                put(uuid, username);
+            }
+            return username;
+        });
+    }
+
+    /**
+     * Resolves UUID of the player, that is online on another server.
+     * Only found players are cached, because remote player may join at any moment
+     *
+     * @return UUID of the player from the proxy player directory, or null if player is not online
+     */
+    public @Nullable UUID getRemoteUuid(@NotNull String username) {
+        CachedValue<UUID> cachedValue = getValid(uuids, username.toLowerCase(Locale.ROOT));
+        if (cachedValue != null && cachedValue.getValue() != null) {
+            return cachedValue.getValue();
+        }
+
+        UUID uuid = proxyService.getUuidByUsername(username);
+        if (uuid != null) {
+            put(uuid, username);
+        }
+        return uuid;
+    }
+
+    /**
+     * Remembers actual username of the player. Previous username of the player is forgotten
+     */
+    public void put(@NotNull UUID uuid, @NotNull String username) {
+        long now = System.nanoTime();
+        String key = username.toLowerCase(Locale.ROOT);
+
+        CachedValue<String> previousUsername = usernames.asMap().put(uuid, new CachedValue<>(username, now));
+        if (previousUsername != null && previousUsername.getValue() != null) {
+            String previousKey = previousUsername.getValue().toLowerCase(Locale.ROOT);
+            if (!previousKey.equals(key)) {
+                // Player has changed the name
+                uuids.asMap().computeIfPresent(previousKey, (k, value) -> uuid.equals(value.getValue()) ? null : value);
+            }
+        }
+
+        CachedValue<UUID> previousUuid = uuids.asMap().put(key, new CachedValue<>(uuid, now));
+        if (previousUuid != null && previousUuid.getValue() != null && !previousUuid.getValue().equals(uuid)) {
+            // Name has been taken by another player
+            usernames.invalidate(previousUuid.getValue());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        put(event.getPlayer().getUniqueId(), event.getPlayer().getName());
+    }
+
+    private <K, V> @Nullable CachedValue<V> getValid(Cache<K, CachedValue<V>> cache, K key) {
+        CachedValue<V> cachedValue = cache.getIfPresent(key);
+        return cachedValue != null && isValid(cachedValue) ? cachedValue : null;
+    }
+
+    private <K, V> void putNegative(Cache<K, CachedValue<V>> cache, K key) {
+        // Player may have joined while the repository was queried, so only expired entries are replaced
+        cache.asMap().merge(key, new CachedValue<>(null, System.nanoTime()),
+                (previous, negative) -> isValid(previous) ? previous : negative);
+    }
+
+    private boolean isValid(CachedValue<?> cachedValue) {
+        long ttl = cachedValue.getValue() == null ? negativeTtlNanos : ttlNanos;
+        return System.nanoTime() - cachedValue.getCreatedNanos() < ttl;
+    }
+
+    @Value
+    private static class CachedValue<T> {
+        @Nullable T value;
+        long createdNanos;
+    }
+
+}
@@ -0,0 +1,54 @@
+package ru.brikster.chatty.player;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Task, that runs every tick and refreshes every online player once per period, spreading the work across ticks.
+ * Online players are copied once per cycle: players, who have joined during the cycle, are refreshed by the next one,
+ * and players, who have quit, are skipped
+ */
+public final class PlayerRefreshCycle implements Runnable {
+
+    private final int period;
+    private final Consumer<Player> refreshFunction;
+
+    private List<Player> players = Collections.emptyList();
+    private int cursor;
+    private int playersPerTick;
+
+    /**
+     * @param period the period (in ticks), during which every player is refreshed
+     * @param refreshFunction the function to refresh a player, that is called on the main thread
+     */
+    public PlayerRefreshCycle(int period, @NotNull Consumer<Player> refreshFunction) {
+        this.period = Math.max(1, period);
+        this.refreshFunction = refreshFunction;
+    }
+
+    @Override
+    public void run() {
+        if (cursor >= players.size()) {
+            Collection<? extends Player> onlinePlayers = Bukkit.getOnlinePlayers();
+            this.players = onlinePlayers.isEmpty() ? Collections.emptyList() : new ArrayList<>(onlinePlayers);
+            this.cursor = 0;
+            this.playersPerTick = (players.size() + period - 1) / period;
+        }
+
+        int end = Math.min(players.size(), cursor + playersPerTick);
+        for (; cursor < end; cursor++) {
+            Player player = players.get(cursor);
+            if (player.isOnline()) {
+                refreshFunction.accept(player);
+            }
+        }
+    }
+
+}
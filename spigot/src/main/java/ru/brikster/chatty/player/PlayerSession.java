@@ -0,0 +1,102 @@
+package ru.brikster.chatty.player;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.Value;
+import net.kyori.adventure.audience.Audience;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Hot state of the online player, that lives from login to quit.
+ * Storage-backed state (spy mode, ignore relations) is kept by {@link ru.brikster.chatty.spy.SpyRegistry}
+ * and {@link ru.brikster.chatty.pm.ignore.IgnoreGraph}, which load it at the same pre-login.
+ */
+public final class PlayerSession {
+
+    @Getter
+    private final UUID uuid;
+
+    // Slot of CooldownTable -> start of the last cooldown in millis. Guarded by this session
+    private long @Nullable [] cooldowns;
+
+    /**
+     * Name of the last private conversation partner, or "Console"
+     */
+    @Getter @Setter
+    private volatile @Nullable String replyTarget;
+
+    /**
+     * Display name of the player, that is taken on the main thread, so it's safe to read from chat threads
+     */
+    @Getter @Setter(AccessLevel.PACKAGE)
+    private volatile @Nullable String displayName;
+
+    private volatile @Nullable MentionPattern mentionPattern;
+    private volatile @Nullable Audience audience;
+
+    PlayerSession(@NotNull UUID uuid) {
+        this.uuid = uuid;
+    }
+
+    /**
+     * Checks and starts the cooldown in one step. Slots are grown under the same lock,
+     * so the cooldown isn't lost, if chat is registered concurrently
+     *
+     * @param slotsCount count of slots in {@link CooldownTable}, that is greater than the slot
+     * @return millis left until the end of the previous cooldown, or 0 if new cooldown has been started
+     */
+    synchronized long tryStartCooldown(int slot, int slotsCount, long nowMillis, long cooldownMillis) {
+        if (cooldowns == null || cooldowns.length <= slot) {
+            // Grows only when chats are registered after the session was created
+            cooldowns = cooldowns == null
+                    ? new long[slotsCount]
+                    : Arrays.copyOf(cooldowns, slotsCount);
+        }
+
+        long startMillis = cooldowns[slot];
+        long millisLeft = startMillis + cooldownMillis - nowMillis;
+        if (startMillis != 0 && millisLeft > 0) {
+            return millisLeft;
+        }
+
+        cooldowns[slot] = nowMillis;
+        return 0;
+    }
+
+    /**
+     * @param displayName actual display name of the player. Pattern is recompiled only when it changes
+     */
+    public @NotNull Pattern getMentionPattern(@NotNull String displayName,
+                                              @NotNull Function<@NotNull String, @NotNull Pattern> compiler) {
+        MentionPattern mentionPattern = this.mentionPattern;
+        if (mentionPattern == null || !mentionPattern.getDisplayName().equals(displayName)) {
+            mentionPattern = new MentionPattern(displayName, compiler.apply(displayName));
+            this.mentionPattern = mentionPattern;
+        }
+        return mentionPattern.getPattern();
+    }
+
+    public @NotNull Audience getAudience(@NotNull Supplier<@NotNull Audience> audienceFactory) {
+        Audience audience = this.audience;
+        if (audience == null) {
+            audience = audienceFactory.get();
+            this.audience = audience;
+        }
+        return audience;
+    }
+
+    @Value
+    private static class MentionPattern {
+        String displayName;
+        Pattern pattern;
+    }
+
+}
@@ -0,0 +1,118 @@
+package ru.brikster.chatty.player;
+
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.platform.bukkit.BukkitAudiences;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sessions of online players. Session is created at pre-login and dropped on quit.
+ * Display names are taken on join and then every second on the main thread.
+ */
+@Singleton
+public final class PlayerSessionRegistry implements Listener {
+
+    @Inject private BukkitAudiences audiences;
+
+    private static final long DISPLAY_NAMES_REFRESH_PERIOD = 20L;
+
+    private final Map<UUID, PlayerSession> sessions = new ConcurrentHashMap<>();
+
+    private @Nullable BukkitTask displayNamesTask;
+
+    public void start(@NotNull Plugin plugin) {
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        refreshDisplayNames();
+        this.displayNamesTask = Bukkit.getScheduler().runTaskTimer(plugin, this::refreshDisplayNames,
+                DISPLAY_NAMES_REFRESH_PERIOD, DISPLAY_NAMES_REFRESH_PERIOD);
+    }
+
+    public void stop() {
+        HandlerList.unregisterAll(this);
+        if (displayNamesTask != null) {
+            displayNamesTask.cancel();
+            displayNamesTask = null;
+        }
+        sessions.clear();
+    }
+
+    /**
+     * @return session of the player. If player has quit, returned session isn't kept
+     */
+    public @NotNull PlayerSession get(@NotNull Player player) {
+        PlayerSession session = sessions.get(player.getUniqueId());
+        if (session != null) {
+            return session;
+        }
+
+        // Players, who have joined before the registry was started
+        if (player.isOnline()) {
+            return sessions.computeIfAbsent(player.getUniqueId(), PlayerSession::new);
+        }
+        return new PlayerSession(player.getUniqueId());
+    }
+
+    public @NotNull Audience audience(@NotNull Player player) {
+        return get(player).getAudience(() -> audiences.player(player));
+    }
+
+    /**
+     * @return display name of the player from the last snapshot, or the actual one if there is no snapshot yet
+     */
+    public @NotNull String displayName(@NotNull Player player) {
+        String displayName = get(player).getDisplayName();
+        return displayName == null ? player.getDisplayName() : displayName;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            // Player with the same UUID may be still online, then the session is kept
+            sessions.putIfAbsent(event.getUniqueId(), new PlayerSession(event.getUniqueId()));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED
+                && Bukkit.getPlayer(event.getPlayer().getUniqueId()) == null) {
+            sessions.remove(event.getPlayer().getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        get(player).setDisplayName(player.getDisplayName());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        sessions.remove(event.getPlayer().getUniqueId());
+    }
+
+    private void refreshDisplayNames() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            get(player).setDisplayName(player.getDisplayName());
+        }
+    }
+
+}
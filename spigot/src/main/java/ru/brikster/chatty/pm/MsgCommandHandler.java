@@ -6,6 +6,8 @@ import net.kyori.adventure.platform.bukkit.BukkitAudiences;
 import org.bukkit.command.CommandSender;
 import org.jetbrains.annotations.NotNull;
 import ru.brikster.chatty.config.file.MessagesConfig;
+import ru.brikster.chatty.config.file.PmConfig;
+import ru.brikster.chatty.player.CooldownTable;
 import ru.brikster.chatty.pm.targets.PmMessageTarget;
 
 import javax.inject.Inject;
@@ -18,6 +20,7 @@ public final class MsgCommandHandler implements CommandExecutionHandler<CommandS
     @Inject private PrivateMessageCommandHandler privateMessageCommandHandler;
     @Inject private BukkitAudiences audiences;
     @Inject private MessagesConfig messagesConfig;
+    @Inject private PmConfig pmConfig;
 
     @Override
     public void execute(@NotNull CommandContext<CommandSender> commandContext) {
@@ -30,6 +33,10 @@ public final class MsgCommandHandler implements CommandExecutionHandler<CommandS
             return;
         }
 
+        if (privateMessageCommandHandler.checkCooldown(sender, CooldownTable.MSG_COMMAND_SLOT, pmConfig.getMsgCooldown())) {
+            return;
+        }
+
         privateMessageCommandHandler.handleCommand(commandContext, sender, target);
     }
 
@@ -24,6 +24,8 @@ import ru.brikster.chatty.chat.message.transform.decorations.PlayerDecorationsFo
 import ru.brikster.chatty.config.file.PmConfig;
 import ru.brikster.chatty.config.file.ProxyConfig;
 import ru.brikster.chatty.convert.component.ComponentStringConverter;
+import ru.brikster.chatty.player.PlayerNameResolver;
+import ru.brikster.chatty.player.PlayerSessionRegistry;
 import ru.brikster.chatty.pm.targets.CommandSenderPmMessageTarget;
 import ru.brikster.chatty.pm.targets.PmMessageTarget;
 import ru.brikster.chatty.pm.targets.RemotePmMessageTarget;
@@ -48,7 +50,10 @@ public class PmMessageService {
     @Inject private ComponentStringConverter componentStringConverter;
     @Inject private ProxyConfig proxyConfig;
     @Inject private ProxyService proxyService;
+    @Inject private PlayerNameResolver nameResolver;
+    @Inject private PlayerSessionRegistry sessions;
 
+    // Conversations of console, conversations of players are kept in their sessions
     private final Cache<String, String> lastConversations = CacheBuilder.newBuilder()
             .expireAfterAccess(Duration.ofMinutes(10))
             .build();
@@ -74,7 +79,7 @@ public class PmMessageService {
         if (target == null) {
             for (String onlinePlayerName : proxyService.getOnlinePlayers()) {
                 if (onlinePlayerName.equalsIgnoreCase(targetName)) {
-                    return new RemotePmMessageTarget(onlinePlayerName, proxyService.getUuidByUsername(onlinePlayerName));
+                    return new RemotePmMessageTarget(onlinePlayerName, nameResolver.getRemoteUuid(onlinePlayerName));
                 }
             }
         }
@@ -156,7 +161,9 @@ public class PmMessageService {
         if (proxyConfig.isEnable()) {
             targetName = proxyService.getLastConversation(sender.getName());
         } else {
-            targetName = lastConversations.getIfPresent(sender.getName());
+            targetName = sender instanceof Player
+                    ? sessions.get((Player) sender).getReplyTarget()
+                    : lastConversations.getIfPresent(sender.getName());
         }
 
         if (targetName == null) {
@@ -172,7 +179,7 @@ public class PmMessageService {
 
         if (target == null && proxyConfig.isEnable()) {
             if (proxyService.isOnline(targetName)) {
-                return new RemotePmMessageTarget(targetName, proxyService.getUuidByUsername(targetName));
+                return new RemotePmMessageTarget(targetName, nameResolver.getRemoteUuid(targetName));
             }
         }
 
@@ -183,7 +190,12 @@ public class PmMessageService {
         if (proxyConfig.isEnable()) {
             proxyService.addConversation(firstSender, secondSender);
         } else {
-            lastConversations.put(firstSender, secondSender);
+            Player player = Bukkit.getPlayerExact(firstSender);
+            if (player != null) {
+                sessions.get(player).setReplyTarget(secondSender);
+            } else {
+                lastConversations.put(firstSender, secondSender);
+            }
         }
     }
 
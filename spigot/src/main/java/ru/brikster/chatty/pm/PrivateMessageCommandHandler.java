@@ -10,9 +10,12 @@ import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
 import ru.brikster.chatty.config.file.MessagesConfig;
 import ru.brikster.chatty.config.file.PmConfig;
+import ru.brikster.chatty.player.CooldownTable;
+import ru.brikster.chatty.pm.ignore.IgnoreGraph;
 import ru.brikster.chatty.pm.targets.PmMessageTarget;
 import ru.brikster.chatty.proxy.ProxyService;
-import ru.brikster.chatty.repository.player.PlayerDataRepository;
+import ru.brikster.chatty.spy.SpyRegistry;
+import ru.brikster.chatty.util.AdventureUtil;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -25,8 +28,35 @@ public final class PrivateMessageCommandHandler {
     @Inject private PmMessageService pmMessageService;
     @Inject private MessagesConfig messagesConfig;
     @Inject private BukkitAudiences audiences;
-    @Inject private PlayerDataRepository playerDataRepository;
+    @Inject private IgnoreGraph ignoreGraph;
     @Inject private ProxyService proxyService;
+    @Inject private SpyRegistry spyRegistry;
+    @Inject private CooldownTable cooldowns;
+
+    /**
+     * Starts cooldown of the command, and notifies the sender, if previous cooldown hasn't passed
+     *
+     * @param slot slot of the command in {@link CooldownTable}
+     * @return true if the command mustn't be executed
+     */
+    public boolean checkCooldown(@NotNull CommandSender sender, int slot, int cooldownSeconds) {
+        if (cooldownSeconds <= 0
+                || !(sender instanceof Player)
+                || sender.hasPermission("chatty.bypass.cooldown")
+                || sender.hasPermission("chatty.bypass.cooldown.pm")) {
+            return false;
+        }
+
+        long millisLeft = cooldowns.tryStart((Player) sender, slot, cooldownSeconds * 1000L);
+        if (millisLeft <= 0) {
+            return false;
+        }
+
+        long secondsLeft = (long) Math.ceil((double) millisLeft / 1000d);
+        audiences.sender(sender).sendMessage(messagesConfig.getWaitCooldown()
+                .replaceText(AdventureUtil.createReplacement("{secondsLeft}", secondsLeft)));
+        return true;
+    }
 
     public void handleCommand(@NotNull CommandContext<@NotNull CommandSender> commandContext,
                               @NotNull CommandSender sender,
@@ -52,7 +82,7 @@ public final class PrivateMessageCommandHandler {
                 target instanceof ConsoleCommandSender ? "Console" : target.getName());
 
         boolean ignored = sender instanceof Player && !target.isConsole()
-                && playerDataRepository.isIgnoredPlayer(target.getUuid(), ((Player) sender).getUniqueId());
+                && ignoreGraph.isIgnoring(target.getUuid(), ((Player) sender).getUniqueId());
 
         Component spyComponentFormat = null;
 
@@ -60,12 +90,11 @@ public final class PrivateMessageCommandHandler {
             spyComponentFormat = pmMessageService.transformFormat(
                     pmConfig.getSpy().getFormat(),
                     sender, target, message);
-            audiences.filter(spyCandidate -> spyCandidate.hasPermission("chatty.spy.pm")
-                            && !(spyCandidate instanceof ConsoleCommandSender)
-                            && playerDataRepository.isEnableSpy(((Player) spyCandidate).getUniqueId())
-                            && spyCandidate != sender
-                            && (!target.isOnline() || spyCandidate != target.asCommandSender()))
-                    .sendMessage(spyComponentFormat);
+            for (Player spy : spyRegistry.getSpies("chatty.spy.pm")) {
+                if (spy != sender && (!target.isOnline() || spy != target.asCommandSender())) {
+                    audiences.player(spy).sendMessage(spyComponentFormat);
+                }
+            }
         }
 
         String logMessage = "[PM] " + sender.getName() + " -> " + target.getName() + ": " + message;
@@ -6,6 +6,8 @@ import net.kyori.adventure.platform.bukkit.BukkitAudiences;
 import org.bukkit.command.CommandSender;
 import org.jetbrains.annotations.NotNull;
 import ru.brikster.chatty.config.file.MessagesConfig;
+import ru.brikster.chatty.config.file.PmConfig;
+import ru.brikster.chatty.player.CooldownTable;
 import ru.brikster.chatty.pm.targets.PmMessageTarget;
 
 import javax.inject.Inject;
@@ -17,6 +19,7 @@ public final class ReplyCommandHandler implements CommandExecutionHandler<Comman
     @Inject private BukkitAudiences audiences;
     @Inject private PmMessageService pmMessageService;
     @Inject private MessagesConfig messagesConfig;
+    @Inject private PmConfig pmConfig;
     @Inject private PrivateMessageCommandHandler privateMessageCommandHandler;
 
     @Override
@@ -29,6 +32,10 @@ public final class ReplyCommandHandler implements CommandExecutionHandler<Comman
             return;
         }
 
+        if (privateMessageCommandHandler.checkCooldown(sender, CooldownTable.REPLY_COMMAND_SLOT, pmConfig.getReplyCooldown())) {
+            return;
+        }
+
         privateMessageCommandHandler.handleCommand(commandContext, sender, target);
     }
 
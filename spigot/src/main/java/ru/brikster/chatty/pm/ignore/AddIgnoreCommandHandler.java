@@ -5,15 +5,18 @@ import cloud.commandframework.execution.CommandExecutionHandler;
 import net.kyori.adventure.platform.bukkit.BukkitAudiences;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
 import ru.brikster.chatty.config.file.MessagesConfig;
+import ru.brikster.chatty.player.PlayerNameResolver;
 import ru.brikster.chatty.pm.PmMessageService;
 import ru.brikster.chatty.pm.targets.PmMessageTarget;
-import ru.brikster.chatty.repository.player.PlayerDataRepository;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
 
 @Singleton
 public final class AddIgnoreCommandHandler implements CommandExecutionHandler<CommandSender> {
@@ -21,7 +24,9 @@ public final class AddIgnoreCommandHandler implements CommandExecutionHandler<Co
     @Inject private PmMessageService pmMessageService;
     @Inject private BukkitAudiences audiences;
     @Inject private MessagesConfig messagesConfig;
-    @Inject private PlayerDataRepository repository;
+    @Inject private Plugin plugin;
+    @Inject private PlayerNameResolver nameResolver;
+    @Inject private IgnoreGraph ignoreGraph;
 
     @Override
     public void execute(@NotNull CommandContext<CommandSender> commandContext) {
@@ -29,36 +34,31 @@ public final class AddIgnoreCommandHandler implements CommandExecutionHandler<Co
 
         String targetName = commandContext.get("target");
 
-        UUID targetUuid;
-
         PmMessageTarget target = pmMessageService.resolveTarget(sender, targetName, false);
-        if (target == null) {
-            targetUuid = repository.getCachedUuid(targetName);
-        } else {
-            targetUuid = target.getUuid();
-        }
-
-        if (targetUuid == null) {
-            audiences.sender(sender).sendMessage(messagesConfig.getPmPlayerNotFound());
-            return;
-        }
+        CompletableFuture<UUID> targetUuidFuture = target == null
+                ? nameResolver.resolveUuid(targetName)
+                : CompletableFuture.completedFuture(target.getUuid());
 
-        if (targetUuid.equals(sender.getUniqueId())) {
-            audiences.sender(sender).sendMessage(messagesConfig.getPmCannotIgnoreYourself());
-            return;
-        }
+        targetUuidFuture.thenAccept(targetUuid -> {
+            if (targetUuid == null) {
+                audiences.sender(sender).sendMessage(messagesConfig.getPmPlayerNotFound());
+                return;
+            }
 
-        if (repository.isIgnoredPlayer(sender.getUniqueId(), targetUuid)) {
-            audiences.sender(sender).sendMessage(messagesConfig.getPmYouAlreadyIgnore());
-        } else {
-            repository.createOrUpdateUser(sender.getUniqueId(), sender.getName());
-            if (target != null) {
-                repository.createOrUpdateUser(target.getUuid(), target.getName());
+            if (targetUuid.equals(sender.getUniqueId())) {
+                audiences.sender(sender).sendMessage(messagesConfig.getPmCannotIgnoreYourself());
+                return;
             }
 
-            repository.addIgnoredPlayer(sender.getUniqueId(), targetUuid);
-            audiences.sender(sender).sendMessage(messagesConfig.getPmYouNowIgnore());
-        }
+            if (ignoreGraph.addIgnore(sender, targetUuid, target == null ? null : target.getName())) {
+                audiences.sender(sender).sendMessage(messagesConfig.getPmYouNowIgnore());
+            } else {
+                audiences.sender(sender).sendMessage(messagesConfig.getPmYouAlreadyIgnore());
+            }
+        }).exceptionally(throwable -> {
+            plugin.getLogger().log(Level.SEVERE, "Cannot handle ignore command of " + sender.getName(), throwable);
+            return null;
+        });
     }
 
 }
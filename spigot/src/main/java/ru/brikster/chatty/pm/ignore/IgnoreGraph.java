@@ -0,0 +1,331 @@
+package ru.brikster.chatty.pm.ignore;
+
+import lombok.Value;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.brikster.chatty.repository.player.AsyncPlayerDataRepository;
+import ru.brikster.chatty.repository.player.PlayerData;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+
+/**
+ * Ignore relations of online players in both directions: whom the player ignores and who ignores the player.
+ * Relations are loaded on login and dropped on quit. Changes are applied in memory
+ * and written to the repository by database threads, in order for every player.
+ * Relations between offline players are read from the repository.
+ */
+@Singleton
+public final class IgnoreGraph implements Listener {
+
+    @Inject private AsyncPlayerDataRepository asyncRepository;
+
+    // Player -> whom the player ignores
+    private final Map<UUID, Set<UUID>> ignored = new ConcurrentHashMap<>();
+    // Player -> who ignores the player
+    private final Map<UUID, Set<UUID>> ignoredBy = new ConcurrentHashMap<>();
+
+    private final Object lock = new Object();
+
+    // Changes of relations of players, whose relations are being read from the repository. Guarded by the lock
+    private final Map<UUID, List<RelationChange>> loadingChanges = new HashMap<>();
+
+    // Last not completed write of ignore changes of the player
+    private final Map<UUID, CompletableFuture<Void>> pendingWrites = new ConcurrentHashMap<>();
+
+    private @Nullable Plugin plugin;
+
+    @Value
+    private static class RelationChange {
+        // True if the other player is ignored by the loading player, false if the other player ignores them
+        boolean ignored;
+        UUID otherUuid;
+        boolean add;
+    }
+
+    public void start(@NotNull Plugin plugin) {
+        this.plugin = plugin;
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+    }
+
+    public void stop() {
+        HandlerList.unregisterAll(this);
+
+        // Pending changes must be written before repository is closed
+        try {
+            CompletableFuture.allOf(pendingWrites.values().toArray(new CompletableFuture[0]))
+                    .get(10, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            log("Ignore changes haven't been written in 10 seconds", null);
+        } catch (ExecutionException e) {
+            log("Cannot write ignore changes", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pendingWrites.clear();
+
+        ignored.clear();
+        ignoredBy.clear();
+    }
+
+    /**
+     * Fills relations of players, that are already online (after reload)
+     */
+    public void preload(@NotNull Collection<@NotNull PlayerData> playersData) {
+        synchronized (lock) {
+            for (PlayerData playerData : playersData) {
+                if (Bukkit.getPlayer(playerData.getUuid()) == null) {
+                    continue;
+                }
+
+                Set<UUID> playerIgnored = ConcurrentHashMap.newKeySet();
+                playerIgnored.addAll(playerData.getIgnoredPlayers());
+                ignored.putIfAbsent(playerData.getUuid(), playerIgnored);
+
+                Set<UUID> playerIgnoredBy = ConcurrentHashMap.newKeySet();
+                playerIgnoredBy.addAll(playerData.getWhoIgnore());
+                ignoredBy.putIfAbsent(playerData.getUuid(), playerIgnoredBy);
+            }
+        }
+    }
+
+    /**
+     * @return true if the player ignores the target
+     */
+    public boolean isIgnoring(@NotNull UUID playerUuid, @NotNull UUID targetUuid) {
+        Boolean ignoring = findLoadedRelation(playerUuid, targetUuid);
+        return ignoring == null ? readStoredRelation(playerUuid, targetUuid) : ignoring;
+    }
+
+    /**
+     * @return unmodifiable view of players, who ignore the player
+     */
+    public @NotNull Set<@NotNull UUID> getWhoIgnore(@NotNull UUID playerUuid) {
+        Set<UUID> playerIgnoredBy = ignoredBy.get(playerUuid);
+        if (playerIgnoredBy != null) {
+            return Collections.unmodifiableSet(playerIgnoredBy);
+        }
+
+        return asyncRepository.getWhoIgnoreUuids(playerUuid).join();
+    }
+
+    /**
+     * @param targetName the name of target to save in repository, or null if target is unknown on this server
+     * @return false if the player already ignores the target
+     */
+    public boolean addIgnore(@NotNull Player player, @NotNull UUID targetUuid, @Nullable String targetName) {
+        UUID playerUuid = player.getUniqueId();
+        boolean storedIgnoring = readStoredRelationIfNotLoaded(playerUuid, targetUuid);
+        synchronized (lock) {
+            Boolean ignoring = findLoadedRelation(playerUuid, targetUuid);
+            if (ignoring == null ? storedIgnoring : ignoring) {
+                return false;
+            }
+            change(playerUuid, targetUuid, true);
+            // Written under the lock, so loading players wait for the write or see the change
+            write(player, targetUuid, targetName, true);
+        }
+        return true;
+    }
+
+    /**
+     * @param targetName the name of target to save in repository, or null if target is unknown on this server
+     * @return false if the player doesn't ignore the target
+     */
+    public boolean removeIgnore(@NotNull Player player, @NotNull UUID targetUuid, @Nullable String targetName) {
+        UUID playerUuid = player.getUniqueId();
+        boolean storedIgnoring = readStoredRelationIfNotLoaded(playerUuid, targetUuid);
+        synchronized (lock) {
+            Boolean ignoring = findLoadedRelation(playerUuid, targetUuid);
+            if (!(ignoring == null ? storedIgnoring : ignoring)) {
+                return false;
+            }
+            change(playerUuid, targetUuid, false);
+            write(player, targetUuid, targetName, false);
+        }
+        return true;
+    }
+
+    /**
+     * @return future, that completes when ignore changes of the player are written to the repository
+     */
+    public @NotNull CompletableFuture<Void> getPendingWrite(@NotNull UUID playerUuid) {
+        CompletableFuture<Void> write = pendingWrites.get(playerUuid);
+        return write == null ? CompletableFuture.completedFuture(null) : write;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            load(event.getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            evict(event.getPlayer().getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        evict(event.getPlayer().getUniqueId());
+    }
+
+    private void load(UUID playerUuid) {
+        CompletableFuture<?> pendingWritesCompletion;
+        synchronized (lock) {
+            loadingChanges.put(playerUuid, new ArrayList<>());
+            // Changes, that are made before, must be written before reading
+            pendingWritesCompletion = CompletableFuture.allOf(pendingWrites.values().toArray(new CompletableFuture[0]));
+        }
+
+        try {
+            pendingWritesCompletion.join();
+
+            Set<UUID> playerIgnored = ConcurrentHashMap.newKeySet();
+            playerIgnored.addAll(asyncRepository.getIgnoredPlayersByUuids(playerUuid).join());
+
+            Set<UUID> playerIgnoredBy = ConcurrentHashMap.newKeySet();
+            playerIgnoredBy.addAll(asyncRepository.getWhoIgnoreUuids(playerUuid).join());
+
+            synchronized (lock) {
+                // Changes, that are made during reading, may be missed by the repository
+                for (RelationChange change : loadingChanges.get(playerUuid)) {
+                    Set<UUID> relations = change.isIgnored() ? playerIgnored : playerIgnoredBy;
+                    if (change.isAdd()) {
+                        relations.add(change.getOtherUuid());
+                    } else {
+                        relations.remove(change.getOtherUuid());
+                    }
+                }
+
+                ignored.put(playerUuid, playerIgnored);
+                ignoredBy.put(playerUuid, playerIgnoredBy);
+            }
+        } finally {
+            synchronized (lock) {
+                loadingChanges.remove(playerUuid);
+            }
+        }
+    }
+
+    /**
+     * @return true if the player ignores the target, or null if relations of both players aren't loaded
+     */
+    private @Nullable Boolean findLoadedRelation(UUID playerUuid, UUID targetUuid) {
+        Set<UUID> playerIgnored = ignored.get(playerUuid);
+        if (playerIgnored != null) {
+            return playerIgnored.contains(targetUuid);
+        }
+
+        Set<UUID> targetIgnoredBy = ignoredBy.get(targetUuid);
+        if (targetIgnoredBy != null) {
+            return targetIgnoredBy.contains(playerUuid);
+        }
+
+        return null;
+    }
+
+    private boolean readStoredRelation(UUID playerUuid, UUID targetUuid) {
+        return getPendingWrite(playerUuid)
+                .thenCompose(written -> asyncRepository.isIgnoredPlayer(playerUuid, targetUuid))
+                .join();
+    }
+
+    // Repository is read before taking the lock, so slow database doesn't block other players
+    private boolean readStoredRelationIfNotLoaded(UUID playerUuid, UUID targetUuid) {
+        return findLoadedRelation(playerUuid, targetUuid) == null && readStoredRelation(playerUuid, targetUuid);
+    }
+
+    private void evict(UUID playerUuid) {
+        synchronized (lock) {
+            ignored.remove(playerUuid);
+            ignoredBy.remove(playerUuid);
+        }
+    }
+
+    private void change(UUID playerUuid, UUID targetUuid, boolean add) {
+        update(ignored, playerUuid, targetUuid, add);
+        update(ignoredBy, targetUuid, playerUuid, add);
+
+        List<RelationChange> playerChanges = loadingChanges.get(playerUuid);
+        if (playerChanges != null) {
+            playerChanges.add(new RelationChange(true, targetUuid, add));
+        }
+
+        List<RelationChange> targetChanges = loadingChanges.get(targetUuid);
+        if (targetChanges != null) {
+            targetChanges.add(new RelationChange(false, playerUuid, add));
+        }
+    }
+
+    private static void update(Map<UUID, Set<UUID>> relations, UUID key, UUID value, boolean add) {
+        Set<UUID> values = relations.get(key);
+        if (values != null) {
+            if (add) {
+                values.add(value);
+            } else {
+                values.remove(value);
+            }
+        }
+    }
+
+    private void write(Player player, UUID targetUuid, @Nullable String targetName, boolean add) {
+        // Database pool has several threads, so changes of the same player are chained to be committed in order
+        UUID playerUuid = player.getUniqueId();
+        String playerName = player.getName();
+        CompletableFuture<Void> write = pendingWrites.compute(playerUuid, (key, previous) -> previous == null
+                ? save(playerUuid, playerName, targetUuid, targetName, add)
+                : previous.thenCompose(ignored -> save(playerUuid, playerName, targetUuid, targetName, add)));
+        write.whenComplete((ignored, throwable) -> pendingWrites.remove(playerUuid, write));
+    }
+
+    private CompletableFuture<Void> save(UUID playerUuid, String playerName,
+                                         UUID targetUuid, @Nullable String targetName, boolean add) {
+        CompletableFuture<Void> users = asyncRepository.createOrUpdateUser(playerUuid, playerName);
+        if (targetName != null) {
+            users = users.thenCompose(ignored -> asyncRepository.createOrUpdateUser(targetUuid, targetName));
+        }
+        return users
+                .thenCompose(ignored -> add
+                        ? asyncRepository.addIgnoredPlayer(playerUuid, targetUuid)
+                        : asyncRepository.removeIgnoredPlayer(playerUuid, targetUuid))
+                .exceptionally(throwable -> {
+                    log("Cannot write ignore changes of " + playerName, throwable);
+                    return null;
+                });
+    }
+
+    private void log(String message, @Nullable Throwable t) {
+        if (plugin != null) {
+            plugin.getLogger().log(Level.SEVERE, message, t);
+        }
+    }
+
+}
@@ -5,20 +5,24 @@ import cloud.commandframework.execution.CommandExecutionHandler;
 import net.kyori.adventure.platform.bukkit.BukkitAudiences;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
 import ru.brikster.chatty.config.file.MessagesConfig;
-import ru.brikster.chatty.repository.player.PlayerDataRepository;
+import ru.brikster.chatty.repository.player.AsyncPlayerDataRepository;
 import ru.brikster.chatty.util.AdventureUtil;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.logging.Level;
 
 @Singleton
 public final class IgnoreListCommandHandler implements CommandExecutionHandler<CommandSender> {
 
     @Inject private BukkitAudiences audiences;
     @Inject private MessagesConfig messagesConfig;
-    @Inject private PlayerDataRepository repository;
+    @Inject private Plugin plugin;
+    @Inject private AsyncPlayerDataRepository asyncRepository;
+    @Inject private IgnoreGraph ignoreGraph;
 
     public IgnoreListCommandHandler() {}
 
@@ -26,13 +30,22 @@ public final class IgnoreListCommandHandler implements CommandExecutionHandler<C
     public void execute(@NotNull CommandContext<CommandSender> commandContext) {
         Player sender = (Player) commandContext.getSender();
 
-        String ignoredPlayersList = String.join(", ", repository.getIgnoredPlayersByUsernames(sender));
-        if (ignoredPlayersList.isEmpty()) {
-            ignoredPlayersList = "(0)";
-        }
-
-        audiences.sender(sender).sendMessage(messagesConfig.getPmIgnoreList()
-                .replaceText(AdventureUtil.createReplacement("{players}", ignoredPlayersList)));
+        // Changes of recent /ignore add|remove must be written before reading
+        ignoreGraph.getPendingWrite(sender.getUniqueId())
+                .thenCompose(ignored -> asyncRepository.getIgnoredPlayersByUsernames(sender))
+                .thenAccept(ignoredPlayers -> {
+                    String ignoredPlayersList = String.join(", ", ignoredPlayers);
+                    if (ignoredPlayersList.isEmpty()) {
+                        ignoredPlayersList = "(0)";
+                    }
+
+                    audiences.sender(sender).sendMessage(messagesConfig.getPmIgnoreList()
+                            .replaceText(AdventureUtil.createReplacement("{players}", ignoredPlayersList)));
+                })
+                .exceptionally(throwable -> {
+                    plugin.getLogger().log(Level.SEVERE, "Cannot retrieve ignored players of " + sender.getName(), throwable);
+                    return null;
+                });
     }
 
 }
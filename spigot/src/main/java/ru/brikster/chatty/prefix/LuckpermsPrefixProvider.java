@@ -1,14 +1,18 @@
 package ru.brikster.chatty.prefix;
 
 import net.luckperms.api.LuckPerms;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
 import net.luckperms.api.model.user.User;
 import net.luckperms.api.platform.PlayerAdapter;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
 
 import javax.inject.Singleton;
 import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 @Singleton
 public final class LuckpermsPrefixProvider implements PrefixProvider {
@@ -35,4 +39,10 @@ public final class LuckpermsPrefixProvider implements PrefixProvider {
         return user.getCachedData().getMetaData().getSuffix();
     }
 
+    @Override
+    public @NotNull AutoCloseable subscribeChanges(@NotNull Consumer<UUID> changeListener) {
+        return luckPerms.getEventBus().subscribe(UserDataRecalculateEvent.class,
+                event -> changeListener.accept(event.getUser().getUniqueId()));
+    }
+
 }
@@ -1,9 +1,12 @@
 package ru.brikster.chatty.prefix;
 
 import org.bukkit.OfflinePlayer;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.inject.Singleton;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 @Singleton
 public final class NullPrefixProvider implements PrefixProvider {
@@ -18,4 +21,10 @@ public final class NullPrefixProvider implements PrefixProvider {
         return null;
     }
 
+    @Override
+    public @NotNull AutoCloseable subscribeChanges(@NotNull Consumer<UUID> changeListener) {
+        // Nothing changes
+        return () -> {};
+    }
+
 }
@@ -0,0 +1,117 @@
+package ru.brikster.chatty.prefix;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.Value;
+import net.kyori.adventure.text.Component;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.brikster.chatty.config.file.SettingsConfig;
+import ru.brikster.chatty.convert.component.ComponentStringConverter;
+import ru.brikster.chatty.util.ObjectUtil;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prefixes and suffixes of online players with their converted components.
+ * Entries are invalidated on changes, if prefix provider tracks them, or expire after configured TTL
+ */
+@Singleton
+public final class PrefixCache implements Listener {
+
+    private final PrefixProvider prefixProvider;
+    private final ComponentStringConverter componentStringConverter;
+
+    private final @Nullable AutoCloseable changesSubscription;
+    private final @Nullable Cache<UUID, CachedPrefix> cache;
+    // Counter of invalidations, so entries loaded concurrently with invalidation aren't kept
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Inject
+    public PrefixCache(PrefixProvider prefixProvider,
+                       ComponentStringConverter componentStringConverter,
+                       SettingsConfig settingsConfig) {
+        this.prefixProvider = prefixProvider;
+        this.componentStringConverter = componentStringConverter;
+
+        this.changesSubscription = prefixProvider.subscribeChanges(this::invalidate);
+        if (changesSubscription != null) {
+            this.cache = CacheBuilder.newBuilder().build();
+        } else if (settingsConfig.getPrefixCacheTtl() > 0) {
+            this.cache = CacheBuilder.newBuilder()
+                    .expireAfterWrite(Duration.ofSeconds(settingsConfig.getPrefixCacheTtl()))
+                    .build();
+        } else {
+            this.cache = null;
+        }
+    }
+
+    public @NotNull CachedPrefix get(@NotNull OfflinePlayer player) {
+        // Offline players are rare, and they don't quit to invalidate the entry
+        if (cache == null || !(player instanceof Player)) {
+            return load(player);
+        }
+
+        CachedPrefix cachedPrefix = cache.getIfPresent(player.getUniqueId());
+        if (cachedPrefix == null) {
+            long invalidation = invalidations.get();
+            cachedPrefix = load(player);
+            cache.put(player.getUniqueId(), cachedPrefix);
+            if (invalidations.get() != invalidation) {
+                // Prefix may have been changed during loading, and invalidated before it was put
+                cache.asMap().remove(player.getUniqueId(), cachedPrefix);
+            }
+        }
+        return cachedPrefix;
+    }
+
+    public void invalidate(@NotNull UUID uuid) {
+        if (cache != null) {
+            invalidations.incrementAndGet();
+            cache.invalidate(uuid);
+        }
+    }
+
+    public void close() {
+        if (changesSubscription != null) {
+            try {
+                changesSubscription.close();
+            } catch (Exception e) {
+                throw new IllegalStateException("Cannot unsubscribe from prefix changes", e);
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        invalidate(event.getPlayer().getUniqueId());
+    }
+
+    private CachedPrefix load(OfflinePlayer player) {
+        String prefix = ObjectUtil.requireNonNullElse(prefixProvider.getPrefix(player), "");
+        String suffix = ObjectUtil.requireNonNullElse(prefixProvider.getSuffix(player), "");
+        return new CachedPrefix(prefix, suffix,
+                componentStringConverter.stringToComponent(prefix + " "),
+                componentStringConverter.stringToComponent(suffix + " "));
+    }
+
+    @Value
+    public static class CachedPrefix {
+        String prefix;
+        String suffix;
+        // Components with ending space
+        Component prefixComponent;
+        Component suffixComponent;
+    }
+
+}
@@ -1,12 +1,24 @@
 package ru.brikster.chatty.prefix;
 
 import org.bukkit.OfflinePlayer;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.UUID;
+import java.util.function.Consumer;
+
 public interface PrefixProvider {
 
     @Nullable String getPrefix(OfflinePlayer player);
 
     @Nullable String getSuffix(OfflinePlayer player);
 
+    /**
+     * @param changeListener the listener to be called with UUID of player, whose prefix or suffix may be changed
+     * @return subscription to be closed, or null if provider cannot track changes
+     */
+    default @Nullable AutoCloseable subscribeChanges(@NotNull Consumer<UUID> changeListener) {
+        return null;
+    }
+
 }
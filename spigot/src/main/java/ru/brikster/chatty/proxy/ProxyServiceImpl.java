@@ -5,7 +5,6 @@ import net.kyori.adventure.sound.Sound;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
 import org.bukkit.Bukkit;
-import org.bukkit.command.ConsoleCommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
@@ -24,7 +23,7 @@ import ru.brikster.chatty.config.file.PmConfig;
 import ru.brikster.chatty.proxy.data.ChatMessage;
 import ru.brikster.chatty.proxy.data.PrivateMessage;
 import ru.brikster.chatty.proxy.data.ProxyPlayer;
-import ru.brikster.chatty.repository.player.PlayerDataRepository;
+import ru.brikster.chatty.spy.SpyRegistry;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -56,7 +55,7 @@ public final class ProxyServiceImpl implements ProxyService {
                             ChatRegistry chatRegistry,
                             PmConfig pmConfig,
                             ChatStylePlayerGrouper stylePlayerGrouper,
-                            PlayerDataRepository playerDataRepository,
+                            SpyRegistry spyRegistry,
                             Plugin plugin) {
         RedissonClient redissonClient = Redisson.create(redissonConfig);
         this.playersCache = redissonClient.getMapCache("chatty_players");
@@ -114,12 +113,11 @@ public final class ProxyServiceImpl implements ProxyService {
 
                 if (redisMessage.getSpyComponentJson() != null) {
                     Component spyMessage = GSON_COMPONENT_SERIALIZER.deserialize(redisMessage.getSpyComponentJson());
-                    audiences.filter(spyCandidate ->
-                                    spyCandidate.hasPermission("chatty.spy.pm")
-                                            && !(spyCandidate instanceof ConsoleCommandSender)
-                                            && playerDataRepository.isEnableSpy(((Player) spyCandidate).getUniqueId())
-                                            && !spyCandidate.getName().equalsIgnoreCase(redisMessage.getTargetName()))
-                            .sendMessage(spyMessage);
+                    for (Player spy : spyRegistry.getSpies("chatty.spy.pm")) {
+                        if (!spy.getName().equalsIgnoreCase(redisMessage.getTargetName())) {
+                            audiences.player(spy).sendMessage(spyMessage);
+                        }
+                    }
                 }
 
                 Player targetPlayer = Bukkit.getPlayerExact(redisMessage.getTargetName());
@@ -0,0 +1,183 @@
+package ru.brikster.chatty.repository.player;
+
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.brikster.chatty.config.file.SettingsConfig;
+import ru.brikster.chatty.timings.PipelineTimings;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking facade of {@link PlayerDataRepository}.
+ * Operations are executed by the bounded pool of database threads, so slow database
+ * doesn't block chat, command and proxy threads. If the queue is full, operations fail
+ * with {@link RejectedExecutionException} instead of piling up.
+ */
+@Singleton
+public final class AsyncPlayerDataRepository {
+
+    private static final int MAX_THREADS = 32;
+    // Connections beyond database threads: migrations and the final flush on disable
+    private static final int POOL_HEADROOM = 2;
+
+    private final PlayerDataRepository repository;
+    private final PipelineTimings timings;
+    private final ThreadPoolExecutor executor;
+
+    @Inject
+    public AsyncPlayerDataRepository(PlayerDataRepository repository,
+                                     SettingsConfig settingsConfig,
+                                     PipelineTimings timings) {
+        this.repository = repository;
+        this.timings = timings;
+
+        int threads = getThreads(settingsConfig);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads,
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, settingsConfig.getDatabaseQueueSize())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "Chatty Database #" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @return count of database threads, clamped to be served by the connection pool
+     */
+    public static int getThreads(@NotNull SettingsConfig settingsConfig) {
+        return Math.min(MAX_THREADS, Math.max(1, settingsConfig.getDatabaseThreads()));
+    }
+
+    /**
+     * @return size of the connection pool, that doesn't make database threads wait for connections
+     */
+    public static int getPoolSize(@NotNull SettingsConfig settingsConfig) {
+        return getThreads(settingsConfig) + POOL_HEADROOM;
+    }
+
+    public @NotNull CompletableFuture<@NotNull Set<@NotNull UUID>> getWhoIgnoreUuids(@NotNull UUID playerUuid) {
+        return supply(() -> repository.getWhoIgnoreUuids(playerUuid));
+    }
+
+    public @NotNull CompletableFuture<@NotNull Set<@NotNull UUID>> getIgnoredPlayersByUuids(@NotNull UUID playerUuid) {
+        return supply(() -> repository.getIgnoredPlayersByUuids(playerUuid));
+    }
+
+    public @NotNull CompletableFuture<@NotNull Set<@NotNull String>> getIgnoredPlayersByUsernames(@NotNull Player player) {
+        return supply(() -> repository.getIgnoredPlayersByUsernames(player));
+    }
+
+    public @NotNull CompletableFuture<Void> createOrUpdateUser(@NotNull UUID uuid, @NotNull String username) {
+        return run(() -> repository.createOrUpdateUser(uuid, username));
+    }
+
+    public @NotNull CompletableFuture<Void> createOrUpdateUsers(@NotNull Map<@NotNull UUID, @NotNull String> users) {
+        return run(() -> repository.createOrUpdateUsers(users));
+    }
+
+    public @NotNull CompletableFuture<@Nullable UUID> getCachedUuid(@NotNull String playerName) {
+        return supply(() -> repository.getCachedUuid(playerName));
+    }
+
+    public @NotNull CompletableFuture<@Nullable String> getCachedUsername(@NotNull UUID uuid) {
+        return supply(() -> repository.getCachedUsername(uuid));
+    }
+
+    public @NotNull CompletableFuture<@NotNull Boolean> isIgnoredPlayer(@NotNull UUID playerUuid, @NotNull UUID uuid) {
+        return supply(() -> repository.isIgnoredPlayer(playerUuid, uuid));
+    }
+
+    public @NotNull CompletableFuture<Void> addIgnoredPlayer(@NotNull UUID playerUuid, @NotNull UUID uuid) {
+        return run(() -> repository.addIgnoredPlayer(playerUuid, uuid));
+    }
+
+    public @NotNull CompletableFuture<Void> removeIgnoredPlayer(@NotNull UUID playerUuid, @NotNull UUID uuid) {
+        return run(() -> repository.removeIgnoredPlayer(playerUuid, uuid));
+    }
+
+    public @NotNull CompletableFuture<@NotNull Boolean> isEnableSpy(@NotNull UUID playerUuid) {
+        return supply(() -> repository.isEnableSpy(playerUuid));
+    }
+
+    public @NotNull CompletableFuture<Void> setEnableSpy(@NotNull UUID playerUuid, boolean spy) {
+        return run(() -> repository.setEnableSpy(playerUuid, spy));
+    }
+
+    public @NotNull CompletableFuture<@NotNull Map<@NotNull UUID, @NotNull PlayerData>> loadPlayersData(@NotNull Collection<@NotNull UUID> uuids) {
+        return supply(() -> repository.loadPlayersData(uuids));
+    }
+
+    /**
+     * @return count of operations, that wait for a database thread
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return count of operations, that are executed right now
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Waits for queued operations to complete and stops database threads
+     */
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<Void> run(Runnable operation) {
+        return supply(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long queuedNanos = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long startNanos = System.nanoTime();
+                timings.recordDatabaseQueue(startNanos - queuedNanos);
+                try {
+                    future.complete(operation.get());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    timings.recordDatabaseExecution(System.nanoTime() - startNanos);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+}
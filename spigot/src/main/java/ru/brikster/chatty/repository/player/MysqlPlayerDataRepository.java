@@ -1,5 +1,6 @@
 package ru.brikster.chatty.repository.player;
 
+import com.google.common.collect.Lists;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.bukkit.entity.Player;
@@ -8,30 +9,41 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import ru.brikster.chatty.Chatty;
 import ru.brikster.chatty.config.file.ProxyConfig.DatabaseConfig;
+import ru.brikster.chatty.util.UuidUtil;
 
 import javax.inject.Singleton;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
 @Singleton
 public final class MysqlPlayerDataRepository implements PlayerDataRepository {
 
+    private static final int IN_CHUNK_SIZE = 1000;
+
     private final HikariDataSource dataSource;
 
-    public MysqlPlayerDataRepository(DatabaseConfig databaseConfig) {
+    public MysqlPlayerDataRepository(DatabaseConfig databaseConfig, int maximumPoolSize) {
         HikariConfig config = new HikariConfig();
         config.setDriverClassName("com.mysql.jdbc.Driver");
         config.setJdbcUrl(String.format("jdbc:mysql://%s:%d/%s",
                 databaseConfig.getHostname(), databaseConfig.getPort(), databaseConfig.getDatabase()));
         config.addDataSourceProperty("user", databaseConfig.getUsername());
         config.addDataSourceProperty("password", databaseConfig.getPassword());
+        // Batches of upserts are sent as multi-row statements instead of one statement per row
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
         config.setPoolName("Chatty");
-        config.setMaximumPoolSize(8);
+        config.setMaximumPoolSize(maximumPoolSize);
 
         this.dataSource = new HikariDataSource(config);
 
@@ -43,19 +55,19 @@ public final class MysqlPlayerDataRepository implements PlayerDataRepository {
     }
 
     @Override
-    public @NotNull Set<@NotNull UUID> getWhoIgnoreUuids(@NotNull Player player) {
+    public @NotNull Set<@NotNull UUID> getWhoIgnoreUuids(@NotNull UUID playerUuid) {
         try (Connection connection = dataSource.getConnection();
              PreparedStatement statement = connection.prepareStatement(
                      "SELECT player_uuid " +
                              "FROM chatty_ignored_users " +
                              "WHERE ignored_uuid = ?")) {
-            statement.setString(1, player.getUniqueId().toString());
+            statement.setBytes(1, UuidUtil.fromUUID(playerUuid));
 
             ResultSet resultSet = statement.executeQuery();
 
             Set<UUID> ignoredPlayers = new HashSet<>();
             while (resultSet.next()) {
-                ignoredPlayers.add(UUID.fromString(resultSet.getString(1)));
+                ignoredPlayers.add(UuidUtil.toUUID(resultSet.getBytes(1)));
             }
 
             return ignoredPlayers;
@@ -65,19 +77,19 @@ public final class MysqlPlayerDataRepository implements PlayerDataRepository {
     }
 
     @Override
-    public @NotNull Set<@NotNull UUID> getIgnoredPlayersByUuids(@NotNull Player player) {
+    public @NotNull Set<@NotNull UUID> getIgnoredPlayersByUuids(@NotNull UUID playerUuid) {
         try (Connection connection = dataSource.getConnection();
              PreparedStatement statement = connection.prepareStatement(
                      "SELECT ignored_uuid " +
                              "FROM chatty_ignored_users " +
                              "WHERE player_uuid = ?")) {
-            statement.setString(1, player.getUniqueId().toString());
+            statement.setBytes(1, UuidUtil.fromUUID(playerUuid));
 
             ResultSet resultSet = statement.executeQuery();
 
             Set<UUID> ignoredPlayers = new HashSet<>();
             while (resultSet.next()) {
-                ignoredPlayers.add(UUID.fromString(resultSet.getString(1)));
+                ignoredPlayers.add(UuidUtil.toUUID(resultSet.getBytes(1)));
             }
 
             return ignoredPlayers;
@@ -93,7 +105,7 @@ public final class MysqlPlayerDataRepository implements PlayerDataRepository {
                      "SELECT username " +
                              "FROM chatty_ignored_users iu JOIN chatty_users u ON iu.ignored_uuid = u.uuid " +
                              "WHERE player_uuid = ?")) {
-            statement.setString(1, player.getUniqueId().toString());
+            statement.setBytes(1, UuidUtil.fromUUID(player.getUniqueId()));
 
             ResultSet resultSet = statement.executeQuery();
 
@@ -110,16 +122,54 @@ public final class MysqlPlayerDataRepository implements PlayerDataRepository {
 
     @Override
     public void createOrUpdateUser(@NotNull UUID uuid, @NotNull String username) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(
-                     "INSERT INTO chatty_users (uuid, username) VALUES (?, ?) " +
-                             "ON DUPLICATE KEY UPDATE username = ?")) {
-            statement.setString(1, uuid.toString());
-            statement.setString(2, username);
-            statement.setString(3, username);
-            statement.executeUpdate();
+        createOrUpdateUsers(Map.of(uuid, username));
+    }
+
+    @Override
+    public void createOrUpdateUsers(@NotNull Map<@NotNull UUID, @NotNull String> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            // Lowercase username is unique, so it's taken away from the previous owner of the name
+            try (PreparedStatement releaseStatement = connection.prepareStatement(
+                    "UPDATE chatty_users SET username_lower = NULL WHERE username_lower = ? AND uuid <> ?");
+                 PreparedStatement upsertStatement = connection.prepareStatement(
+                    "INSERT INTO chatty_users (uuid, username, username_lower) VALUES (?, ?, ?) " +
+                            "ON DUPLICATE KEY UPDATE username = ?, username_lower = ?")) {
+                Set<String> claimedUsernames = new HashSet<>();
+                for (Map.Entry<UUID, String> entry : users.entrySet()) {
+                    String usernameLower = entry.getValue().toLowerCase(Locale.ROOT);
+                    if (!claimedUsernames.add(usernameLower)) {
+                        // Several players have taken the same name since the last saving
+                        usernameLower = null;
+                    } else {
+                        releaseStatement.setString(1, usernameLower);
+                        releaseStatement.setBytes(2, UuidUtil.fromUUID(entry.getKey()));
+                        releaseStatement.addBatch();
+                    }
+
+                    upsertStatement.setBytes(1, UuidUtil.fromUUID(entry.getKey()));
+                    upsertStatement.setString(2, entry.getValue());
+                    upsertStatement.setString(3, usernameLower);
+                    upsertStatement.setString(4, entry.getValue());
+                    upsertStatement.setString(5, usernameLower);
+                    upsertStatement.addBatch();
+                }
+                releaseStatement.executeBatch();
+                upsertStatement.executeBatch();
+                connection.commit();
+            } catch (SQLException sqlException) {
+                connection.rollback();
+                throw sqlException;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
         } catch (SQLException sqlException) {
-            throw new IllegalStateException("Cannot create or update", sqlException);
+            throw new IllegalStateException("Cannot create or update users", sqlException);
         }
     }
 
@@ -129,12 +179,12 @@ public final class MysqlPlayerDataRepository implements PlayerDataRepository {
              PreparedStatement statement = connection.prepareStatement(
                      "SELECT uuid " +
                              "FROM chatty_users " +
-                             "WHERE lower(username) = lower(?)")) {
-            statement.setString(1, playerName);
+                             "WHERE username_lower = ?")) {
+            statement.setString(1, playerName.toLowerCase(Locale.ROOT));
 
             ResultSet resultSet = statement.executeQuery();
             if (resultSet.next()) {
-                return UUID.fromString(resultSet.getString(1));
+                return UuidUtil.toUUID(resultSet.getBytes(1));
             } else {
                 return null;
             }
@@ -150,7 +200,7 @@ public final class MysqlPlayerDataRepository implements PlayerDataRepository {
                      "SELECT username " +
                              "FROM chatty_users " +
                              "WHERE uuid = ?")) {
-            statement.setString(1, uuid.toString());
+            statement.setBytes(1, UuidUtil.fromUUID(uuid));
 
             ResultSet resultSet = statement.executeQuery();
             if (resultSet.next()) {
@@ -168,8 +218,8 @@ public final class MysqlPlayerDataRepository implements PlayerDataRepository {
         try (Connection connection = dataSource.getConnection();
              PreparedStatement statement = connection.prepareStatement(
                      "INSERT INTO chatty_ignored_users (player_uuid, ignored_uuid) VALUES (?, ?)")) {
-            statement.setString(1, playerUuid.toString());
-            statement.setString(2, uuid.toString());
+            statement.setBytes(1, UuidUtil.fromUUID(playerUuid));
+            statement.setBytes(2, UuidUtil.fromUUID(uuid));
             statement.executeUpdate();
         } catch (SQLException sqlException) {
             throw new IllegalStateException("Cannot add ignored player", sqlException);
@@ -182,8 +232,8 @@ public final class MysqlPlayerDataRepository implements PlayerDataRepository {
              PreparedStatement statement = connection.prepareStatement(
                      "DELETE FROM chatty_ignored_users" +
                              " WHERE player_uuid = ? AND ignored_uuid = ?")) {
-            statement.setString(1, playerUuid.toString());
-            statement.setString(2, uuid.toString());
+            statement.setBytes(1, UuidUtil.fromUUID(playerUuid));
+            statement.setBytes(2, UuidUtil.fromUUID(uuid));
             statement.executeUpdate();
         } catch (SQLException sqlException) {
             throw new IllegalStateException("Cannot remove ignored player", sqlException);
@@ -197,8 +247,8 @@ public final class MysqlPlayerDataRepository implements PlayerDataRepository {
                      "SELECT ignored_uuid " +
                              "FROM chatty_ignored_users " +
                              "WHERE player_uuid = ? AND ignored_uuid = ?")) {
-            statement.setString(1, playerUuid.toString());
-            statement.setString(2, uuid.toString());
+            statement.setBytes(1, UuidUtil.fromUUID(playerUuid));
+            statement.setBytes(2, UuidUtil.fromUUID(uuid));
 
             ResultSet resultSet = statement.executeQuery();
             return resultSet.next();
@@ -214,7 +264,7 @@ public final class MysqlPlayerDataRepository implements PlayerDataRepository {
                      "SELECT spy " +
                              "FROM chatty_users " +
                              "WHERE uuid = ?")) {
-            statement.setString(1, playerUuid.toString());
+            statement.setBytes(1, UuidUtil.fromUUID(playerUuid));
 
             ResultSet resultSet = statement.executeQuery();
             if (resultSet.next()) {
@@ -233,13 +283,61 @@ public final class MysqlPlayerDataRepository implements PlayerDataRepository {
              PreparedStatement statement = connection.prepareStatement(
                      "UPDATE chatty_users SET spy = ? WHERE uuid = ?")) {
             statement.setBoolean(1, spy);
-            statement.setString(2, playerUuid.toString());
+            statement.setBytes(2, UuidUtil.fromUUID(playerUuid));
             statement.executeUpdate();
         } catch (SQLException sqlException) {
             throw new IllegalStateException("Cannot update player spy mode", sqlException);
         }
     }
 
+    @Override
+    public @NotNull Map<@NotNull UUID, @NotNull PlayerData> loadPlayersData(@NotNull Collection<@NotNull UUID> uuids) {
+        PlayerDataBatch batch = new PlayerDataBatch(uuids);
+        if (batch.getUuids().isEmpty()) {
+            return batch.build();
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            for (List<UUID> chunk : Lists.partition(new ArrayList<>(batch.getUuids()), IN_CHUNK_SIZE)) {
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT uuid, username, spy " +
+                                "FROM chatty_users " +
+                                "WHERE uuid IN (" + placeholders + ")")) {
+                    for (int index = 0; index < chunk.size(); index++) {
+                        statement.setBytes(index + 1, UuidUtil.fromUUID(chunk.get(index)));
+                    }
+
+                    ResultSet resultSet = statement.executeQuery();
+                    while (resultSet.next()) {
+                        batch.addUser(UuidUtil.toUUID(resultSet.getBytes(1)), resultSet.getString(2), resultSet.getBoolean(3));
+                    }
+                }
+
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT player_uuid, ignored_uuid " +
+                                "FROM chatty_ignored_users " +
+                                "WHERE player_uuid IN (" + placeholders + ") OR ignored_uuid IN (" + placeholders + ")")) {
+                    for (int index = 0; index < chunk.size(); index++) {
+                        byte[] uuidBytes = UuidUtil.fromUUID(chunk.get(index));
+                        statement.setBytes(index + 1, uuidBytes);
+                        statement.setBytes(chunk.size() + index + 1, uuidBytes);
+                    }
+
+                    ResultSet resultSet = statement.executeQuery();
+                    while (resultSet.next()) {
+                        batch.addIgnore(UuidUtil.toUUID(resultSet.getBytes(1)), UuidUtil.toUUID(resultSet.getBytes(2)));
+                    }
+                }
+            }
+        } catch (SQLException sqlException) {
+            throw new IllegalStateException("Cannot load players data", sqlException);
+        }
+
+        return batch.build();
+    }
+
     @Override
     public void close() {
         dataSource.close();
@@ -0,0 +1,25 @@
+package ru.brikster.chatty.repository.player;
+
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Stored data of the player, that is loaded in bulk
+ *
+ * @see PlayerDataRepository#loadPlayersData(java.util.Collection)
+ */
+@Value
+public class PlayerData {
+
+    @NotNull UUID uuid;
+    // Null if the player isn't stored yet
+    @Nullable String username;
+    boolean spy;
+    @NotNull Set<@NotNull UUID> ignoredPlayers;
+    @NotNull Set<@NotNull UUID> whoIgnore;
+
+}
@@ -0,0 +1,60 @@
+package ru.brikster.chatty.repository.player;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Collects rows of bulk loading into {@link PlayerData} of requested players
+ */
+final class PlayerDataBatch {
+
+    private final Set<UUID> uuids;
+    private final Map<UUID, String> usernames = new HashMap<>();
+    private final Set<UUID> spies = new HashSet<>();
+    private final Map<UUID, Set<UUID>> ignoredPlayers = new HashMap<>();
+    private final Map<UUID, Set<UUID>> whoIgnore = new HashMap<>();
+
+    PlayerDataBatch(@NotNull Collection<@NotNull UUID> uuids) {
+        this.uuids = new LinkedHashSet<>(uuids);
+    }
+
+    @NotNull Set<@NotNull UUID> getUuids() {
+        return uuids;
+    }
+
+    void addUser(@NotNull UUID uuid, @NotNull String username, boolean spy) {
+        usernames.put(uuid, username);
+        if (spy) {
+            spies.add(uuid);
+        }
+    }
+
+    void addIgnore(@NotNull UUID playerUuid, @NotNull UUID ignoredUuid) {
+        if (uuids.contains(playerUuid)) {
+            ignoredPlayers.computeIfAbsent(playerUuid, k -> new HashSet<>()).add(ignoredUuid);
+        }
+        if (uuids.contains(ignoredUuid)) {
+            whoIgnore.computeIfAbsent(ignoredUuid, k -> new HashSet<>()).add(playerUuid);
+        }
+    }
+
+    @NotNull Map<@NotNull UUID, @NotNull PlayerData> build() {
+        Map<UUID, PlayerData> playersData = new HashMap<>();
+        for (UUID uuid : uuids) {
+            playersData.put(uuid, new PlayerData(uuid,
+                    usernames.get(uuid),
+                    spies.contains(uuid),
+                    ignoredPlayers.getOrDefault(uuid, new HashSet<>()),
+                    whoIgnore.getOrDefault(uuid, new HashSet<>())));
+        }
+        return playersData;
+    }
+
+}
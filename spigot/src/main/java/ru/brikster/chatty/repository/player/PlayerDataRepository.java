@@ -5,19 +5,23 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.Closeable;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
 public interface PlayerDataRepository extends Closeable {
 
-    @NotNull Set<@NotNull UUID> getWhoIgnoreUuids(@NotNull Player player);
+    @NotNull Set<@NotNull UUID> getWhoIgnoreUuids(@NotNull UUID playerUuid);
 
-    @NotNull Set<@NotNull UUID> getIgnoredPlayersByUuids(@NotNull Player player);
+    @NotNull Set<@NotNull UUID> getIgnoredPlayersByUuids(@NotNull UUID playerUuid);
 
     @NotNull Set<@NotNull String> getIgnoredPlayersByUsernames(@NotNull Player player);
 
     void createOrUpdateUser(@NotNull UUID uuid, @NotNull String username);
 
+    void createOrUpdateUsers(@NotNull Map<@NotNull UUID, @NotNull String> users);
+
     @Nullable UUID getCachedUuid(@NotNull String playerName);
 
     @Nullable String getCachedUsername(@NotNull UUID uuid);
@@ -32,4 +36,11 @@ public interface PlayerDataRepository extends Closeable {
 
     void setEnableSpy(@NotNull UUID playerUuid, boolean spy);
 
+    /**
+     * Loads data of several players with one query per table (or per chunk of players)
+     *
+     * @return data of all requested players, including ones, that aren't stored yet
+     */
+    @NotNull Map<@NotNull UUID, @NotNull PlayerData> loadPlayersData(@NotNull Collection<@NotNull UUID> uuids);
+
 }
@@ -10,11 +10,15 @@ import ru.brikster.chatty.Chatty;
 import ru.brikster.chatty.config.file.ProxyConfig.DatabaseConfig;
 
 import javax.inject.Singleton;
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -23,7 +27,7 @@ public final class PostgresPlayerDataRepository implements PlayerDataRepository
 
     private final HikariDataSource dataSource;
 
-    public PostgresPlayerDataRepository(DatabaseConfig databaseConfig) {
+    public PostgresPlayerDataRepository(DatabaseConfig databaseConfig, int maximumPoolSize) {
         HikariConfig config = new HikariConfig();
         config.setDataSourceClassName("org.postgresql.ds.PGSimpleDataSource");
         config.addDataSourceProperty("serverName", databaseConfig.getHostname());
@@ -32,7 +36,7 @@ public final class PostgresPlayerDataRepository implements PlayerDataRepository
         config.addDataSourceProperty("user", databaseConfig.getUsername());
         config.addDataSourceProperty("password", databaseConfig.getPassword());
         config.setPoolName("Chatty");
-        config.setMaximumPoolSize(8);
+        config.setMaximumPoolSize(maximumPoolSize);
 
         this.dataSource = new HikariDataSource(config);
 
@@ -44,13 +48,13 @@ public final class PostgresPlayerDataRepository implements PlayerDataRepository
     }
 
     @Override
-    public @NotNull Set<@NotNull UUID> getWhoIgnoreUuids(@NotNull Player player) {
+    public @NotNull Set<@NotNull UUID> getWhoIgnoreUuids(@NotNull UUID playerUuid) {
         try (Connection connection = dataSource.getConnection();
              PreparedStatement statement = connection.prepareStatement(
                      "SELECT player_uuid " +
                              "FROM chatty_ignored_users " +
                              "WHERE ignored_uuid = ?")) {
-            statement.setObject(1, player.getUniqueId());
+            statement.setObject(1, playerUuid);
 
             ResultSet resultSet = statement.executeQuery();
 
@@ -66,13 +70,13 @@ public final class PostgresPlayerDataRepository implements PlayerDataRepository
     }
 
     @Override
-    public @NotNull Set<@NotNull UUID> getIgnoredPlayersByUuids(@NotNull Player player) {
+    public @NotNull Set<@NotNull UUID> getIgnoredPlayersByUuids(@NotNull UUID playerUuid) {
         try (Connection connection = dataSource.getConnection();
              PreparedStatement statement = connection.prepareStatement(
                      "SELECT ignored_uuid " +
                              "FROM chatty_ignored_users " +
                              "WHERE player_uuid = ?")) {
-            statement.setObject(1, player.getUniqueId());
+            statement.setObject(1, playerUuid);
 
             ResultSet resultSet = statement.executeQuery();
 
@@ -111,16 +115,54 @@ public final class PostgresPlayerDataRepository implements PlayerDataRepository
 
     @Override
     public void createOrUpdateUser(@NotNull UUID uuid, @NotNull String username) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(
-                     "INSERT INTO chatty_users (uuid, username) VALUES (?, ?) " +
-                             "ON CONFLICT (uuid) DO UPDATE SET username = ?")) {
-            statement.setObject(1, uuid);
-            statement.setString(2, username);
-            statement.setString(3, username);
-            statement.executeUpdate();
+        createOrUpdateUsers(Map.of(uuid, username));
+    }
+
+    @Override
+    public void createOrUpdateUsers(@NotNull Map<@NotNull UUID, @NotNull String> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            // Lowercase username is unique, so it's taken away from the previous owner of the name
+            try (PreparedStatement releaseStatement = connection.prepareStatement(
+                    "UPDATE chatty_users SET username_lower = NULL WHERE username_lower = ? AND uuid <> ?");
+                 PreparedStatement upsertStatement = connection.prepareStatement(
+                    "INSERT INTO chatty_users (uuid, username, username_lower) VALUES (?, ?, ?) " +
+                            "ON CONFLICT (uuid) DO UPDATE SET username = ?, username_lower = ?")) {
+                Set<String> claimedUsernames = new HashSet<>();
+                for (Map.Entry<UUID, String> entry : users.entrySet()) {
+                    String usernameLower = entry.getValue().toLowerCase(Locale.ROOT);
+                    if (!claimedUsernames.add(usernameLower)) {
+                        // Several players have taken the same name since the last saving
+                        usernameLower = null;
+                    } else {
+                        releaseStatement.setString(1, usernameLower);
+                        releaseStatement.setObject(2, entry.getKey());
+                        releaseStatement.addBatch();
+                    }
+
+                    upsertStatement.setObject(1, entry.getKey());
+                    upsertStatement.setString(2, entry.getValue());
+                    upsertStatement.setString(3, usernameLower);
+                    upsertStatement.setString(4, entry.getValue());
+                    upsertStatement.setString(5, usernameLower);
+                    upsertStatement.addBatch();
+                }
+                releaseStatement.executeBatch();
+                upsertStatement.executeBatch();
+                connection.commit();
+            } catch (SQLException sqlException) {
+                connection.rollback();
+                throw sqlException;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
         } catch (SQLException sqlException) {
-            throw new IllegalStateException("Cannot create or update", sqlException);
+            throw new IllegalStateException("Cannot create or update users", sqlException);
         }
     }
 
@@ -130,8 +172,8 @@ public final class PostgresPlayerDataRepository implements PlayerDataRepository
              PreparedStatement statement = connection.prepareStatement(
                      "SELECT uuid " +
                              "FROM chatty_users " +
-                             "WHERE lower(username) = lower(?)")) {
-            statement.setString(1, playerName);
+                             "WHERE username_lower = ?")) {
+            statement.setString(1, playerName.toLowerCase(Locale.ROOT));
 
             ResultSet resultSet = statement.executeQuery();
             if (resultSet.next()) {
@@ -215,7 +257,7 @@ public final class PostgresPlayerDataRepository implements PlayerDataRepository
                      "SELECT spy " +
                              "FROM chatty_users " +
                              "WHERE uuid = ?")) {
-            statement.setString(1, playerUuid.toString());
+            statement.setObject(1, playerUuid);
 
             ResultSet resultSet = statement.executeQuery();
             if (resultSet.next()) {
@@ -234,13 +276,56 @@ public final class PostgresPlayerDataRepository implements PlayerDataRepository
              PreparedStatement statement = connection.prepareStatement(
                      "UPDATE chatty_users SET spy = ? WHERE uuid = ?")) {
             statement.setBoolean(1, spy);
-            statement.setString(2, playerUuid.toString());
+            statement.setObject(2, playerUuid);
             statement.executeUpdate();
         } catch (SQLException sqlException) {
             throw new IllegalStateException("Cannot update player spy mode", sqlException);
         }
     }
 
+    @Override
+    public @NotNull Map<@NotNull UUID, @NotNull PlayerData> loadPlayersData(@NotNull Collection<@NotNull UUID> uuids) {
+        PlayerDataBatch batch = new PlayerDataBatch(uuids);
+        if (batch.getUuids().isEmpty()) {
+            return batch.build();
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            Array uuidsArray = connection.createArrayOf("uuid", batch.getUuids().toArray());
+
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT uuid, username, spy " +
+                            "FROM chatty_users " +
+                            "WHERE uuid = ANY(?)")) {
+                statement.setArray(1, uuidsArray);
+
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    batch.addUser((UUID) resultSet.getObject(1), resultSet.getString(2), resultSet.getBoolean(3));
+                }
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT player_uuid, ignored_uuid " +
+                            "FROM chatty_ignored_users " +
+                            "WHERE player_uuid = ANY(?) OR ignored_uuid = ANY(?)")) {
+                statement.setArray(1, uuidsArray);
+                statement.setArray(2, uuidsArray);
+
+                ResultSet resultSet = statement.executeQuery();
+                while (resultSet.next()) {
+                    batch.addIgnore((UUID) resultSet.getObject(1), (UUID) resultSet.getObject(2));
+                }
+            }
+
+            uuidsArray.free();
+        } catch (SQLException sqlException) {
+            throw new IllegalStateException("Cannot load players data", sqlException);
+        }
+
+        return batch.build();
+    }
+
     @Override
     public void close() {
         dataSource.close();
@@ -0,0 +1,273 @@
+package ru.brikster.chatty.repository.player;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQLite database in WAL mode with one writer and several readers.
+ * SQLite allows only one writer at a time, so writes are executed by the writer thread,
+ * which groups queued writes into one transaction. Reads are executed by calling threads
+ * on the read connections. Every connection keeps its prepared statements.
+ */
+final class SqliteEngine implements AutoCloseable {
+
+    private static final int MAX_WRITES_PER_TRANSACTION = 256;
+
+    private final StatementCache writeConnection;
+    private final BlockingQueue<WriteTask<?>> writeQueue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private final List<StatementCache> readConnections = new ArrayList<>();
+    private final BlockingQueue<StatementCache> idleReadConnections;
+
+    SqliteEngine(@NotNull String jdbcUrl, int readConnectionsCount) throws SQLException {
+        this.writeConnection = new StatementCache(openConnection(jdbcUrl, false));
+        writeConnection.connection.setAutoCommit(false);
+
+        this.idleReadConnections = new ArrayBlockingQueue<>(readConnectionsCount);
+        for (int i = 0; i < readConnectionsCount; i++) {
+            StatementCache readConnection = new StatementCache(openConnection(jdbcUrl, true));
+            readConnections.add(readConnection);
+            idleReadConnections.add(readConnection);
+        }
+
+        this.writerThread = new Thread(this::runWriter, "Chatty SQLite Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    <T> T read(@NotNull SqlFunction<T> function) throws SQLException {
+        StatementCache connection;
+        try {
+            connection = idleReadConnections.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for read connection", e);
+        }
+
+        try {
+            return function.apply(connection);
+        } finally {
+            idleReadConnections.add(connection);
+        }
+    }
+
+    /**
+     * Executes function in the writer thread and waits for the transaction to be committed
+     */
+    <T> T write(@NotNull SqlFunction<T> function) throws SQLException {
+        if (Thread.currentThread() == writerThread) {
+            return function.apply(writeConnection);
+        }
+
+        if (!running) {
+            throw new SQLException("SQLite engine is closed");
+        }
+
+        WriteTask<T> task = new WriteTask<>(function);
+        writeQueue.add(task);
+        if (!running && writeQueue.remove(task)) {
+            // Engine has been closed concurrently, and the writer may have already drained the queue
+            throw new SQLException("SQLite engine is closed");
+        }
+
+        try {
+            return task.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new SQLException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+            if (writerThread.isAlive()) {
+                // Queued writes are failed by the writer after interruption
+                writerThread.interrupt();
+                writerThread.join(TimeUnit.SECONDS.toMillis(10));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Write connection is owned by the writer, so it's not closed under the running statement
+        if (!writerThread.isAlive()) {
+            writeConnection.close();
+        }
+        readConnections.forEach(StatementCache::close);
+    }
+
+    private void runWriter() {
+        List<WriteTask<?>> transaction = new ArrayList<>();
+        while (running || !writeQueue.isEmpty()) {
+            try {
+                WriteTask<?> firstTask = writeQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (firstTask == null) {
+                    continue;
+                }
+                transaction.add(firstTask);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            writeQueue.drainTo(transaction, MAX_WRITES_PER_TRANSACTION - 1);
+            executeTransaction(transaction);
+            transaction.clear();
+        }
+
+        WriteTask<?> task;
+        while ((task = writeQueue.poll()) != null) {
+            task.future.completeExceptionally(new SQLException("SQLite engine is closed"));
+        }
+    }
+
+    private void executeTransaction(List<WriteTask<?>> transaction) {
+        Connection connection = writeConnection.connection;
+        List<WriteTask<?>> succeeded = new ArrayList<>(transaction.size());
+
+        for (WriteTask<?> task : transaction) {
+            Savepoint savepoint = null;
+            try {
+                // Failed write mustn't roll back other writes of the transaction
+                savepoint = connection.setSavepoint();
+                task.execute(writeConnection);
+                connection.releaseSavepoint(savepoint);
+                succeeded.add(task);
+            } catch (Throwable t) {
+                if (savepoint != null) {
+                    try {
+                        connection.rollback(savepoint);
+                    } catch (SQLException rollbackException) {
+                        t.addSuppressed(rollbackException);
+                    }
+                }
+                task.future.completeExceptionally(t);
+            }
+        }
+
+        try {
+            connection.commit();
+            succeeded.forEach(WriteTask::complete);
+        } catch (SQLException commitException) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackException) {
+                commitException.addSuppressed(rollbackException);
+            }
+            succeeded.forEach(task -> task.future.completeExceptionally(commitException));
+        }
+    }
+
+    private static Connection openConnection(String jdbcUrl, boolean readOnly) throws SQLException {
+        Connection connection = DriverManager.getConnection(jdbcUrl);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode = WAL");
+            // Safe in WAL mode: committed transactions may be lost on power loss, but the database can't be corrupted
+            statement.execute("PRAGMA synchronous = NORMAL");
+            statement.execute("PRAGMA busy_timeout = 5000");
+            if (readOnly) {
+                statement.execute("PRAGMA query_only = true");
+            }
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    @FunctionalInterface
+    interface SqlFunction<T> {
+
+        T apply(@NotNull StatementCache statements) throws SQLException;
+
+    }
+
+    /**
+     * Connection with prepared statements, that are reused by SQL text.
+     * Statements mustn't be closed by callers, but their result sets must be
+     */
+    static final class StatementCache {
+
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        private StatementCache(Connection connection) {
+            this.connection = connection;
+        }
+
+        @NotNull PreparedStatement prepare(@NotNull String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            } else {
+                statement.clearParameters();
+                statement.clearBatch();
+            }
+            return statement;
+        }
+
+        private void close() {
+            for (PreparedStatement statement : statements.values()) {
+                try {
+                    statement.close();
+                } catch (SQLException ignored) {
+                }
+            }
+            statements.clear();
+
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+            }
+        }
+
+    }
+
+    private static final class WriteTask<T> {
+
+        private final SqlFunction<T> function;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+
+        private WriteTask(SqlFunction<T> function) {
+            this.function = function;
+        }
+
+        private void execute(StatementCache statements) throws SQLException {
+            this.result = function.apply(statements);
+        }
+
+        private void complete() {
+            future.complete(result);
+        }
+
+    }
+
+}
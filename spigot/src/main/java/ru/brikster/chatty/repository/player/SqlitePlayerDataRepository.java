@@ -1,30 +1,38 @@
 package ru.brikster.chatty.repository.player;
 
-import com.zaxxer.hikari.HikariConfig;
-import com.zaxxer.hikari.HikariDataSource;
+import com.google.common.collect.Lists;
 import org.bukkit.entity.Player;
 import org.flywaydb.core.Flyway;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import ru.brikster.chatty.Chatty;
-import ru.brikster.chatty.util.SqliteUtil;
+import ru.brikster.chatty.util.UuidUtil;
 
 import javax.inject.Singleton;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
 @Singleton
 public final class SqlitePlayerDataRepository implements PlayerDataRepository {
 
-    private final HikariDataSource dataSource;
+    private static final int READ_CONNECTIONS_COUNT = 4;
+
+    // SQLite limits count of statement parameters by 999, and the ignores query has two parameters per uuid
+    private static final int IN_CHUNK_SIZE = 400;
+
+    private final SqliteEngine engine;
 
     public SqlitePlayerDataRepository(Path dataFolder) {
         try {
@@ -33,59 +41,62 @@ public final class SqlitePlayerDataRepository implements PlayerDataRepository {
             throw new IllegalStateException("Cannot create data folder", e);
         }
 
-        HikariConfig config = new HikariConfig();
-        config.setJdbcUrl("jdbc:sqlite:" + dataFolder.resolve("database.sqlite"));
-        config.setPoolName("Chatty");
-        config.setMaximumPoolSize(8);
-
-        this.dataSource = new HikariDataSource(config);
+        String jdbcUrl = "jdbc:sqlite:" + dataFolder.resolve("database.sqlite");
 
         Flyway flyway = Flyway.configure(Chatty.class.getClassLoader())
                 .locations("db/migration/sqlite")
-                .dataSource(dataSource)
+                .dataSource(jdbcUrl, null, null)
                 .load();
         flyway.migrate();
+
+        try {
+            this.engine = new SqliteEngine(jdbcUrl, READ_CONNECTIONS_COUNT);
+        } catch (SQLException sqlException) {
+            throw new IllegalStateException("Cannot open database", sqlException);
+        }
     }
 
     @Override
-    public @NotNull Set<@NotNull UUID> getWhoIgnoreUuids(@NotNull Player player) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(
-                     "SELECT player_uuid " +
-                             "FROM ignored_users " +
-                             "WHERE ignored_uuid = ?")) {
-            statement.setBytes(1, SqliteUtil.fromUUID(player.getUniqueId()));
-
-            ResultSet resultSet = statement.executeQuery();
-
-            Set<UUID> ignoredPlayers = new HashSet<>();
-            while (resultSet.next()) {
-                ignoredPlayers.add(SqliteUtil.toUUID(resultSet.getBytes(1)));
-            }
-
-            return ignoredPlayers;
+    public @NotNull Set<@NotNull UUID> getWhoIgnoreUuids(@NotNull UUID playerUuid) {
+        try {
+            return engine.read(statements -> {
+                PreparedStatement statement = statements.prepare(
+                        "SELECT player_uuid " +
+                                "FROM ignored_users " +
+                                "WHERE ignored_uuid = ?");
+                statement.setBytes(1, UuidUtil.fromUUID(playerUuid));
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    Set<UUID> ignoredPlayers = new HashSet<>();
+                    while (resultSet.next()) {
+                        ignoredPlayers.add(UuidUtil.toUUID(resultSet.getBytes(1)));
+                    }
+                    return ignoredPlayers;
+                }
+            });
         } catch (SQLException sqlException) {
             throw new IllegalStateException("Cannot retrieve ignored players", sqlException);
         }
     }
 
     @Override
-    public @NotNull Set<@NotNull UUID> getIgnoredPlayersByUuids(@NotNull Player player) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(
-                     "SELECT ignored_uuid " +
-                             "FROM ignored_users " +
-                             "WHERE player_uuid = ?")) {
-            statement.setBytes(1, SqliteUtil.fromUUID(player.getUniqueId()));
-
-            ResultSet resultSet = statement.executeQuery();
-
-            Set<UUID> ignoredPlayers = new HashSet<>();
-            while (resultSet.next()) {
-                ignoredPlayers.add(SqliteUtil.toUUID(resultSet.getBytes(1)));
-            }
-
-            return ignoredPlayers;
+    public @NotNull Set<@NotNull UUID> getIgnoredPlayersByUuids(@NotNull UUID playerUuid) {
+        try {
+            return engine.read(statements -> {
+                PreparedStatement statement = statements.prepare(
+                        "SELECT ignored_uuid " +
+                                "FROM ignored_users " +
+                                "WHERE player_uuid = ?");
+                statement.setBytes(1, UuidUtil.fromUUID(playerUuid));
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    Set<UUID> ignoredPlayers = new HashSet<>();
+                    while (resultSet.next()) {
+                        ignoredPlayers.add(UuidUtil.toUUID(resultSet.getBytes(1)));
+                    }
+                    return ignoredPlayers;
+                }
+            });
         } catch (SQLException sqlException) {
             throw new IllegalStateException("Cannot retrieve ignored players", sqlException);
         }
@@ -93,21 +104,22 @@ public final class SqlitePlayerDataRepository implements PlayerDataRepository {
 
     @Override
     public @NotNull Set<@NotNull String> getIgnoredPlayersByUsernames(@NotNull Player player) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(
-                     "SELECT username " +
-                             "FROM ignored_users iu JOIN users u ON iu.ignored_uuid = u.uuid " +
-                             "WHERE player_uuid = ?")) {
-            statement.setBytes(1, SqliteUtil.fromUUID(player.getUniqueId()));
-
-            ResultSet resultSet = statement.executeQuery();
-
-            Set<String> ignoredPlayers = new HashSet<>();
-            while (resultSet.next()) {
-                ignoredPlayers.add(resultSet.getString(1));
-            }
-
-            return ignoredPlayers;
+        try {
+            return engine.read(statements -> {
+                PreparedStatement statement = statements.prepare(
+                        "SELECT username " +
+                                "FROM ignored_users iu JOIN users u ON iu.ignored_uuid = u.uuid " +
+                                "WHERE player_uuid = ?");
+                statement.setBytes(1, UuidUtil.fromUUID(player.getUniqueId()));
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    Set<String> ignoredPlayers = new HashSet<>();
+                    while (resultSet.next()) {
+                        ignoredPlayers.add(resultSet.getString(1));
+                    }
+                    return ignoredPlayers;
+                }
+            });
         } catch (SQLException sqlException) {
             throw new IllegalStateException("Cannot retrieve ignored players", sqlException);
         }
@@ -115,33 +127,57 @@ public final class SqlitePlayerDataRepository implements PlayerDataRepository {
 
     @Override
     public void createOrUpdateUser(@NotNull UUID uuid, @NotNull String username) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(
-                     "INSERT INTO users (uuid, username) VALUES (?, ?) ON CONFLICT (uuid) DO UPDATE SET username = ?")) {
-            statement.setBytes(1, SqliteUtil.fromUUID(uuid));
-            statement.setString(2, username);
-            statement.setString(3, username);
-            statement.executeUpdate();
+        try {
+            engine.write(statements -> {
+                PreparedStatement statement = statements.prepare(
+                        "INSERT INTO users (uuid, username) VALUES (?, ?) ON CONFLICT (uuid) DO UPDATE SET username = ?");
+                statement.setBytes(1, UuidUtil.fromUUID(uuid));
+                statement.setString(2, username);
+                statement.setString(3, username);
+                return statement.executeUpdate();
+            });
         } catch (SQLException sqlException) {
             throw new IllegalStateException("Cannot create or update", sqlException);
         }
     }
 
+    @Override
+    public void createOrUpdateUsers(@NotNull Map<@NotNull UUID, @NotNull String> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+
+        try {
+            engine.write(statements -> {
+                PreparedStatement statement = statements.prepare(
+                        "INSERT INTO users (uuid, username) VALUES (?, ?) ON CONFLICT (uuid) DO UPDATE SET username = ?");
+                for (Map.Entry<UUID, String> entry : users.entrySet()) {
+                    statement.setBytes(1, UuidUtil.fromUUID(entry.getKey()));
+                    statement.setString(2, entry.getValue());
+                    statement.setString(3, entry.getValue());
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            });
+        } catch (SQLException sqlException) {
+            throw new IllegalStateException("Cannot create or update users", sqlException);
+        }
+    }
+
     @Override
     public @Nullable UUID getCachedUuid(@NotNull String playerName) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(
-                     "SELECT uuid " +
-                             "FROM users " +
-                             "WHERE lower(username) = lower(?)")) {
-            statement.setString(1, playerName);
-
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                return SqliteUtil.toUUID(resultSet.getBytes(1));
-            } else {
-                return null;
-            }
+        try {
+            return engine.read(statements -> {
+                PreparedStatement statement = statements.prepare(
+                        "SELECT uuid " +
+                                "FROM users " +
+                                "WHERE lower(username) = lower(?)");
+                statement.setString(1, playerName);
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? UuidUtil.toUUID(resultSet.getBytes(1)) : null;
+                }
+            });
         } catch (SQLException sqlException) {
             throw new IllegalStateException("Cannot retrieve cached uuid", sqlException);
         }
@@ -149,19 +185,18 @@ public final class SqlitePlayerDataRepository implements PlayerDataRepository {
 
     @Override
     public @Nullable String getCachedUsername(@NotNull UUID uuid) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(
-                     "SELECT username " +
-                             "FROM users " +
-                             "WHERE uuid = ?")) {
-            statement.setBytes(1, SqliteUtil.fromUUID(uuid));
-
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                return resultSet.getString(1);
-            } else {
-                return null;
-            }
+        try {
+            return engine.read(statements -> {
+                PreparedStatement statement = statements.prepare(
+                        "SELECT username " +
+                                "FROM users " +
+                                "WHERE uuid = ?");
+                statement.setBytes(1, UuidUtil.fromUUID(uuid));
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? resultSet.getString(1) : null;
+                }
+            });
         } catch (SQLException sqlException) {
             throw new IllegalStateException("Cannot retrieve cached username", sqlException);
         }
@@ -169,12 +204,14 @@ public final class SqlitePlayerDataRepository implements PlayerDataRepository {
 
     @Override
     public void addIgnoredPlayer(@NotNull UUID playerUuid, @NotNull UUID uuid) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(
-                     "INSERT INTO ignored_users (player_uuid, ignored_uuid) VALUES (?, ?)")) {
-            statement.setBytes(1, SqliteUtil.fromUUID(playerUuid));
-            statement.setBytes(2, SqliteUtil.fromUUID(uuid));
-            statement.executeUpdate();
+        try {
+            engine.write(statements -> {
+                PreparedStatement statement = statements.prepare(
+                        "INSERT INTO ignored_users (player_uuid, ignored_uuid) VALUES (?, ?)");
+                statement.setBytes(1, UuidUtil.fromUUID(playerUuid));
+                statement.setBytes(2, UuidUtil.fromUUID(uuid));
+                return statement.executeUpdate();
+            });
         } catch (SQLException sqlException) {
             throw new IllegalStateException("Cannot add ignored player", sqlException);
         }
@@ -182,13 +219,15 @@ public final class SqlitePlayerDataRepository implements PlayerDataRepository {
 
     @Override
     public void removeIgnoredPlayer(@NotNull UUID playerUuid, @NotNull UUID uuid) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(
-                     "DELETE FROM ignored_users" +
-                             " WHERE player_uuid = ? AND ignored_uuid = ?")) {
-            statement.setBytes(1, SqliteUtil.fromUUID(playerUuid));
-            statement.setBytes(2, SqliteUtil.fromUUID(uuid));
-            statement.executeUpdate();
+        try {
+            engine.write(statements -> {
+                PreparedStatement statement = statements.prepare(
+                        "DELETE FROM ignored_users" +
+                                " WHERE player_uuid = ? AND ignored_uuid = ?");
+                statement.setBytes(1, UuidUtil.fromUUID(playerUuid));
+                statement.setBytes(2, UuidUtil.fromUUID(uuid));
+                return statement.executeUpdate();
+            });
         } catch (SQLException sqlException) {
             throw new IllegalStateException("Cannot remove ignored player", sqlException);
         }
@@ -196,16 +235,19 @@ public final class SqlitePlayerDataRepository implements PlayerDataRepository {
 
     @Override
     public boolean isIgnoredPlayer(@NotNull UUID playerUuid, @NotNull UUID uuid) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(
-                     "SELECT ignored_uuid " +
-                             "FROM ignored_users " +
-                             "WHERE player_uuid = ? AND ignored_uuid = ?")) {
-            statement.setBytes(1, SqliteUtil.fromUUID(playerUuid));
-            statement.setBytes(2, SqliteUtil.fromUUID(uuid));
-
-            ResultSet resultSet = statement.executeQuery();
-            return resultSet.next();
+        try {
+            return engine.read(statements -> {
+                PreparedStatement statement = statements.prepare(
+                        "SELECT ignored_uuid " +
+                                "FROM ignored_users " +
+                                "WHERE player_uuid = ? AND ignored_uuid = ?");
+                statement.setBytes(1, UuidUtil.fromUUID(playerUuid));
+                statement.setBytes(2, UuidUtil.fromUUID(uuid));
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next();
+                }
+            });
         } catch (SQLException sqlException) {
             throw new IllegalStateException("Cannot check ignored player", sqlException);
         }
@@ -213,19 +255,18 @@ public final class SqlitePlayerDataRepository implements PlayerDataRepository {
 
     @Override
     public boolean isEnableSpy(@NotNull UUID playerUuid) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(
-                     "SELECT spy " +
-                             "FROM users " +
-                             "WHERE uuid = ?")) {
-            statement.setBytes(1, SqliteUtil.fromUUID(playerUuid));
-
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                return resultSet.getBoolean("spy");
-            } else {
-                return false;
-            }
+        try {
+            return engine.read(statements -> {
+                PreparedStatement statement = statements.prepare(
+                        "SELECT spy " +
+                                "FROM users " +
+                                "WHERE uuid = ?");
+                statement.setBytes(1, UuidUtil.fromUUID(playerUuid));
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() && resultSet.getBoolean("spy");
+                }
+            });
         } catch (SQLException sqlException) {
             throw new IllegalStateException("Cannot check player spy mode", sqlException);
         }
@@ -233,20 +274,79 @@ public final class SqlitePlayerDataRepository implements PlayerDataRepository {
 
     @Override
     public void setEnableSpy(@NotNull UUID playerUuid, boolean spy) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(
-                     "UPDATE users SET spy = ? WHERE uuid = ?")) {
-            statement.setBoolean(1, spy);
-            statement.setBytes(2, SqliteUtil.fromUUID(playerUuid));
-            statement.executeUpdate();
+        try {
+            engine.write(statements -> {
+                PreparedStatement statement = statements.prepare(
+                        "UPDATE users SET spy = ? WHERE uuid = ?");
+                statement.setBoolean(1, spy);
+                statement.setBytes(2, UuidUtil.fromUUID(playerUuid));
+                return statement.executeUpdate();
+            });
         } catch (SQLException sqlException) {
             throw new IllegalStateException("Cannot update player spy mode", sqlException);
         }
     }
 
+    @Override
+    public @NotNull Map<@NotNull UUID, @NotNull PlayerData> loadPlayersData(@NotNull Collection<@NotNull UUID> uuids) {
+        PlayerDataBatch batch = new PlayerDataBatch(uuids);
+        if (batch.getUuids().isEmpty()) {
+            return batch.build();
+        }
+
+        String placeholders = String.join(", ", Collections.nCopies(IN_CHUNK_SIZE, "?"));
+
+        try {
+            engine.read(statements -> {
+                for (List<UUID> chunk : Lists.partition(new ArrayList<>(batch.getUuids()), IN_CHUNK_SIZE)) {
+                    // Chunks are padded with the last uuid, so all of them use the same cached statements
+                    List<UUID> paddedChunk = new ArrayList<>(chunk);
+                    while (paddedChunk.size() < IN_CHUNK_SIZE) {
+                        paddedChunk.add(chunk.get(chunk.size() - 1));
+                    }
+
+                    PreparedStatement usersStatement = statements.prepare(
+                            "SELECT uuid, username, spy " +
+                                    "FROM users " +
+                                    "WHERE uuid IN (" + placeholders + ")");
+                    for (int index = 0; index < IN_CHUNK_SIZE; index++) {
+                        usersStatement.setBytes(index + 1, UuidUtil.fromUUID(paddedChunk.get(index)));
+                    }
+
+                    try (ResultSet resultSet = usersStatement.executeQuery()) {
+                        while (resultSet.next()) {
+                            batch.addUser(UuidUtil.toUUID(resultSet.getBytes(1)), resultSet.getString(2), resultSet.getBoolean(3));
+                        }
+                    }
+
+                    PreparedStatement ignoresStatement = statements.prepare(
+                            "SELECT player_uuid, ignored_uuid " +
+                                    "FROM ignored_users " +
+                                    "WHERE player_uuid IN (" + placeholders + ") OR ignored_uuid IN (" + placeholders + ")");
+                    for (int index = 0; index < IN_CHUNK_SIZE; index++) {
+                        byte[] uuidBytes = UuidUtil.fromUUID(paddedChunk.get(index));
+                        ignoresStatement.setBytes(index + 1, uuidBytes);
+                        ignoresStatement.setBytes(IN_CHUNK_SIZE + index + 1, uuidBytes);
+                    }
+
+                    try (ResultSet resultSet = ignoresStatement.executeQuery()) {
+                        while (resultSet.next()) {
+                            batch.addIgnore(UuidUtil.toUUID(resultSet.getBytes(1)), UuidUtil.toUUID(resultSet.getBytes(2)));
+                        }
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException sqlException) {
+            throw new IllegalStateException("Cannot load players data", sqlException);
+        }
+
+        return batch.build();
+    }
+
     @Override
     public void close() {
-        dataSource.close();
+        engine.close();
     }
 
 }
@@ -0,0 +1,127 @@
+package ru.brikster.chatty.repository.player;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.brikster.chatty.config.file.SettingsConfig;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Usernames of players, that should be saved to the repository.
+ * Players are queued once per join (or when the name has changed since last saving),
+ * and the queue is saved in one batch periodically and on disable.
+ */
+@Singleton
+public final class UserUpsertQueue implements Listener {
+
+    @Inject private AsyncPlayerDataRepository asyncRepository;
+    @Inject private SettingsConfig settingsConfig;
+
+    private final Map<UUID, String> pending = new ConcurrentHashMap<>();
+
+    // Usernames of online players, that were saved during this session
+    private final Map<UUID, String> savedUsernames = new ConcurrentHashMap<>();
+
+    private @Nullable Plugin plugin;
+    private @Nullable BukkitTask flushTask;
+
+    public void start(@NotNull Plugin plugin) {
+        this.plugin = plugin;
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            enqueue(player.getUniqueId(), player.getName());
+        }
+
+        int period = Math.max(1, settingsConfig.getUserUpsertFlushPeriod());
+        this.flushTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::flush, period, period);
+    }
+
+    public void stop() {
+        HandlerList.unregisterAll(this);
+
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+
+        flush();
+        savedUsernames.clear();
+    }
+
+    public void enqueue(@NotNull UUID uuid, @NotNull String username) {
+        if (!username.equals(savedUsernames.get(uuid))) {
+            pending.put(uuid, username);
+        }
+    }
+
+    /**
+     * Skips saving of players, whose stored usernames are actual (after reload)
+     */
+    public void preload(@NotNull Collection<@NotNull PlayerData> playersData) {
+        for (PlayerData playerData : playersData) {
+            if (playerData.getUsername() != null) {
+                savedUsernames.put(playerData.getUuid(), playerData.getUsername());
+                pending.remove(playerData.getUuid(), playerData.getUsername());
+            }
+        }
+    }
+
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, String> users = new HashMap<>();
+        for (Map.Entry<UUID, String> entry : pending.entrySet()) {
+            // Newer username, that is queued during iteration, stays in the queue
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                users.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        try {
+            asyncRepository.createOrUpdateUsers(users).join();
+            users.forEach((uuid, username) -> {
+                if (Bukkit.getPlayer(uuid) != null) {
+                    savedUsernames.put(uuid, username);
+                }
+            });
+        } catch (CompletionException e) {
+            // Will be retried on the next flush, unless newer usernames are queued
+            users.forEach(pending::putIfAbsent);
+            if (plugin != null) {
+                plugin.getLogger().log(Level.SEVERE, "Cannot save usernames of " + users.size() + " players", e.getCause());
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent event) {
+        enqueue(event.getPlayer().getUniqueId(), event.getPlayer().getName());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        savedUsernames.remove(event.getPlayer().getUniqueId());
+    }
+
+}
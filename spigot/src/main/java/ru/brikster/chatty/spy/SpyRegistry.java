@@ -0,0 +1,158 @@
+package ru.brikster.chatty.spy;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import ru.brikster.chatty.permission.PermissionSnapshotService;
+import ru.brikster.chatty.repository.player.AsyncPlayerDataRepository;
+import ru.brikster.chatty.repository.player.PlayerData;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Online players with enabled spy mode.
+ * Spy flags are loaded on login and persisted asynchronously on change,
+ * so spies are resolved without database queries.
+ */
+@Singleton
+public final class SpyRegistry implements Listener {
+
+    @Inject private AsyncPlayerDataRepository asyncRepository;
+    @Inject private PermissionSnapshotService permissionSnapshots;
+
+    // Flags, that are loaded on login, but player hasn't joined yet
+    private final Map<UUID, Boolean> loadedFlags = new ConcurrentHashMap<>();
+    private final Map<UUID, Player> spies = new ConcurrentHashMap<>();
+    // Last not completed write of spy mode
+    private final Map<UUID, CompletableFuture<Void>> pendingWrites = new ConcurrentHashMap<>();
+
+    private Plugin plugin;
+
+    public void start(@NotNull Plugin plugin) {
+        this.plugin = plugin;
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+    }
+
+    public void stop() {
+        HandlerList.unregisterAll(this);
+        loadedFlags.clear();
+        spies.clear();
+    }
+
+    /**
+     * Fills spy modes of players, that are already online (after reload)
+     */
+    public void preload(@NotNull Collection<@NotNull PlayerData> playersData) {
+        for (PlayerData playerData : playersData) {
+            Player player = Bukkit.getPlayer(playerData.getUuid());
+            if (player != null && playerData.isSpy()) {
+                spies.put(player.getUniqueId(), player);
+            }
+        }
+    }
+
+    /**
+     * @param permission the permission node spies must have (e.g. "chatty.spy.global" or "chatty.spy.pm")
+     * @return online players with enabled spy mode and the permission
+     */
+    public @NotNull List<Player> getSpies(@NotNull String permission) {
+        List<Player> spiesWithPermission = new ArrayList<>();
+        for (Player spy : spies.values()) {
+            if (permissionSnapshots.hasPermission(spy, permission)) {
+                spiesWithPermission.add(spy);
+            }
+        }
+        return spiesWithPermission;
+    }
+
+    public void setEnabled(@NotNull Player player, boolean enabled) {
+        if (enabled) {
+            spies.put(player.getUniqueId(), player);
+        } else {
+            spies.remove(player.getUniqueId());
+        }
+
+        // Database pool has several threads, so writes of the same player are chained to be committed in order
+        UUID uuid = player.getUniqueId();
+        CompletableFuture<Void> write = pendingWrites.compute(uuid, (key, previous) -> previous == null
+                ? save(player, enabled)
+                : previous.thenCompose(ignored -> save(player, enabled)));
+        write.whenComplete((ignored, throwable) -> pendingWrites.remove(uuid, write));
+    }
+
+    private CompletableFuture<Void> save(Player player, boolean enabled) {
+        return asyncRepository.setEnableSpy(player.getUniqueId(), enabled).exceptionally(throwable -> {
+            plugin.getLogger().log(Level.SEVERE, "Cannot save spy mode of " + player.getName(), throwable);
+            return null;
+        });
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            try {
+                // Pre-login is already asynchronous, but the query must not bypass the database pool
+                loadedFlags.put(event.getUniqueId(), asyncRepository.isEnableSpy(event.getUniqueId()).join());
+            } catch (CompletionException e) {
+                // Will be loaded again on join
+                plugin.getLogger().log(Level.SEVERE, "Cannot load spy mode of " + event.getName(), e.getCause());
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            loadedFlags.remove(event.getPlayer().getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        Boolean enabled = loadedFlags.remove(player.getUniqueId());
+        if (enabled == null) {
+            // Login has been handled before Chatty was enabled
+            load(player);
+        } else if (enabled) {
+            spies.put(player.getUniqueId(), player);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        loadedFlags.remove(event.getPlayer().getUniqueId());
+        spies.remove(event.getPlayer().getUniqueId());
+    }
+
+    private void load(Player player) {
+        asyncRepository.isEnableSpy(player.getUniqueId()).thenAccept(enabled -> {
+            if (enabled && player.isOnline()) {
+                spies.put(player.getUniqueId(), player);
+            }
+        }).exceptionally(throwable -> {
+            plugin.getLogger().log(Level.SEVERE, "Cannot load spy mode of " + player.getName(), throwable);
+            return null;
+        });
+    }
+
+}
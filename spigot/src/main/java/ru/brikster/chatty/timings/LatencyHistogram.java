@@ -0,0 +1,102 @@
+package ru.brikster.chatty.timings;
+
+import lombok.Value;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Lock-free log-linear histogram of nanosecond latencies.
+ * Every power of two range is split into {@value #HALF_SUB_BUCKET_COUNT} buckets,
+ * so reported percentiles have at most ~6% relative error.
+ * Recording is a single atomic increment (plus rare max update), reading makes a snapshot of all buckets.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT >> 1;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(bucketIndex(nanos));
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Resets the histogram. Values recorded concurrently with reset may be lost or kept
+     */
+    public void reset() {
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            buckets.set(index, 0);
+        }
+        max.reset();
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long totalCount = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            counts[index] = buckets.get(index);
+            totalCount += counts[index];
+        }
+
+        long maxNanos = max.get();
+        return new Snapshot(totalCount,
+                Math.min(valueAtQuantile(counts, totalCount, 0.5), maxNanos),
+                Math.min(valueAtQuantile(counts, totalCount, 0.99), maxNanos),
+                Math.min(valueAtQuantile(counts, totalCount, 0.999), maxNanos),
+                maxNanos);
+    }
+
+    private static long valueAtQuantile(long[] counts, long totalCount, double quantile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * totalCount));
+        long seen = 0;
+        for (int index = 0; index < counts.length; index++) {
+            seen += counts[index];
+            if (seen >= rank) {
+                return highestValueInBucket(index);
+            }
+        }
+
+        return highestValueInBucket(counts.length - 1);
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift);
+        return shift * HALF_SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long highestValueInBucket(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / HALF_SUB_BUCKET_COUNT - 1;
+        long subBucket = index - (long) shift * HALF_SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    @Value
+    public static class Snapshot {
+        long count;
+        long p50Nanos;
+        long p99Nanos;
+        long p999Nanos;
+        long maxNanos;
+    }
+
+}
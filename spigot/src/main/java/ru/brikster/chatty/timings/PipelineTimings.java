@@ -0,0 +1,140 @@
+package ru.brikster.chatty.timings;
+
+import org.jetbrains.annotations.NotNull;
+import ru.brikster.chatty.api.chat.message.strategy.MessageTransformStrategy.Stage;
+
+import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms of the chat messages pipeline: per stage, per strategy class, per chat and for delivery.
+ * Also counts hits of the relational placeholders cache and measures database operations.
+ */
+@Singleton
+public final class PipelineTimings {
+
+    private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private final Map<Class<?>, LatencyHistogram> strategies = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> chats = new ConcurrentHashMap<>();
+    private final LatencyHistogram delivery = new LatencyHistogram();
+
+    // Count of personal renders skipped because of identical output for several recipients
+    private final LongAdder savedPostRenders = new LongAdder();
+
+    private final LongAdder relationalCacheHits = new LongAdder();
+    private final LongAdder relationalCacheMisses = new LongAdder();
+
+    // Time, that database operations wait for a thread, and time of their execution
+    private final LatencyHistogram databaseQueue = new LatencyHistogram();
+    private final LatencyHistogram databaseExecution = new LatencyHistogram();
+
+    private volatile long windowStartMillis = System.currentTimeMillis();
+
+    public PipelineTimings() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public void recordStage(@NotNull Stage stage, long nanos) {
+        stages.get(stage).record(nanos);
+    }
+
+    public void recordStrategy(@NotNull Class<?> strategyClass, long nanos) {
+        LatencyHistogram histogram = strategies.get(strategyClass);
+        if (histogram == null) {
+            histogram = strategies.computeIfAbsent(strategyClass, key -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    public void recordChat(@NotNull String chatId, long nanos) {
+        LatencyHistogram histogram = chats.get(chatId);
+        if (histogram == null) {
+            histogram = chats.computeIfAbsent(chatId, key -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    public void recordDelivery(long nanos) {
+        delivery.record(nanos);
+    }
+
+    public void recordSavedPostRenders(int count) {
+        savedPostRenders.add(count);
+    }
+
+    public void recordRelationalCacheHit() {
+        relationalCacheHits.increment();
+    }
+
+    public void recordRelationalCacheMiss() {
+        relationalCacheMisses.increment();
+    }
+
+    public void recordDatabaseQueue(long nanos) {
+        databaseQueue.record(nanos);
+    }
+
+    public void recordDatabaseExecution(long nanos) {
+        databaseExecution.record(nanos);
+    }
+
+    public void reset() {
+        stages.values().forEach(LatencyHistogram::reset);
+        strategies.values().forEach(LatencyHistogram::reset);
+        chats.values().forEach(LatencyHistogram::reset);
+        delivery.reset();
+        savedPostRenders.reset();
+        relationalCacheHits.reset();
+        relationalCacheMisses.reset();
+        databaseQueue.reset();
+        databaseExecution.reset();
+        windowStartMillis = System.currentTimeMillis();
+    }
+
+    public Map<Stage, LatencyHistogram> getStages() {
+        return Collections.unmodifiableMap(stages);
+    }
+
+    public Map<Class<?>, LatencyHistogram> getStrategies() {
+        return Collections.unmodifiableMap(strategies);
+    }
+
+    public Map<String, LatencyHistogram> getChats() {
+        return Collections.unmodifiableMap(chats);
+    }
+
+    public LatencyHistogram getDelivery() {
+        return delivery;
+    }
+
+    public long getSavedPostRenders() {
+        return savedPostRenders.sum();
+    }
+
+    public long getRelationalCacheHits() {
+        return relationalCacheHits.sum();
+    }
+
+    public long getRelationalCacheMisses() {
+        return relationalCacheMisses.sum();
+    }
+
+    public LatencyHistogram getDatabaseQueue() {
+        return databaseQueue;
+    }
+
+    public LatencyHistogram getDatabaseExecution() {
+        return databaseExecution;
+    }
+
+    public long getWindowStartMillis() {
+        return windowStartMillis;
+    }
+
+}
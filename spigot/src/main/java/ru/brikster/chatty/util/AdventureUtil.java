@@ -21,7 +21,6 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.function.Function;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static net.kyori.adventure.text.format.TextDecoration.*;
@@ -32,7 +31,7 @@ public class AdventureUtil {
     @Data
     @AllArgsConstructor
     @Accessors(fluent = true)
-    private static class ComponentPart {
+    static class ComponentPart {
         String text;
         TextColor color;
         Boolean obfuscated;
@@ -44,11 +43,16 @@ public class AdventureUtil {
         HoverEvent<?> hoverEvent;
         String insertion;
         Key font;
+
+        ComponentPart copy() {
+            return new ComponentPart(text, color, obfuscated, bold, strikethrough, underlined, italic,
+                    clickEvent, hoverEvent, insertion, font);
+        }
     }
 
     @Data
     @FieldDefaults(level = AccessLevel.PRIVATE)
-    private static class ComponentState {
+    static class ComponentState {
         TextColor color;
         Boolean obfuscated;
         Boolean bold;
@@ -110,37 +114,53 @@ public class AdventureUtil {
             }
         }
 
+        ComponentState copy() {
+            ComponentState state = new ComponentState();
+            state.color = color;
+            state.obfuscated = obfuscated;
+            state.bold = bold;
+            state.strikethrough = strikethrough;
+            state.underlined = underlined;
+            state.italic = italic;
+            state.clickEvent = clickEvent;
+            state.hoverEvent = hoverEvent;
+            state.insertion = insertion;
+            state.font = font;
+            return state;
+        }
+
         public Style toStyle() {
-            Set<TextDecoration> decorations = new HashSet<>();
+            Style.Builder builder = Style.style().color(color);
 
-            if (obfuscated != null && obfuscated) decorations.add(OBFUSCATED);
-            if (bold != null && bold) decorations.add(BOLD);
-            if (strikethrough != null && strikethrough) decorations.add(STRIKETHROUGH);
-            if (underlined != null && underlined) decorations.add(UNDERLINED);
-            if (italic != null && italic) decorations.add(ITALIC);
+            if (obfuscated != null && obfuscated) builder.decoration(OBFUSCATED, true);
+            if (bold != null && bold) builder.decoration(BOLD, true);
+            if (strikethrough != null && strikethrough) builder.decoration(STRIKETHROUGH, true);
+            if (underlined != null && underlined) builder.decoration(UNDERLINED, true);
+            if (italic != null && italic) builder.decoration(ITALIC, true);
 
-            return Style.style(color, decorations)
+            return builder
                     .clickEvent(clickEvent)
                     .hoverEvent(hoverEvent)
                     .insertion(insertion)
-                    .font(font);
+                    .font(font)
+                    .build();
         }
     }
 
     private static class ComponentPartsExtractionFlattener implements FlattenerListener {
 
-        private final Deque<TextColor> color = new LinkedList<>();
+        private final Deque<TextColor> color = new ArrayDeque<>();
 
-        private final Deque<Boolean> obfuscated = new LinkedList<>();
-        private final Deque<Boolean> bold = new LinkedList<>();
-        private final Deque<Boolean> strikethrough = new LinkedList<>();
-        private final Deque<Boolean> underlined = new LinkedList<>();
-        private final Deque<Boolean> italic = new LinkedList<>();
+        private final Deque<Boolean> obfuscated = new ArrayDeque<>();
+        private final Deque<Boolean> bold = new ArrayDeque<>();
+        private final Deque<Boolean> strikethrough = new ArrayDeque<>();
+        private final Deque<Boolean> underlined = new ArrayDeque<>();
+        private final Deque<Boolean> italic = new ArrayDeque<>();
 
-        private final Deque<ClickEvent> clickEvent = new LinkedList<>();
-        private final Deque<HoverEvent<?>> hoverEvent = new LinkedList<>();
-        private final Deque<String> insertion = new LinkedList<>();
-        private final Deque<Key> font = new LinkedList<>();
+        private final Deque<ClickEvent> clickEvent = new ArrayDeque<>();
+        private final Deque<HoverEvent<?>> hoverEvent = new ArrayDeque<>();
+        private final Deque<String> insertion = new ArrayDeque<>();
+        private final Deque<Key> font = new ArrayDeque<>();
 
         private final List<ComponentPart> parts = new ArrayList<>();
 
@@ -239,7 +259,7 @@ public class AdventureUtil {
 
     }
 
-    private List<ComponentPart> parts(Component component) {
+    List<ComponentPart> parts(Component component) {
         ComponentPartsExtractionFlattener flattener = new ComponentPartsExtractionFlattener();
         ComponentFlattener.basic().flatten(component, flattener);
         return flattener.parts();
@@ -261,87 +281,39 @@ public class AdventureUtil {
      * @param pattern the pattern to match
      * @param componentReplaceFunction the function to process a matched string into a component
      * @param stringReplaceFunction the function to process a matched string into a string
-     * @return the processed component
+     * @return the processed component, or the same component if nothing has been replaced
      */
     public Component replaceWithEndingSpace(Component componentWithEndingSpace, Pattern pattern,
                                             Function<String, @Nullable Component> componentReplaceFunction,
                                             Function<String, @Nullable String> stringReplaceFunction) {
-        List<ComponentPart> originalParts = parts(componentWithEndingSpace);
-        Component resultComponent = Component.empty();
-
-        ComponentState state = new ComponentState();
-
-        for (ComponentPart part : originalParts) {
-            if (part.hoverEvent != null && part.hoverEvent.action() == HoverEvent.Action.SHOW_TEXT) {
-                @SuppressWarnings("unchecked")
-                HoverEvent<Component> hoverEvent = (HoverEvent<Component>) part.hoverEvent;
-                hoverEvent = hoverEvent.value(replaceWithEndingSpace(
-                        hoverEvent.value(),
-                        pattern,
-                        componentReplaceFunction,
-                        stringReplaceFunction));
-                part = part.hoverEvent(hoverEvent);
-            }
+        return ComponentReplacer.builder()
+                .binding(pattern, componentReplaceFunction, stringReplaceFunction)
+                .build()
+                .replaceWithEndingSpace(componentWithEndingSpace);
+    }
 
-            if (part.clickEvent != null) {
-                StringBuilder builder = new StringBuilder();
-
-                String clickEventValue = part.clickEvent.value();
-
-                int beginIndex = 0;
-                Matcher matcher = pattern.matcher(clickEventValue);
-                while (matcher.find()) {
-                    builder.append(clickEventValue, beginIndex, matcher.start());
-                    String group = matcher.group();
-                    String replacement = stringReplaceFunction.apply(group);
-                    builder.append(replacement == null ? group : replacement);
-                    beginIndex = matcher.end();
-                }
-
-                if (beginIndex != clickEventValue.length()) {
-                    builder.append(clickEventValue.substring(beginIndex));
-                }
-
-                part = part.clickEvent(ClickEvent
-                        .clickEvent(part.clickEvent.action(), builder.toString()));
+    /**
+     * Checks if pattern matches any text, click event value or text hover of the component.
+     * Matches are searched the same way as {@link #replaceWithEndingSpace(Component, Pattern, Function, Function)} does,
+     * so if this method returns false, replacement with the same pattern won't change the component
+     * @param component the component to check
+     * @param pattern the pattern to match
+     * @return true if component has at least one match
+     */
+    public boolean containsMatch(Component component, Pattern pattern) {
+        for (ComponentPart part : parts(component)) {
+            if (pattern.matcher(part.text).find()) {
+                return true;
             }
-
-            state.apply(part);
-
-            int beginIndex = 0;
-            Matcher matcher = pattern.matcher(part.text);
-            while (matcher.find()) {
-                String group = matcher.group();
-                Component replaced = componentReplaceFunction.apply(group);
-                if (replaced != null) {
-                    String previousText = part.text.substring(beginIndex, matcher.start());
-                    beginIndex = matcher.end();
-                    resultComponent = resultComponent
-                            .append(Component.text(previousText, state.toStyle()));
-                    List<ComponentPart> parts = parts(replaced);
-                    for (int i = 0; i < parts.size(); i++) {
-                        ComponentPart replacedComponentPart = parts.get(i);
-                        state.applyForeign(replacedComponentPart);
-                        String text = replacedComponentPart.text;
-                        if (i == parts.size() - 1) {
-                            if (text.equals(" ")) {
-                                break;
-                            }
-                            if (text.endsWith(" ")) {
-                                text = text.substring(0, text.length() - 1);
-                            }
-                        }
-                        resultComponent = resultComponent.append(Component.text(text, state.toStyle()));
-                    }
-                }
+            if (part.clickEvent != null && pattern.matcher(part.clickEvent.value()).find()) {
+                return true;
             }
-            if (beginIndex != part.text.length()) {
-                resultComponent = resultComponent
-                        .append(Component.text(part.text.substring(beginIndex), state.toStyle()));
+            if (part.hoverEvent != null && part.hoverEvent.action() == HoverEvent.Action.SHOW_TEXT
+                    && containsMatch((Component) part.hoverEvent.value(), pattern)) {
+                return true;
             }
         }
-
-        return resultComponent;
+        return false;
     }
 
     public TextReplacementConfig createReplacement(@NotNull String literal, @NotNull Object replacement) {
@@ -0,0 +1,381 @@
+package ru.brikster.chatty.util;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.brikster.chatty.util.AdventureUtil.ComponentPart;
+import ru.brikster.chatty.util.AdventureUtil.ComponentState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Replaces substrings matched by several patterns in one pass over the component.
+ * Every binding is processed with the rules of {@link AdventureUtil#replaceWithEndingSpace},
+ * if patterns match at the same index, binding added earlier wins.
+ * Inserted components are not searched for matches again,
+ * nested replacements are prepared with {@link #nest(Component)} instead.
+ */
+public final class ComponentReplacer {
+
+    private final Binding[] bindings;
+
+    private ComponentReplacer(Binding[] bindings) {
+        this.bindings = bindings;
+    }
+
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param componentWithEndingSpace the component with ending space
+     * @return the processed component, or the same component if nothing has been replaced
+     */
+    public @NotNull Component replaceWithEndingSpace(@NotNull Component componentWithEndingSpace) {
+        List<ComponentPart> originalParts = AdventureUtil.parts(componentWithEndingSpace);
+        TextComponent.Builder resultBuilder = Component.text();
+
+        ComponentState state = new ComponentState();
+        Matcher[] matchers = new Matcher[bindings.length];
+        int[] matchStarts = new int[bindings.length];
+        boolean replaced = false;
+
+        for (ComponentPart part : originalParts) {
+            if (part.hoverEvent() != null && part.hoverEvent().action() == HoverEvent.Action.SHOW_TEXT) {
+                @SuppressWarnings("unchecked")
+                HoverEvent<Component> hoverEvent = (HoverEvent<Component>) part.hoverEvent();
+                Component hoverText = replaceWithEndingSpace(hoverEvent.value());
+                if (hoverText != hoverEvent.value()) {
+                    part.hoverEvent(hoverEvent.value(hoverText));
+                    replaced = true;
+                }
+            }
+
+            if (part.clickEvent() != null) {
+                String clickEventValue = replaceString(part.clickEvent().value(), matchers, matchStarts);
+                if (!clickEventValue.equals(part.clickEvent().value())) {
+                    part.clickEvent(ClickEvent.clickEvent(part.clickEvent().action(), clickEventValue));
+                    replaced = true;
+                }
+            }
+
+            state.apply(part);
+
+            String text = part.text();
+            resetMatchers(text, matchers, matchStarts);
+
+            int beginIndex = 0;
+            int bindingIndex;
+            while ((bindingIndex = nextMatch(matchers, matchStarts, beginIndex)) != -1) {
+                Matcher matcher = matchers[bindingIndex];
+                Binding binding = bindings[bindingIndex];
+                if (binding.nestedReplaceFunction != null) {
+                    NestedReplacement nested = binding.nestedReplaceFunction.apply(matcher.group());
+                    if (nested != null) {
+                        resultBuilder.append(Component.text(text.substring(beginIndex, matcher.start()), state.toStyle()));
+                        beginIndex = matcher.end();
+                        nested.appendTo(resultBuilder, state);
+                        replaced = true;
+                    }
+                } else {
+                    Component replacement = binding.componentReplaceFunction.apply(matcher.group());
+                    if (replacement != null) {
+                        resultBuilder.append(Component.text(text.substring(beginIndex, matcher.start()), state.toStyle()));
+                        beginIndex = matcher.end();
+                        appendReplaced(resultBuilder, state, replacement);
+                        replaced = true;
+                    }
+                }
+                advance(matchers, matchStarts, bindingIndex);
+            }
+
+            if (beginIndex != text.length()) {
+                resultBuilder.append(Component.text(text.substring(beginIndex), state.toStyle()));
+            }
+        }
+
+        // Rebuilt component may differ in structure, so the same instance is kept for identity caches
+        return replaced ? resultBuilder.build() : componentWithEndingSpace;
+    }
+
+    /**
+     * Prepares the component to be inserted by a nested binding. Matches in the component are resolved now,
+     * and on insertion every nested replacement is separated from the surrounding text,
+     * like it was replaced by a separate pass over the result
+     *
+     * @param componentWithEndingSpace the component with ending space
+     * @return the prepared replacement
+     */
+    public @NotNull NestedReplacement nest(@NotNull Component componentWithEndingSpace) {
+        List<ComponentPart> parts = AdventureUtil.parts(componentWithEndingSpace);
+        List<NestedSegment> segments = new ArrayList<>(parts.size());
+
+        Matcher[] matchers = new Matcher[bindings.length];
+        int[] matchStarts = new int[bindings.length];
+
+        for (int partIndex = 0; partIndex < parts.size(); partIndex++) {
+            ComponentPart part = parts.get(partIndex);
+
+            String text = part.text();
+            if (partIndex == parts.size() - 1 && text.endsWith(" ")) {
+                text = text.substring(0, text.length() - 1);
+            }
+
+            if (part.hoverEvent() != null && part.hoverEvent().action() == HoverEvent.Action.SHOW_TEXT) {
+                @SuppressWarnings("unchecked")
+                HoverEvent<Component> hoverEvent = (HoverEvent<Component>) part.hoverEvent();
+                part.hoverEvent(hoverEvent.value(replaceWithEndingSpace(hoverEvent.value())));
+            }
+
+            if (part.clickEvent() != null) {
+                part.clickEvent(ClickEvent.clickEvent(part.clickEvent().action(),
+                        replaceString(part.clickEvent().value(), matchers, matchStarts)));
+            }
+
+            resetMatchers(text, matchers, matchStarts);
+
+            List<String> texts = new ArrayList<>(1);
+            List<NestedReplacement> nestedReplacements = new ArrayList<>(0);
+
+            int beginIndex = 0;
+            int bindingIndex;
+            while ((bindingIndex = nextMatch(matchers, matchStarts, beginIndex)) != -1) {
+                Matcher matcher = matchers[bindingIndex];
+                Binding binding = bindings[bindingIndex];
+
+                NestedReplacement nested;
+                if (binding.nestedReplaceFunction != null) {
+                    nested = binding.nestedReplaceFunction.apply(matcher.group());
+                } else {
+                    Component replaced = binding.componentReplaceFunction.apply(matcher.group());
+                    nested = replaced == null ? null : NestedReplacement.of(replaced);
+                }
+
+                if (nested != null) {
+                    texts.add(text.substring(beginIndex, matcher.start()));
+                    nestedReplacements.add(nested);
+                    beginIndex = matcher.end();
+                }
+                advance(matchers, matchStarts, bindingIndex);
+            }
+            texts.add(text.substring(beginIndex));
+
+            segments.add(new NestedSegment(part, texts, nestedReplacements));
+        }
+
+        return new NestedReplacement(segments);
+    }
+
+    private String replaceString(String value, Matcher[] matchers, int[] matchStarts) {
+        resetMatchers(value, matchers, matchStarts);
+
+        StringBuilder builder = null;
+        int beginIndex = 0;
+        int bindingIndex;
+        while ((bindingIndex = nextMatch(matchers, matchStarts, beginIndex)) != -1) {
+            Matcher matcher = matchers[bindingIndex];
+            String group = matcher.group();
+            String replacement = bindings[bindingIndex].stringReplaceFunction.apply(group);
+            if (builder == null) {
+                builder = new StringBuilder(value.length());
+            }
+            builder.append(value, beginIndex, matcher.start());
+            builder.append(replacement == null ? group : replacement);
+            beginIndex = matcher.end();
+            advance(matchers, matchStarts, bindingIndex);
+        }
+
+        if (builder == null) {
+            return value;
+        }
+
+        if (beginIndex != value.length()) {
+            builder.append(value, beginIndex, value.length());
+        }
+
+        return builder.toString();
+    }
+
+    private void resetMatchers(String value, Matcher[] matchers, int[] matchStarts) {
+        for (int i = 0; i < bindings.length; i++) {
+            if (matchers[i] == null) {
+                matchers[i] = bindings[i].pattern.matcher(value);
+            } else {
+                matchers[i].reset(value);
+            }
+            matchStarts[i] = matchers[i].find() ? matchers[i].start() : -1;
+        }
+    }
+
+    /**
+     * @return index of binding with the leftmost match, that doesn't start before the index, or -1
+     */
+    private int nextMatch(Matcher[] matchers, int[] matchStarts, int fromIndex) {
+        int bindingIndex = -1;
+        for (int i = 0; i < bindings.length; i++) {
+            if (matchStarts[i] != -1 && matchStarts[i] < fromIndex) {
+                // Match overlaps with text, that was replaced by another binding
+                matchStarts[i] = matchers[i].find(fromIndex) ? matchers[i].start() : -1;
+            }
+            if (matchStarts[i] != -1 && (bindingIndex == -1 || matchStarts[i] < matchStarts[bindingIndex])) {
+                bindingIndex = i;
+            }
+        }
+        return bindingIndex;
+    }
+
+    private static void advance(Matcher[] matchers, int[] matchStarts, int bindingIndex) {
+        matchStarts[bindingIndex] = matchers[bindingIndex].find() ? matchers[bindingIndex].start() : -1;
+    }
+
+    /**
+     * Appends parts of inserted component: their style is shared with the following parts,
+     * ending space of the last part is trimmed
+     */
+    static void appendReplaced(TextComponent.Builder resultBuilder, ComponentState state, Component replaced) {
+        List<ComponentPart> parts = AdventureUtil.parts(replaced);
+        for (int i = 0; i < parts.size(); i++) {
+            ComponentPart replacedComponentPart = parts.get(i);
+            state.applyForeign(replacedComponentPart);
+            String text = replacedComponentPart.text();
+            if (i == parts.size() - 1) {
+                if (text.equals(" ")) {
+                    break;
+                }
+                if (text.endsWith(" ")) {
+                    text = text.substring(0, text.length() - 1);
+                }
+            }
+            resultBuilder.append(Component.text(text, state.toStyle()));
+        }
+    }
+
+    public static final class Builder {
+
+        private final List<Binding> bindings = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * @param pattern the pattern to match
+         * @param componentReplaceFunction the function to process a matched string into a component,
+         *                                 if it returns null, matched string won't be replaced
+         * @param stringReplaceFunction the function to process a matched string into a string (for click events)
+         * @return this builder
+         */
+        public @NotNull Builder binding(@NotNull Pattern pattern,
+                                        @NotNull Function<String, @Nullable Component> componentReplaceFunction,
+                                        @NotNull Function<String, @Nullable String> stringReplaceFunction) {
+            bindings.add(new Binding(pattern, componentReplaceFunction, null, stringReplaceFunction));
+            return this;
+        }
+
+        /**
+         * @param pattern the pattern to match
+         * @param nestedReplaceFunction the function to process a matched string into a nested replacement,
+         *                              if it returns null, matched string won't be replaced
+         * @param stringReplaceFunction the function to process a matched string into a string (for click events)
+         * @return this builder
+         */
+        public @NotNull Builder nestedBinding(@NotNull Pattern pattern,
+                                              @NotNull Function<String, @Nullable NestedReplacement> nestedReplaceFunction,
+                                              @NotNull Function<String, @Nullable String> stringReplaceFunction) {
+            bindings.add(new Binding(pattern, null, nestedReplaceFunction, stringReplaceFunction));
+            return this;
+        }
+
+        public @NotNull ComponentReplacer build() {
+            return new ComponentReplacer(bindings.toArray(new Binding[0]));
+        }
+
+    }
+
+    /**
+     * Component with resolved nested replacements, see {@link #nest(Component)}
+     */
+    public static final class NestedReplacement {
+
+        private final List<NestedSegment> segments;
+
+        private NestedReplacement(List<NestedSegment> segments) {
+            this.segments = segments;
+        }
+
+        private static NestedReplacement of(Component replaced) {
+            List<ComponentPart> parts = AdventureUtil.parts(replaced);
+            List<NestedSegment> segments = new ArrayList<>(parts.size());
+            for (int i = 0; i < parts.size(); i++) {
+                ComponentPart part = parts.get(i);
+                String text = part.text();
+                if (i == parts.size() - 1 && text.endsWith(" ")) {
+                    text = text.substring(0, text.length() - 1);
+                }
+                segments.add(new NestedSegment(part, Collections.singletonList(text), Collections.emptyList()));
+            }
+            return new NestedReplacement(segments);
+        }
+
+        private void appendTo(TextComponent.Builder resultBuilder, ComponentState state) {
+            for (NestedSegment segment : segments) {
+                // Style of the segment is applied even if its text is empty, like appendReplaced does
+                state.applyForeign(segment.part);
+
+                // Nested replacements don't affect style of the following segments
+                ComponentState segmentState = segment.nestedReplacements.isEmpty() ? state : state.copy();
+                for (int i = 0; i < segment.texts.size(); i++) {
+                    String text = segment.texts.get(i);
+                    if (!text.isEmpty()) {
+                        resultBuilder.append(Component.text(text, segmentState.toStyle()));
+                    }
+                    if (i < segment.nestedReplacements.size()) {
+                        segment.nestedReplacements.get(i).appendTo(resultBuilder, segmentState);
+                    }
+                }
+            }
+        }
+
+    }
+
+    private static final class NestedSegment {
+
+        private final ComponentPart part;
+        private final List<String> texts;
+        private final List<NestedReplacement> nestedReplacements;
+
+        private NestedSegment(ComponentPart part, List<String> texts, List<NestedReplacement> nestedReplacements) {
+            this.part = part;
+            this.texts = texts;
+            this.nestedReplacements = nestedReplacements;
+        }
+
+    }
+
+    private static final class Binding {
+
+        private final Pattern pattern;
+        private final @Nullable Function<String, @Nullable Component> componentReplaceFunction;
+        private final @Nullable Function<String, @Nullable NestedReplacement> nestedReplaceFunction;
+        private final Function<String, @Nullable String> stringReplaceFunction;
+
+        private Binding(Pattern pattern,
+                        @Nullable Function<String, @Nullable Component> componentReplaceFunction,
+                        @Nullable Function<String, @Nullable NestedReplacement> nestedReplaceFunction,
+                        Function<String, @Nullable String> stringReplaceFunction) {
+            this.pattern = pattern;
+            this.componentReplaceFunction = componentReplaceFunction;
+            this.nestedReplaceFunction = nestedReplaceFunction;
+            this.stringReplaceFunction = stringReplaceFunction;
+        }
+
+    }
+
+}
@@ -0,0 +1,230 @@
+package ru.brikster.chatty.util;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import ru.brikster.chatty.util.AdventureUtil.ComponentPart;
+import ru.brikster.chatty.util.AdventureUtil.ComponentState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Component with end-spaced literal slots (like "{player}"), that are located once on compilation.
+ * Rendering produces the same result as {@link ComponentReplacer} with pattern,
+ * that matches one of the slots, but doesn't flatten the component and doesn't search slots again
+ */
+public final class ComponentTemplate {
+
+    private final Component source;
+    private final List<CompiledPart> parts;
+    private final boolean hasSlots;
+
+    private ComponentTemplate(Component source, List<CompiledPart> parts) {
+        this.source = source;
+        this.parts = parts;
+        this.hasSlots = parts.stream().anyMatch(CompiledPart::hasSlots);
+    }
+
+    /**
+     * @param componentWithEndingSpace the component with ending space
+     * @param slots literal slots to be located, earlier slots win if they start at the same index
+     * @return compiled template
+     */
+    public static @NotNull ComponentTemplate compile(@NotNull Component componentWithEndingSpace, @NotNull List<String> slots) {
+        List<ComponentPart> originalParts = AdventureUtil.parts(componentWithEndingSpace);
+        List<CompiledPart> compiledParts = new ArrayList<>(originalParts.size());
+
+        for (ComponentPart part : originalParts) {
+            ComponentTemplate hoverTemplate = null;
+            if (part.hoverEvent() != null && part.hoverEvent().action() == HoverEvent.Action.SHOW_TEXT) {
+                hoverTemplate = compile((Component) part.hoverEvent().value(), slots);
+            }
+
+            SlottedString clickValue = part.clickEvent() == null
+                    ? null
+                    : SlottedString.compile(part.clickEvent().value(), slots);
+
+            compiledParts.add(new CompiledPart(part, SlottedString.compile(part.text(), slots), clickValue, hoverTemplate));
+        }
+
+        return new ComponentTemplate(componentWithEndingSpace, compiledParts);
+    }
+
+    /**
+     * @return true if there is at least one slot in text, click event or text hover
+     */
+    public boolean hasSlots() {
+        return hasSlots;
+    }
+
+    /**
+     * Replaces slots using the same rules as {@link ComponentReplacer} does.
+     * If componentReplaceFunction returns null, slot won't be replaced.
+     *
+     * @param componentReplaceFunction the function to process a slot into a component
+     * @param stringReplaceFunction the function to process a slot into a string
+     * @return the processed component, or the compiled component if nothing has been replaced
+     */
+    public @NotNull Component render(@NotNull Function<String, @Nullable Component> componentReplaceFunction,
+                                     @NotNull Function<String, @Nullable String> stringReplaceFunction) {
+        if (!hasSlots) {
+            return source;
+        }
+
+        TextComponent.Builder resultBuilder = Component.text();
+
+        ComponentState state = new ComponentState();
+        boolean replaced = false;
+
+        for (CompiledPart compiledPart : parts) {
+            ComponentPart part = compiledPart.part;
+
+            if (compiledPart.hoverTemplate != null || compiledPart.clickValue != null) {
+                // Compiled part is shared between renders, so it's never modified
+                part = part.copy();
+            }
+
+            if (compiledPart.hoverTemplate != null) {
+                @SuppressWarnings("unchecked")
+                HoverEvent<Component> hoverEvent = (HoverEvent<Component>) part.hoverEvent();
+                Component hoverText = compiledPart.hoverTemplate.render(componentReplaceFunction, stringReplaceFunction);
+                if (hoverText != hoverEvent.value()) {
+                    part.hoverEvent(hoverEvent.value(hoverText));
+                    replaced = true;
+                }
+            }
+
+            if (compiledPart.clickValue != null) {
+                String clickEventValue = compiledPart.clickValue.render(stringReplaceFunction);
+                if (!clickEventValue.equals(part.clickEvent().value())) {
+                    part.clickEvent(ClickEvent.clickEvent(part.clickEvent().action(), clickEventValue));
+                    replaced = true;
+                }
+            }
+
+            state.apply(part);
+
+            SlottedString text = compiledPart.text;
+            StringBuilder pendingText = new StringBuilder(text.chunks.get(0));
+            for (int slotIndex = 0; slotIndex < text.slots.size(); slotIndex++) {
+                String slot = text.slots.get(slotIndex);
+                Component replacement = componentReplaceFunction.apply(slot);
+                if (replacement == null) {
+                    pendingText.append(slot).append(text.chunks.get(slotIndex + 1));
+                    continue;
+                }
+
+                resultBuilder.append(Component.text(pendingText.toString(), state.toStyle()));
+                pendingText.setLength(0);
+                pendingText.append(text.chunks.get(slotIndex + 1));
+
+                ComponentReplacer.appendReplaced(resultBuilder, state, replacement);
+                replaced = true;
+            }
+
+            if (pendingText.length() != 0) {
+                resultBuilder.append(Component.text(pendingText.toString(), state.toStyle()));
+            }
+        }
+
+        return replaced ? resultBuilder.build() : source;
+    }
+
+    private static final class CompiledPart {
+
+        private final ComponentPart part;
+        private final SlottedString text;
+        private final @Nullable SlottedString clickValue;
+        private final @Nullable ComponentTemplate hoverTemplate;
+
+        private CompiledPart(ComponentPart part, SlottedString text,
+                             @Nullable SlottedString clickValue, @Nullable ComponentTemplate hoverTemplate) {
+            this.part = part;
+            this.text = text;
+            this.clickValue = clickValue;
+            this.hoverTemplate = hoverTemplate;
+        }
+
+        private boolean hasSlots() {
+            return !text.slots.isEmpty()
+                    || (clickValue != null && !clickValue.slots.isEmpty())
+                    || (hoverTemplate != null && hoverTemplate.hasSlots());
+        }
+
+    }
+
+    /**
+     * String split into literal chunks around slots: chunk, slot, chunk, ..., slot, chunk
+     */
+    private static final class SlottedString {
+
+        private final List<String> chunks;
+        private final List<String> slots;
+
+        private SlottedString(List<String> chunks, List<String> slots) {
+            this.chunks = chunks;
+            this.slots = slots;
+        }
+
+        private static SlottedString compile(String value, List<String> slotLiterals) {
+            List<String> chunks = null;
+            List<String> slots = null;
+
+            int beginIndex = 0;
+            while (true) {
+                int slotIndex = -1;
+                String slot = null;
+                for (String slotLiteral : slotLiterals) {
+                    int index = value.indexOf(slotLiteral, beginIndex);
+                    if (index != -1 && (slotIndex == -1 || index < slotIndex)) {
+                        slotIndex = index;
+                        slot = slotLiteral;
+                    }
+                }
+
+                if (slot == null) {
+                    break;
+                }
+
+                if (chunks == null) {
+                    chunks = new ArrayList<>();
+                    slots = new ArrayList<>();
+                }
+
+                chunks.add(value.substring(beginIndex, slotIndex));
+                slots.add(slot);
+                beginIndex = slotIndex + slot.length();
+            }
+
+            if (chunks == null) {
+                return new SlottedString(Collections.singletonList(value), Collections.emptyList());
+            }
+
+            chunks.add(value.substring(beginIndex));
+            return new SlottedString(chunks, slots);
+        }
+
+        private String render(Function<String, @Nullable String> stringReplaceFunction) {
+            if (slots.isEmpty()) {
+                return chunks.get(0);
+            }
+
+            StringBuilder builder = new StringBuilder(chunks.get(0));
+            for (int i = 0; i < slots.size(); i++) {
+                String slot = slots.get(i);
+                String replacement = stringReplaceFunction.apply(slot);
+                builder.append(replacement == null ? slot : replacement);
+                builder.append(chunks.get(i + 1));
+            }
+            return builder.toString();
+        }
+
+    }
+
+}
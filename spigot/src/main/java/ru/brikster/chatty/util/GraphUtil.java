@@ -69,4 +69,43 @@ public class GraphUtil {
         return new CycleAnalysisResult(keysWithCycles, cycles);
     }
 
+    /**
+     * Sorts replacements, so every replacement goes after all replacements it contains.
+     * Replacements with cycles are skipped, as their order cannot be defined
+     */
+    public List<String> sortReplacementsTopologically(ReplacementsConfig replacementsConfig, Set<String> keysWithCycles) {
+        var replacements = replacementsConfig.getReplacements();
+
+        List<String> sorted = new ArrayList<>(replacements.size());
+        Set<String> visited = new HashSet<>();
+        for (String key : replacements.keySet()) {
+            visitReplacement(key, replacements, keysWithCycles, visited, sorted);
+        }
+
+        return sorted;
+    }
+
+    private void visitReplacement(String key, Map<String, String> replacements, Set<String> keysWithCycles,
+                                  Set<String> visited, List<String> sorted) {
+        if (keysWithCycles.contains(key) || !visited.add(key)) return;
+
+        String value = replacements.get(key);
+        if (value == null) return;
+
+        for (String nestedKey : findReplacementKeys(value)) {
+            visitReplacement(nestedKey, replacements, keysWithCycles, visited, sorted);
+        }
+
+        sorted.add(key);
+    }
+
+    public Set<String> findReplacementKeys(String value) {
+        Set<String> keys = new LinkedHashSet<>();
+        var matcher = Constants.REPLACEMENTS_PATTERN.matcher(value);
+        while (matcher.find()) {
+            keys.add(matcher.group().substring(3, matcher.group().length() - 1));
+        }
+        return keys;
+    }
+
 }
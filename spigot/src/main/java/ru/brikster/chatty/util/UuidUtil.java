@@ -6,7 +6,7 @@ import java.nio.ByteBuffer;
 import java.util.UUID;
 
 @UtilityClass
-public class SqliteUtil {
+public class UuidUtil {
 
     public UUID toUUID(byte[] bytes) {
         ByteBuffer buf = ByteBuffer.wrap(bytes);
@@ -0,0 +1,55 @@
+-- UUIDs are stored as 16 bytes instead of 36 characters
+ALTER TABLE chatty_users
+    ADD COLUMN uuid_bin BINARY(16) NULL;
+
+UPDATE chatty_users
+SET uuid_bin = UNHEX(REPLACE(uuid, '-', ''));
+
+ALTER TABLE chatty_users
+    DROP PRIMARY KEY,
+    DROP COLUMN uuid;
+
+ALTER TABLE chatty_users
+    CHANGE uuid_bin uuid BINARY(16) NOT NULL FIRST,
+    ADD PRIMARY KEY (uuid);
+
+ALTER TABLE chatty_ignored_users
+    ADD COLUMN player_uuid_bin BINARY(16) NULL,
+    ADD COLUMN ignored_uuid_bin BINARY(16) NULL;
+
+UPDATE chatty_ignored_users
+SET player_uuid_bin  = UNHEX(REPLACE(player_uuid, '-', '')),
+    ignored_uuid_bin = UNHEX(REPLACE(ignored_uuid, '-', ''));
+
+ALTER TABLE chatty_ignored_users
+    DROP INDEX chatty_ignored_users_uq,
+    DROP INDEX chatty_ignored_users_player_uuid_idx,
+    DROP INDEX chatty_ignored_users_ignored_uuid_idx,
+    DROP COLUMN player_uuid,
+    DROP COLUMN ignored_uuid;
+
+ALTER TABLE chatty_ignored_users
+    CHANGE player_uuid_bin player_uuid BINARY(16) NOT NULL,
+    CHANGE ignored_uuid_bin ignored_uuid BINARY(16) NOT NULL,
+    ADD CONSTRAINT chatty_ignored_users_uq UNIQUE (player_uuid, ignored_uuid);
+
+CREATE INDEX chatty_ignored_users_ignored_uuid_idx ON chatty_ignored_users (ignored_uuid);
+
+-- Usernames are looked up case-insensitively by the indexed lowercase column
+ALTER TABLE chatty_users
+    ADD COLUMN username_lower VARCHAR(32) NULL;
+
+UPDATE chatty_users
+SET username_lower = LOWER(username);
+
+-- The name may have been used by several players, only one of them keeps it
+UPDATE chatty_users u
+    JOIN (SELECT username_lower, MAX(uuid) AS owner_uuid
+          FROM chatty_users
+          GROUP BY username_lower
+          HAVING COUNT(*) > 1) duplicates
+    ON u.username_lower = duplicates.username_lower AND u.uuid <> duplicates.owner_uuid
+SET u.username_lower = NULL;
+
+DROP INDEX chatty_users_username_idx ON chatty_users;
+CREATE UNIQUE INDEX chatty_users_username_lower_uq ON chatty_users (username_lower);
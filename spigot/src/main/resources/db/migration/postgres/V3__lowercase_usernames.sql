@@ -0,0 +1,17 @@
+-- UUIDs are already stored natively, usernames are looked up case-insensitively by the indexed lowercase column
+ALTER TABLE chatty_users
+    ADD COLUMN username_lower VARCHAR(32) NULL;
+
+UPDATE chatty_users
+SET username_lower = LOWER(username);
+
+-- The name may have been used by several players, only one of them keeps it
+UPDATE chatty_users u
+SET username_lower = NULL
+WHERE EXISTS (SELECT 1
+              FROM chatty_users other
+              WHERE other.username_lower = u.username_lower
+                AND other.uuid > u.uuid);
+
+DROP INDEX chatty_users_username_idx;
+CREATE UNIQUE INDEX chatty_users_username_lower_uq ON chatty_users (username_lower);
@@ -0,0 +1,88 @@
+package ru.brikster.chatty.chat.construct;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import org.junit.jupiter.api.Test;
+import ru.brikster.chatty.convert.component.ComponentStringConverter;
+import ru.brikster.chatty.convert.component.InternalMiniMessageStringConverter;
+import ru.brikster.chatty.convert.message.LegacyToMiniMessageConverter;
+import ru.brikster.chatty.convert.message.MessageConverter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MessageFormatTemplateTest {
+
+    private static final MessageConverter LEGACY_CONVERTER = new LegacyToMiniMessageConverter();
+
+    @Test
+    void rendersPlainFormat() {
+        assertRendersLikeMiniMessage("{original-message}", Component.text("hello world"));
+    }
+
+    @Test
+    void rendersLegacyColor() {
+        assertRendersLikeMiniMessage("&e{original-message}", Component.text("hello world"));
+    }
+
+    @Test
+    void rendersLegacyColorOverStyledMessage() {
+        assertRendersLikeMiniMessage("&e{original-message}", Component.text("hello ")
+                .append(Component.text("world", NamedTextColor.AQUA)));
+    }
+
+    @Test
+    void rendersDecorations() {
+        assertRendersLikeMiniMessage("&c&l&o{original-message}", Component.text("hello world"));
+        assertRendersLikeMiniMessage("<bold><color:#ff8800>{original-message}", Component.text("hello ")
+                .append(Component.text("world").decoration(TextDecoration.BOLD, false)));
+    }
+
+    @Test
+    void rendersHover() {
+        assertRendersLikeMiniMessage("&7{original-message}", Component.text("hello ")
+                .append(Component.text("world", NamedTextColor.GOLD)
+                        .hoverEvent(HoverEvent.showText(Component.text("tooltip", NamedTextColor.RED)))));
+    }
+
+    @Test
+    void rendersEmptyStyledText() {
+        assertRendersLikeMiniMessage("&e{original-message}", Component.text("", NamedTextColor.RED)
+                .append(Component.text("hello world")));
+        assertRendersLikeMiniMessage("&e{original-message}", Component.text("hello")
+                .append(Component.text("", NamedTextColor.RED, TextDecoration.BOLD)));
+    }
+
+    @Test
+    void rendersTextAroundMessage() {
+        assertRendersLikeMiniMessage("&e> {original-message} <", Component.text("hello world"));
+    }
+
+    @Test
+    void rendersGradient() {
+        assertRendersLikeMiniMessage("<gradient:red:blue>{original-message}", Component.text("hello world"));
+    }
+
+    private static void assertRendersLikeMiniMessage(String messageFormat, Component message) {
+        // Converter caches strings of components, so every rendering uses the new one
+        assertEquals(json(renderWithMiniMessage(messageFormat, message, new InternalMiniMessageStringConverter())),
+                json(MessageFormatTemplate.compile(messageFormat, LEGACY_CONVERTER)
+                        .render(message, new InternalMiniMessageStringConverter())));
+    }
+
+    // Rendering before message formats were compiled
+    private static Component renderWithMiniMessage(String messageFormat, Component message,
+                                                   ComponentStringConverter componentStringConverter) {
+        String messageWithMmFormat = componentStringConverter.componentToString(message);
+        return MiniMessage.miniMessage().deserialize(LEGACY_CONVERTER.convert(messageFormat)
+                .replace("{original-message}", messageWithMmFormat));
+    }
+
+    private static String json(Component component) {
+        return GsonComponentSerializer.gson().serialize(component);
+    }
+
+}
@@ -0,0 +1,42 @@
+package ru.brikster.chatty.chat.message.transform.stage.early.moderation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AhoCorasickAutomatonTest {
+
+    @Test
+    void reportsAllWordsEndingAtPosition() {
+        assertEquals(List.of("she@4", "he@4", "hers@6"),
+                match(List.of("he", "she", "his", "hers"), "ushers"));
+    }
+
+    @Test
+    void reportsOverlappingWords() {
+        assertEquals(List.of("ab@2", "aba@3", "bab@4", "ab@4", "aba@5"),
+                match(List.of("aba", "ab", "bab"), "ababa"));
+    }
+
+    @Test
+    void restartsAfterMismatch() {
+        assertEquals(List.of("bce@4"), match(List.of("abcd", "bce"), "abce"));
+        assertEquals(List.of(), match(List.of("abcd", "bce"), "abc"));
+    }
+
+    @Test
+    void matchesDoubledLetters() {
+        assertEquals(List.of("ss@3", "ss@4"), match(List.of("ss"), "asss"));
+    }
+
+    private static List<String> match(List<String> words, String text) {
+        AhoCorasickAutomaton automaton = new AhoCorasickAutomaton(words);
+        List<String> matches = new ArrayList<>();
+        automaton.match(text.toCharArray(), text.length(), (word, end) -> matches.add(words.get(word) + "@" + end));
+        return matches;
+    }
+
+}
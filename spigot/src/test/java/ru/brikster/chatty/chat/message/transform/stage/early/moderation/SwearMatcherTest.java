@@ -0,0 +1,92 @@
+package ru.brikster.chatty.chat.message.transform.stage.early.moderation;
+
+import org.junit.jupiter.api.Test;
+import ru.brikster.chatty.config.file.ModerationConfig.SwearNormalizationConfig;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SwearMatcherTest {
+
+    private static final String REPLACEMENT = "***";
+
+    @Test
+    void returnsSameMessageWithoutSwears() {
+        SwearMatcher matcher = new SwearMatcher(List.of("fool"), List.of(), new SwearNormalizationConfig());
+        String message = "hello world";
+
+        assertSame(message, matcher.replace(message, REPLACEMENT));
+    }
+
+    @Test
+    void doesNotCollapseDoubledLettersByDefault() {
+        SwearMatcher matcher = new SwearMatcher(List.of("ass"), List.of(), new SwearNormalizationConfig());
+
+        assertEquals("it was fine", matcher.replace("it was fine", REPLACEMENT));
+        assertEquals("p*** it", matcher.replace("pass it", REPLACEMENT));
+        assertEquals("***s", matcher.replace("asss", REPLACEMENT));
+    }
+
+    @Test
+    void doubledLetterOfSwearRequiresRepeatInMessage() {
+        SwearMatcher matcher = new SwearMatcher(List.of("ass"), List.of(), Map.of(), true);
+
+        assertEquals("it was fine, he has it", matcher.replace("it was fine, he has it", REPLACEMENT));
+        assertEquals("p*** it", matcher.replace("pass it", REPLACEMENT));
+        assertEquals("***!", matcher.replace("aaasssss!", REPLACEMENT));
+    }
+
+    @Test
+    void collapsesRepeatsOfSingleLetters() {
+        SwearMatcher matcher = new SwearMatcher(List.of("fol"), List.of(), Map.of(), true);
+
+        assertEquals("you ***", matcher.replace("you FOOOOL", REPLACEMENT));
+    }
+
+    @Test
+    void keepsSwearsWithDifferentRepeatsOfSameLetters() {
+        SwearMatcher matcher = new SwearMatcher(List.of("fol", "ass", "as"), List.of(), Map.of(), true);
+
+        assertEquals("*** w***", matcher.replace("fool was", REPLACEMENT));
+    }
+
+    @Test
+    void replacesCharactersBeforeMatching() {
+        SwearMatcher matcher = new SwearMatcher(List.of("fool"), List.of(), Map.of("0", "o"), false);
+
+        assertEquals("you ***!", matcher.replace("you F0oL!", REPLACEMENT));
+    }
+
+    @Test
+    void replacesOverlappingSwearsOnce() {
+        SwearMatcher matcher = new SwearMatcher(List.of("abc", "bcd", "cd"), List.of(), Map.of(), false);
+
+        assertEquals("x*** ***", matcher.replace("xabcd cd", REPLACEMENT));
+    }
+
+    @Test
+    void replacesRegexAndPlainSwearsTogether() {
+        SwearMatcher matcher = new SwearMatcher(List.of("bad", "w[o0]rd"), List.of(), Map.of(), false);
+
+        assertEquals("*** ***", matcher.replace("bad w0rd", REPLACEMENT));
+    }
+
+    @Test
+    void skipsSwearInsideWhitelistedWord() {
+        SwearMatcher matcher = new SwearMatcher(List.of("ass"), List.of("Class"), Map.of(), false);
+
+        assertEquals("class ***", matcher.replace("class ass", REPLACEMENT));
+        assertEquals("cl***y", matcher.replace("classy", REPLACEMENT));
+    }
+
+    @Test
+    void skipsWhitelistedMatch() {
+        SwearMatcher matcher = new SwearMatcher(List.of("sh[i1]t"), List.of("shit"), Map.of(), false);
+
+        assertEquals("SHIT ***", matcher.replace("SHIT sh1t", REPLACEMENT));
+    }
+
+}
@@ -0,0 +1,127 @@
+package ru.brikster.chatty.util;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+// Expected JSON is produced by replaceWithEndingSpace before it was moved to ComponentReplacer.
+// It's deserialized before comparison, because texts without style may be written as plain strings
+class AdventureUtilTest {
+
+    private static final Pattern PREFIX_OR_SUFFIX_PATTERN = Pattern.compile("\\{prefix}|\\{suffix}");
+
+    @Test
+    void trimsEndingSpaceOfReplacement() {
+        Component result = AdventureUtil.replaceWithEndingSpace(Component.text("{prefix}{player}: ", NamedTextColor.WHITE),
+                PREFIX_OR_SUFFIX_PATTERN,
+                components(Component.text("Admin ", NamedTextColor.RED), null),
+                strings("Admin", null));
+
+        assertJsonEquals("{\"extra\":[{\"color\":\"white\",\"text\":\"\"},{\"color\":\"red\",\"text\":\"Admin\"},"
+                + "{\"color\":\"red\",\"text\":\"{player}: \"}],\"text\":\"\"}", result);
+    }
+
+    @Test
+    void sharesStyleOfEndingSpaceWithFollowingText() {
+        // Prefix from legacy string "&6&lPrefix &e"
+        Component prefix = Component.text("Prefix ", NamedTextColor.GOLD, TextDecoration.BOLD)
+                .append(Component.text(" ", NamedTextColor.YELLOW));
+
+        Component result = AdventureUtil.replaceWithEndingSpace(Component.text("[{prefix}] {player} "),
+                PREFIX_OR_SUFFIX_PATTERN,
+                components(prefix, null),
+                strings("Prefix", null));
+
+        assertJsonEquals("{\"extra\":[{\"text\":\"[\"},{\"bold\":true,\"color\":\"gold\",\"text\":\"Prefix \"},"
+                + "{\"bold\":true,\"color\":\"yellow\",\"text\":\"] {player} \"}],\"text\":\"\"}", result);
+    }
+
+    @Test
+    void replacesInHoverAndClickEvents() {
+        Component format = Component.text()
+                .append(Component.text("{player}", NamedTextColor.YELLOW)
+                        .hoverEvent(HoverEvent.showText(Component.text("Rank: {prefix} ")))
+                        .clickEvent(ClickEvent.suggestCommand("/msg {prefix}{suffix} ")))
+                .append(Component.text(" > "))
+                .build();
+
+        Component result = AdventureUtil.replaceWithEndingSpace(format,
+                PREFIX_OR_SUFFIX_PATTERN,
+                components(Component.text("Admin ", NamedTextColor.RED), Component.text("[VIP] ", NamedTextColor.GREEN)),
+                strings("Admin", "VIP"));
+
+        assertJsonEquals("{\"extra\":[{\"color\":\"yellow\",\"clickEvent\":{\"action\":\"suggest_command\",\"value\":\"/msg AdminVIP \"},"
+                + "\"hoverEvent\":{\"action\":\"show_text\",\"contents\":{\"extra\":[{\"text\":\"Rank: \"},"
+                + "{\"color\":\"red\",\"text\":\"Admin\"},{\"color\":\"red\",\"text\":\" \"}],\"text\":\"\"}},\"text\":\"{player}\"},"
+                + "{\"color\":\"yellow\",\"text\":\" > \"}],\"text\":\"\"}", result);
+    }
+
+    @Test
+    void keepsEventsOfFormatForReplacement() {
+        Component prefix = Component.text("Admin ", NamedTextColor.RED)
+                .hoverEvent(HoverEvent.showText(Component.text("Staff")));
+
+        Component result = AdventureUtil.replaceWithEndingSpace(
+                Component.text("{prefix}{player} ", NamedTextColor.GRAY).clickEvent(ClickEvent.runCommand("/spawn")),
+                PREFIX_OR_SUFFIX_PATTERN,
+                components(prefix, null),
+                strings("Admin", null));
+
+        assertJsonEquals("{\"extra\":[{\"color\":\"gray\",\"clickEvent\":{\"action\":\"run_command\",\"value\":\"/spawn\"},\"text\":\"\"},"
+                + "{\"color\":\"red\",\"clickEvent\":{\"action\":\"run_command\",\"value\":\"/spawn\"},"
+                + "\"hoverEvent\":{\"action\":\"show_text\",\"contents\":\"Staff\"},\"text\":\"Admin\"},"
+                + "{\"color\":\"red\",\"clickEvent\":{\"action\":\"run_command\",\"value\":\"/spawn\"},"
+                + "\"hoverEvent\":{\"action\":\"show_text\",\"contents\":\"Staff\"},\"text\":\"{player} \"}],\"text\":\"\"}", result);
+    }
+
+    @Test
+    void keepsUnresolvedMatches() {
+        Component result = AdventureUtil.replaceWithEndingSpace(Component.text("{prefix}{suffix} ", NamedTextColor.GRAY),
+                PREFIX_OR_SUFFIX_PATTERN,
+                components(null, Component.text("!", NamedTextColor.GOLD)),
+                strings(null, "!"));
+
+        assertJsonEquals("{\"extra\":[{\"color\":\"gray\",\"text\":\"{prefix}\"},{\"color\":\"gold\",\"text\":\"!\"},"
+                + "{\"color\":\"gold\",\"text\":\" \"}],\"text\":\"\"}", result);
+    }
+
+    @Test
+    void returnsSameComponentIfNothingReplaced() {
+        Component format = Component.text("[{prefix}] ", NamedTextColor.GRAY)
+                .hoverEvent(HoverEvent.showText(Component.text("{suffix} ")))
+                .clickEvent(ClickEvent.suggestCommand("/msg {prefix}"))
+                .append(Component.text("{player} "));
+
+        assertSame(format, AdventureUtil.replaceWithEndingSpace(format, PREFIX_OR_SUFFIX_PATTERN,
+                components(null, null), strings(null, null)));
+        assertSame(format, AdventureUtil.replaceWithEndingSpace(format, Pattern.compile("\\{message}"),
+                components(Component.text("hello "), null), strings("hello", null)));
+    }
+
+    private static Function<String, Component> components(Component prefix, Component suffix) {
+        return matchedString -> matchedString.equals("{prefix}") ? prefix : suffix;
+    }
+
+    private static Function<String, String> strings(String prefix, String suffix) {
+        return matchedString -> matchedString.equals("{prefix}") ? prefix : suffix;
+    }
+
+    private static void assertJsonEquals(String expected, Component actual) {
+        assertEquals(json(GsonComponentSerializer.gson().deserialize(expected)), json(actual));
+    }
+
+    private static String json(Component component) {
+        return GsonComponentSerializer.gson().serialize(component);
+    }
+
+}
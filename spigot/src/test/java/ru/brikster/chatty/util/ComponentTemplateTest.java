@@ -0,0 +1,70 @@
+package ru.brikster.chatty.util;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.TextDecoration;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ComponentTemplateTest {
+
+    private static final List<String> SLOTS = List.of("{player}", "{message}");
+    private static final Pattern SLOTS_PATTERN = Pattern.compile("\\{player}|\\{message}");
+
+    private static final Function<String, Component> COMPONENT_FUNCTION = slot -> slot.equals("{player}")
+            ? Component.text("Steve ")
+            : Component.text("hello ", NamedTextColor.GRAY).append(Component.text("world", NamedTextColor.AQUA)).append(Component.text(" "));
+    private static final Function<String, String> STRING_FUNCTION = slot -> slot.equals("{player}")
+            ? "Steve "
+            : "hello world ";
+
+    @Test
+    void rendersSameComponentAsReplacer() {
+        Component format = rewrittenFormat();
+
+        assertEquals(json(AdventureUtil.replaceWithEndingSpace(format, SLOTS_PATTERN, COMPONENT_FUNCTION, STRING_FUNCTION)),
+                json(ComponentTemplate.compile(format, SLOTS).render(COMPONENT_FUNCTION, STRING_FUNCTION)));
+    }
+
+    @Test
+    void rendersEqualFormatsWithSharedTemplate() {
+        ComponentTemplate template = ComponentTemplate.compile(rewrittenFormat(), SLOTS);
+        String expected = json(AdventureUtil.replaceWithEndingSpace(rewrittenFormat(), SLOTS_PATTERN, COMPONENT_FUNCTION, STRING_FUNCTION));
+
+        assertEquals(expected, json(template.render(COMPONENT_FUNCTION, STRING_FUNCTION)));
+        assertEquals(expected, json(template.render(COMPONENT_FUNCTION, STRING_FUNCTION)));
+    }
+
+    @Test
+    void keepsTextWithoutSlots() {
+        Component format = Component.text("[Server] ", NamedTextColor.RED).append(Component.text("restart "));
+
+        assertEquals(json(AdventureUtil.replaceWithEndingSpace(format, SLOTS_PATTERN, COMPONENT_FUNCTION, STRING_FUNCTION)),
+                json(ComponentTemplate.compile(format, SLOTS).render(COMPONENT_FUNCTION, STRING_FUNCTION)));
+    }
+
+    // Format after prefix and placeholders have been replaced by strategies
+    private static Component rewrittenFormat() {
+        return Component.text()
+                .append(Component.text("[Admin] ", NamedTextColor.RED, TextDecoration.BOLD)
+                        .hoverEvent(HoverEvent.showText(Component.text("{player} is admin "))))
+                .append(Component.text("{player}", NamedTextColor.YELLOW)
+                        .clickEvent(ClickEvent.suggestCommand("/msg {player} ")))
+                .append(Component.text(" [lvl 42]: ", NamedTextColor.DARK_GRAY))
+                .append(Component.text("{message} "))
+                .build();
+    }
+
+    private static String json(Component component) {
+        return GsonComponentSerializer.gson().serialize(component);
+    }
+
+}